@@ -1,12 +1,15 @@
 package com.example.demo.Controllers;
 
 import com.example.demo.Entities.CustomerEntity;
+import com.example.demo.Services.CustomerCache;
 import com.example.demo.Services.CustomerService;
+import com.example.demo.Services.ReservationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/user")
@@ -15,6 +18,12 @@ public class CustomerController {
     @Autowired
     CustomerService customerService;
 
+    @Autowired
+    ReservationService reservationService;
+
+    @Autowired
+    CustomerCache customerCache;
+
     @PostMapping("/")
     public ResponseEntity<CustomerEntity> saveUser(@RequestBody CustomerEntity customer) {
         CustomerEntity user = customerService.saveUser(customer);
@@ -48,6 +57,21 @@ public class CustomerController {
         return ResponseEntity.ok(user);
     }
 
+    @GetMapping("/{rut}/reservations")
+    public ResponseEntity<Map<String, Object>> getUserReservations(@PathVariable String rut,
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(reservationService.getReservationsByCustomer(rut, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/admin/cache-stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> getCacheStats() {
+        return ResponseEntity.ok(customerCache.getStats());
+    }
+
     @PostMapping("/login")
     public ResponseEntity<CustomerEntity> login(@RequestBody CustomerEntity customer) {
         return ResponseEntity.ok(customerService.login(customer));
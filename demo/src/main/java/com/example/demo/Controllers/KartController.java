@@ -1,11 +1,15 @@
 package com.example.demo.Controllers;
 
 import com.example.demo.Entities.KartEntity;
+import com.example.demo.Entities.KartMaintenanceEntity;
+import com.example.demo.Services.KartMaintenanceService;
 import com.example.demo.Services.KartService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -16,6 +20,9 @@ public class KartController {
     @Autowired
     KartService kartService;
 
+    @Autowired
+    KartMaintenanceService kartMaintenanceService;
+
     @PostMapping("/save")
     public ResponseEntity<KartEntity> saveKart(@RequestBody KartEntity kart) {
         KartEntity savedKart = kartService.saveKart(kart);
@@ -40,4 +47,32 @@ public class KartController {
         return ResponseEntity.ok(isDeleted);
     }
 
+    @PostMapping("/maintenance")
+    public ResponseEntity<KartMaintenanceEntity> scheduleMaintenance(@RequestBody KartMaintenanceEntity maintenance) {
+        try {
+            return ResponseEntity.ok(kartMaintenanceService.scheduleMaintenance(maintenance));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/maintenance")
+    public ResponseEntity<List<KartMaintenanceEntity>> getMaintenance(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(kartMaintenanceService.getMaintenance(from, to));
+    }
+
+    @DeleteMapping("/maintenance/{id}")
+    public ResponseEntity<Void> deleteMaintenance(@PathVariable Long id) {
+        kartMaintenanceService.deleteMaintenance(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/admin/resync")
+    public ResponseEntity<Integer> resyncAvailableKarts() {
+        int available = kartService.resyncAvailableKarts();
+        return ResponseEntity.ok(available);
+    }
+
 }
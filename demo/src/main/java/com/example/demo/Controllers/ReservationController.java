@@ -1,16 +1,39 @@
 package com.example.demo.Controllers;
 
 import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Entities.VoucherOutboxEntity;
+import com.example.demo.Services.CustomerVisitService;
+import com.example.demo.Services.DaySheetService;
+import com.example.demo.Services.IncomeReportExporter;
+import com.example.demo.Services.PricingEngine;
+import com.example.demo.Services.ReservationBusyException;
+import com.example.demo.Services.ReservationLedgerExporter;
+import com.example.demo.Services.ReservationLineService;
+import com.example.demo.Services.ReservationParticipantService;
 import com.example.demo.Services.ReservationService;
+import com.example.demo.Services.RevenueRollupService;
+import com.example.demo.Services.VoucherCache;
+import com.example.demo.Services.VoucherDispatchService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/reservation")
@@ -19,6 +42,36 @@ public class ReservationController {
     @Autowired
     ReservationService reservationService;
 
+    @Autowired
+    VoucherDispatchService voucherDispatchService;
+
+    @Autowired
+    ReservationLineService reservationLineService;
+
+    @Autowired
+    RevenueRollupService revenueRollupService;
+
+    @Autowired
+    CustomerVisitService customerVisitService;
+
+    @Autowired
+    ReservationParticipantService reservationParticipantService;
+
+    @Autowired
+    IncomeReportExporter incomeReportExporter;
+
+    @Autowired
+    ReservationLedgerExporter reservationLedgerExporter;
+
+    @Autowired
+    VoucherCache voucherCache;
+
+    @Autowired
+    DaySheetService daySheetService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
     @PostMapping("/")
     public ResponseEntity<?> createReservation(@RequestBody ReservationEntity reservation,
             @RequestParam(required = false) Boolean isAdmin, @RequestParam(required = false) Double customPrice,
@@ -28,12 +81,64 @@ public class ReservationController {
         return ResponseEntity.ok(reservationNew);
     }
 
+    // Carga masiva: el resultado trae una entrada por reserva, en el mismo orden, con BOOKED o REJECTED
+    @PostMapping("/batch")
+    // 400 con el motivo si el lote es inválido; 409 si el día seguía ocupado por otras reservas tras los reintentos
+    public ResponseEntity<?> createReservations(@RequestBody List<ReservationEntity> reservations,
+            @RequestParam(required = false) Boolean isAdmin, @RequestParam(required = false) Double customPrice,
+            @RequestParam(required = false) Double specialDiscount) {
+        try {
+            return ResponseEntity.ok(reservationService.makeReservations(reservations, isAdmin, customPrice, specialDiscount));
+        } catch (ReservationBusyException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Cotización: valida y calcula el detalle por participante, sin guardar la reserva ni enviar correos
+    @PostMapping("/quote")
+    public ResponseEntity<?> quoteReservation(@RequestBody ReservationEntity reservation,
+            @RequestParam(required = false) Boolean isAdmin, @RequestParam(required = false) Double customPrice,
+            @RequestParam(required = false) Double specialDiscount) {
+        try {
+            return ResponseEntity.ok(reservationService.quoteReservation(reservation, isAdmin, customPrice, specialDiscount));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ReservationEntity> getReservationById(@PathVariable Long id) {
         ReservationEntity reservation = reservationService.getReservationById(id);
         return ResponseEntity.ok(reservation);
     }
 
+    @GetMapping("/{id}/voucher-status")
+    public ResponseEntity<VoucherOutboxEntity> getVoucherStatus(@PathVariable Long id) {
+        VoucherOutboxEntity status = voucherDispatchService.getVoucherStatus(id);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    // Reenvío del comprobante desde la reserva guardada. Con If-None-Match responde 304 si no cambió,
+    // y como el cuerpo es un Resource, Spring atiende también los pedidos con Range (206)
+    @GetMapping("/{id}/voucher.pdf")
+    public ResponseEntity<Resource> getVoucherPdf(@PathVariable Long id) {
+        VoucherCache.Voucher voucher = voucherCache.voucher(id);
+        if (voucher == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .eTag(voucher.etag())
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"comprobante-RES-" + id + ".pdf\"")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(new ByteArrayResource(voucher.pdf()));
+    }
+
     @PutMapping("/")
     public ResponseEntity<ReservationEntity> updateReservation(@RequestBody ReservationEntity reservation) {
         ReservationEntity reservationUpdated = reservationService.updateReservation(reservation);
@@ -53,6 +158,18 @@ public class ReservationController {
         return ResponseEntity.ok(reservation);
     }
 
+    @GetMapping("/availability")
+    public ResponseEntity<?> getAvailability(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam int lapsOrTime, @RequestParam(defaultValue = "1") int people) {
+        try {
+            return ResponseEntity.ok(reservationService.getAvailability(from, to, lapsOrTime, people));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/income-lapsOrTime")
     public ResponseEntity<Map<String, Map<String, Double>>> getIncomeFromLapsOrTime(
             @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
@@ -71,16 +188,147 @@ public class ReservationController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping("/income-lapsOrTime.xlsx")
+    public ResponseEntity<StreamingResponseBody> exportIncomeFromLapsOrTime(
+            @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            return xlsx(incomeReportExporter.lapsOrTimeReport(startDate, endDate), "ingresos-vueltas");
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/income-persons.xlsx")
+    public ResponseEntity<StreamingResponseBody> exportIncomePerPerson(
+            @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            return xlsx(incomeReportExporter.personsReport(startDate, endDate), "ingresos-personas");
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // El libro se escribe directo en la respuesta mientras se arma
+    private ResponseEntity<StreamingResponseBody> xlsx(IncomeReportExporter.Report report, String name) {
+        StreamingResponseBody body = out -> incomeReportExporter.write(report, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "-" + report.startDate()
+                        + "-" + report.endDate() + ".xlsx\"")
+                .contentType(MediaType.parseMediaType(IncomeReportExporter.CONTENT_TYPE))
+                .body(body);
+    }
+
+    // Libro de reservas en CSV, una fila por participante; se escribe mientras se lee de la base de datos
+    @GetMapping("/ledger.csv")
+    public ResponseEntity<StreamingResponseBody> exportLedger(
+            @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            reservationLedgerExporter.validateRange(startDate, endDate);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        StreamingResponseBody body = out -> reservationLedgerExporter.write(startDate, endDate, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"reservas-" + startDate + "-" + endDate + ".csv\"")
+                .contentType(MediaType.parseMediaType(ReservationLedgerExporter.CONTENT_TYPE))
+                .body(body);
+    }
+
+    // Hoja de pista del día: la de mañana suele estar ya generada; las demás se escriben directo en la respuesta
+    @GetMapping("/day-sheet/{date}.pdf")
+    public ResponseEntity<StreamingResponseBody> getDaySheet(
+            @PathVariable("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        byte[] cached = daySheetService.cached(date);
+        StreamingResponseBody body = cached != null ? out -> out.write(cached) : out -> daySheetService.write(date, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"hoja-pista-" + date + ".pdf\"")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(body);
+    }
+
     @GetMapping("/all")
-    public ResponseEntity<List<ReservationEntity>> getAllReservations() {
-        List<ReservationEntity> reservations = reservationService.getAllReservations();
-        return ResponseEntity.ok(reservations);
+    public ResponseEntity<StreamingResponseBody> getAllReservations(
+            @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "200") int size) {
+        try {
+            Map<String, Object> page = reservationService.getReservationsPage(start, end, cursor, size);
+            return streamPage(page, reservation -> reservation);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     @GetMapping("/allByDuration")
-    public ResponseEntity<List<Map<String, Object>>> getAllReservationsByDuration() {
-        List<Map<String, Object>> reservations = reservationService.getAllReservationsByDuration();
-        return ResponseEntity.ok(reservations);
+    public ResponseEntity<StreamingResponseBody> getAllReservationsByDuration(
+            @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "200") int size) {
+        try {
+            Map<String, Object> page = reservationService.getReservationsPage(start, end, cursor, size);
+            Map<String, String> ownerNames = reservationService.resolveOwnerNames(reservationsOf(page));
+            return streamPage(page, reservation -> reservationService.toRackEvent(reservation, ownerNames));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Los endpoints que escriben en streaming declaran StreamingResponseBody y no pueden devolver un texto;
+    // sus errores de validación llegan aquí y salen con el motivo en el cuerpo
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleStatus(ResponseStatusException e) {
+        return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ReservationEntity> reservationsOf(Map<String, Object> page) {
+        return (List<ReservationEntity>) page.get("reservations");
+    }
+
+    // Escribe la página elemento por elemento en la respuesta, sin armar la lista convertida en memoria
+    private ResponseEntity<StreamingResponseBody> streamPage(Map<String, Object> page, Function<ReservationEntity, Object> toJson) {
+        List<ReservationEntity> reservations = reservationsOf(page);
+        String nextCursor = (String) page.get("nextCursor");
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("reservations");
+                for (ReservationEntity reservation : reservations) {
+                    json.writeObject(toJson.apply(reservation));
+                }
+                json.writeEndArray();
+                json.writeStringField("nextCursor", nextCursor);
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
-}
 
+    @PostMapping("/admin/lines/backfill")
+    public ResponseEntity<Integer> backfillReservationLines() {
+        int created = reservationLineService.backfillFromGroupDetail();
+        return ResponseEntity.ok(created);
+    }
+
+    @PostMapping("/admin/participants/backfill")
+    public ResponseEntity<Integer> backfillReservationParticipants() {
+        int created = reservationParticipantService.backfillFromRutsUsers();
+        return ResponseEntity.ok(created);
+    }
+
+    @PostMapping("/admin/rollups/rebuild")
+    public ResponseEntity<Integer> rebuildRevenueRollups() {
+        int rows = revenueRollupService.rebuild();
+        return ResponseEntity.ok(rows);
+    }
+
+    @PostMapping("/admin/visits/rebuild")
+    public ResponseEntity<Integer> rebuildCustomerVisits() {
+        int rows = customerVisitService.rebuild();
+        return ResponseEntity.ok(rows);
+    }
+}
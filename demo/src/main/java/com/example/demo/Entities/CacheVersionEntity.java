@@ -0,0 +1,39 @@
+package com.example.demo.Entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Versión de una caché local. Cada réplica la incrementa al modificar los datos cacheados
+// y las demás la consultan periódicamente para saber cuándo vaciar su copia.
+@Entity
+@Table(name = "cache_version")
+@Data
+@AllArgsConstructor
+public class CacheVersionEntity {
+
+    @Id
+    @Column(unique = true, nullable = false)
+    private String cacheName;
+
+    private long version;
+
+    public CacheVersionEntity() {
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public void setCacheName(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.Entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "customer_visit", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_customer_visit", columnNames = {"rut", "visitDate"})
+})
+@Data
+@AllArgsConstructor
+public class CustomerVisitEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(unique = true, nullable = false)
+    private Long id;
+
+    private String rut;
+    private LocalDate visitDate;
+    // Reservas del día en las que participa el cliente
+    private int visits;
+
+    public CustomerVisitEntity() {
+    }
+
+    public CustomerVisitEntity(String rut, LocalDate visitDate, int visits) {
+        this.rut = rut;
+        this.visitDate = visitDate;
+        this.visits = visits;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getRut() {
+        return rut;
+    }
+
+    public void setRut(String rut) {
+        this.rut = rut;
+    }
+
+    public LocalDate getVisitDate() {
+        return visitDate;
+    }
+
+    public void setVisitDate(LocalDate visitDate) {
+        this.visitDate = visitDate;
+    }
+
+    public int getVisits() {
+        return visits;
+    }
+
+    public void setVisits(int visits) {
+        this.visits = visits;
+    }
+}
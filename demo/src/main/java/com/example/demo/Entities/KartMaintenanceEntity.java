@@ -0,0 +1,77 @@
+package com.example.demo.Entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Ventana [inicio, fin) en que un kart está en mantención y no se puede asignar a reservas
+@Entity
+@Table(name = "kart_maintenance", indexes = {
+        @Index(name = "idx_kart_maintenance_time", columnList = "startTime, endTime")
+})
+@Data
+@AllArgsConstructor
+public class KartMaintenanceEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(unique = true, nullable = false)
+    private Long id;
+
+    private Long kartId;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private String reason;
+
+    public KartMaintenanceEntity() {
+    }
+
+    public KartMaintenanceEntity(Long kartId, LocalDateTime startTime, LocalDateTime endTime, String reason) {
+        this.kartId = kartId;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.reason = reason;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getKartId() {
+        return kartId;
+    }
+
+    public void setKartId(Long kartId) {
+        this.kartId = kartId;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+}
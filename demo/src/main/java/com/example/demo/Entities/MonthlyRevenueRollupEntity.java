@@ -0,0 +1,85 @@
+package com.example.demo.Entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Entity
+@Table(name = "monthly_revenue_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_monthly_revenue_rollup", columnNames = {"revenueMonth", "lapsOrTime", "peopleRange"})
+})
+@Data
+@AllArgsConstructor
+public class MonthlyRevenueRollupEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(unique = true, nullable = false)
+    private Long id;
+
+    // Mes en formato yyyy-MM
+    private String revenueMonth;
+    private int lapsOrTime;
+    private String peopleRange;
+    private double total;
+    private long reservations;
+
+    public MonthlyRevenueRollupEntity() {
+    }
+
+    public MonthlyRevenueRollupEntity(String revenueMonth, int lapsOrTime, String peopleRange, double total, long reservations) {
+        this.revenueMonth = revenueMonth;
+        this.lapsOrTime = lapsOrTime;
+        this.peopleRange = peopleRange;
+        this.total = total;
+        this.reservations = reservations;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getRevenueMonth() {
+        return revenueMonth;
+    }
+
+    public void setRevenueMonth(String revenueMonth) {
+        this.revenueMonth = revenueMonth;
+    }
+
+    public int getLapsOrTime() {
+        return lapsOrTime;
+    }
+
+    public void setLapsOrTime(int lapsOrTime) {
+        this.lapsOrTime = lapsOrTime;
+    }
+
+    public String getPeopleRange() {
+        return peopleRange;
+    }
+
+    public void setPeopleRange(String peopleRange) {
+        this.peopleRange = peopleRange;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    public void setTotal(double total) {
+        this.total = total;
+    }
+
+    public long getReservations() {
+        return reservations;
+    }
+
+    public void setReservations(long reservations) {
+        this.reservations = reservations;
+    }
+}
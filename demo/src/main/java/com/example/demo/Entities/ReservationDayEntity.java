@@ -0,0 +1,39 @@
+package com.example.demo.Entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "reservation_day")
+@Data
+@AllArgsConstructor
+public class ReservationDayEntity {
+
+    @Id
+    @Column(unique = true, nullable = false)
+    private LocalDate reservationDay;
+
+    private long version;
+
+    public ReservationDayEntity() {
+    }
+
+    public LocalDate getReservationDay() {
+        return reservationDay;
+    }
+
+    public void setReservationDay(LocalDate reservationDay) {
+        this.reservationDay = reservationDay;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -7,7 +7,9 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "reservation")
+@Table(name = "reservation", indexes = {
+        @Index(name = "idx_reservation_date", columnList = "reservationDate")
+})
 @Data
 @AllArgsConstructor
 public class ReservationEntity {
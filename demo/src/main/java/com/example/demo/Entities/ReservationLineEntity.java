@@ -0,0 +1,139 @@
+package com.example.demo.Entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Entity
+@Table(name = "reservation_line", indexes = {
+        @Index(name = "idx_reservation_line_reservation", columnList = "reservationId")
+})
+@Data
+@AllArgsConstructor
+public class ReservationLineEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(unique = true, nullable = false)
+    private Long id;
+
+    private Long reservationId;
+    private int position;
+    private String name;
+    private double basePrice;
+    private int groupDiscount;
+    private int frequentDiscount;
+    private boolean birthday;
+    private int specialDiscount;
+    private int appliedDiscount;
+    private double subtotal;
+    private double iva;
+    private double total;
+
+    public ReservationLineEntity() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Long reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public double getBasePrice() {
+        return basePrice;
+    }
+
+    public void setBasePrice(double basePrice) {
+        this.basePrice = basePrice;
+    }
+
+    public int getGroupDiscount() {
+        return groupDiscount;
+    }
+
+    public void setGroupDiscount(int groupDiscount) {
+        this.groupDiscount = groupDiscount;
+    }
+
+    public int getFrequentDiscount() {
+        return frequentDiscount;
+    }
+
+    public void setFrequentDiscount(int frequentDiscount) {
+        this.frequentDiscount = frequentDiscount;
+    }
+
+    public boolean isBirthday() {
+        return birthday;
+    }
+
+    public void setBirthday(boolean birthday) {
+        this.birthday = birthday;
+    }
+
+    public int getSpecialDiscount() {
+        return specialDiscount;
+    }
+
+    public void setSpecialDiscount(int specialDiscount) {
+        this.specialDiscount = specialDiscount;
+    }
+
+    public int getAppliedDiscount() {
+        return appliedDiscount;
+    }
+
+    public void setAppliedDiscount(int appliedDiscount) {
+        this.appliedDiscount = appliedDiscount;
+    }
+
+    public double getSubtotal() {
+        return subtotal;
+    }
+
+    public void setSubtotal(double subtotal) {
+        this.subtotal = subtotal;
+    }
+
+    public double getIva() {
+        return iva;
+    }
+
+    public void setIva(double iva) {
+        this.iva = iva;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    public void setTotal(double total) {
+        this.total = total;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.Entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "reservation_participant", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_reservation_participant", columnNames = {"reservationId", "rut"})
+}, indexes = {
+        @Index(name = "idx_reservation_participant_rut_date", columnList = "rut, reservationDate"),
+        @Index(name = "idx_reservation_participant_reservation", columnList = "reservationId")
+})
+@Data
+@AllArgsConstructor
+public class ReservationParticipantEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(unique = true, nullable = false)
+    private Long id;
+
+    private Long reservationId;
+    private String rut;
+    // Copia de la fecha de la reserva, para consultar por cliente y rango sin unir con reservation
+    private LocalDateTime reservationDate;
+    private boolean owner;
+
+    public ReservationParticipantEntity() {
+    }
+
+    public ReservationParticipantEntity(Long reservationId, String rut, LocalDateTime reservationDate, boolean owner) {
+        this.reservationId = reservationId;
+        this.rut = rut;
+        this.reservationDate = reservationDate;
+        this.owner = owner;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Long reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public String getRut() {
+        return rut;
+    }
+
+    public void setRut(String rut) {
+        this.rut = rut;
+    }
+
+    public LocalDateTime getReservationDate() {
+        return reservationDate;
+    }
+
+    public void setReservationDate(LocalDateTime reservationDate) {
+        this.reservationDate = reservationDate;
+    }
+
+    public boolean isOwner() {
+        return owner;
+    }
+
+    public void setOwner(boolean owner) {
+        this.owner = owner;
+    }
+}
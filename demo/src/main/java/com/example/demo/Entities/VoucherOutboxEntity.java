@@ -0,0 +1,124 @@
+package com.example.demo.Entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "voucher_outbox", indexes = {
+        @Index(name = "idx_voucher_outbox_status_next", columnList = "status, nextAttemptAt"),
+        @Index(name = "idx_voucher_outbox_reservation", columnList = "reservationId")
+})
+@Data
+@AllArgsConstructor
+public class VoucherOutboxEntity {
+
+    public static final String PENDING = "PENDING";
+    public static final String SENDING = "SENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(unique = true, nullable = false)
+    private Long id;
+
+    private Long reservationId;
+    private String status;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    // Destinatarios que quedaron pendientes tras un envío parcial, separados por coma
+    @Column(columnDefinition = "TEXT")
+    private String failedRecipients;
+
+    public VoucherOutboxEntity() {
+    }
+
+    public VoucherOutboxEntity(Long reservationId, LocalDateTime createdAt) {
+        this.reservationId = reservationId;
+        this.status = PENDING;
+        this.attempts = 0;
+        this.nextAttemptAt = createdAt;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Long reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public String getFailedRecipients() {
+        return failedRecipients;
+    }
+
+    public void setFailedRecipients(String failedRecipients) {
+        this.failedRecipients = failedRecipients;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.CacheVersionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface CacheVersionRepository extends JpaRepository<CacheVersionEntity, String> {
+
+    @Query("SELECT c.version FROM CacheVersionEntity c WHERE c.cacheName = :cacheName")
+    Long findVersion(@Param("cacheName") String cacheName);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE CacheVersionEntity c SET c.version = c.version + 1 WHERE c.cacheName = :cacheName")
+    int bumpVersion(@Param("cacheName") String cacheName);
+
+    // Inserción directa (no merge), para no pisar la versión si otra réplica ya creó la fila
+    @Transactional
+    @Modifying
+    @Query("INSERT INTO CacheVersionEntity (cacheName, version) VALUES (:cacheName, 0)")
+    int insertVersion(@Param("cacheName") String cacheName);
+}
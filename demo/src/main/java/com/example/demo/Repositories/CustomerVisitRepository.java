@@ -0,0 +1,43 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.CustomerVisitEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CustomerVisitRepository extends JpaRepository<CustomerVisitEntity, Long> {
+
+    interface RutVisits {
+        String getRut();
+        Long getVisits();
+    }
+
+    // Visitas acumuladas de varios clientes en un rango de días, en una sola consulta
+    @Query("SELECT v.rut AS rut, SUM(v.visits) AS visits FROM CustomerVisitEntity v " +
+            "WHERE v.rut IN :ruts AND v.visitDate BETWEEN :fromDate AND :toDate GROUP BY v.rut")
+    List<RutVisits> sumVisitsByRut(@Param("ruts") Collection<String> ruts, @Param("fromDate") LocalDate fromDate,
+                                   @Param("toDate") LocalDate toDate);
+
+    // Suma visitas a varios clientes en una sola sentencia, creando las filas del día que falten.
+    // Corre en la transacción de la reserva, sin pedir otra conexión.
+    @Modifying
+    @Query(value = "INSERT INTO customer_visit (rut, visit_date, visits) " +
+            "SELECT r, :visitDate, :delta FROM unnest(CAST(:ruts AS varchar[])) AS r " +
+            "ON CONFLICT (rut, visit_date) DO UPDATE SET visits = customer_visit.visits + :delta", nativeQuery = true)
+    int upsertVisits(@Param("ruts") String[] ruts, @Param("visitDate") LocalDate visitDate, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE CustomerVisitEntity v SET v.visits = v.visits + :delta WHERE v.rut IN :ruts AND v.visitDate = :visitDate")
+    int addVisits(@Param("ruts") Collection<String> ruts, @Param("visitDate") LocalDate visitDate, @Param("delta") int delta);
+
+    @Modifying
+    @Query("DELETE FROM CustomerVisitEntity v")
+    int deleteAllVisits();
+}
@@ -0,0 +1,23 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.KartMaintenanceEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface KartMaintenanceRepository extends JpaRepository<KartMaintenanceEntity, Long> {
+
+    @Query("SELECT m FROM KartMaintenanceEntity m WHERE m.startTime < :toTime AND m.endTime > :fromTime ORDER BY m.startTime")
+    List<KartMaintenanceEntity> findOverlapping(@Param("fromTime") LocalDateTime fromTime, @Param("toTime") LocalDateTime toTime);
+
+    // Solo cuentan los karts disponibles: uno fuera de servicio ya no está en la flota
+    @Query("SELECT m FROM KartMaintenanceEntity m WHERE m.startTime < :toTime AND m.endTime > :fromTime " +
+            "AND m.kartId IN (SELECT k.id FROM KartEntity k WHERE k.available = true)")
+    List<KartMaintenanceEntity> findOverlappingForAvailableKarts(@Param("fromTime") LocalDateTime fromTime,
+                                                                @Param("toTime") LocalDateTime toTime);
+}
@@ -1,12 +1,23 @@
 package com.example.demo.Repositories;
 
 import com.example.demo.Entities.KartEntity;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface KartRepository extends JpaRepository<KartEntity, Long> {
     List<KartEntity> findByAvailable (boolean available);
+    long countByAvailable(boolean available);
+
+    // Lee el kart bloqueando la fila hasta el commit, así dos ediciones simultáneas no parten del mismo estado
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT k FROM KartEntity k WHERE k.id = :id")
+    Optional<KartEntity> findByIdForUpdate(@Param("id") Long id);
 }
@@ -0,0 +1,38 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.MonthlyRevenueRollupEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MonthlyRevenueRollupRepository extends JpaRepository<MonthlyRevenueRollupEntity, Long> {
+    List<MonthlyRevenueRollupEntity> findByRevenueMonthBetween(String fromMonth, String toMonth);
+
+    // Suma atómica en la base de datos, así dos réplicas no pisan el valor de la otra
+    @Modifying
+    @Query("UPDATE MonthlyRevenueRollupEntity m SET m.total = m.total + :amount, m.reservations = m.reservations + :count " +
+            "WHERE m.revenueMonth = :month AND m.lapsOrTime = :lapsOrTime AND m.peopleRange = :peopleRange")
+    int addToRollup(@Param("month") String month, @Param("lapsOrTime") int lapsOrTime, @Param("peopleRange") String peopleRange,
+                    @Param("amount") double amount, @Param("count") long count);
+
+    // Crea la celda en cero dentro de la transacción de la reserva; si otra réplica ya la creó no hace nada
+    @Modifying
+    @Query(value = "INSERT INTO monthly_revenue_rollup (revenue_month, laps_or_time, people_range, total, reservations) " +
+            "VALUES (:month, :lapsOrTime, :peopleRange, 0, 0) " +
+            "ON CONFLICT (revenue_month, laps_or_time, people_range) DO NOTHING", nativeQuery = true)
+    int insertRollupIfMissing(@Param("month") String month, @Param("lapsOrTime") int lapsOrTime, @Param("peopleRange") String peopleRange);
+
+    @Modifying
+    @Query("DELETE FROM MonthlyRevenueRollupEntity m")
+    int deleteAllRollups();
+
+    // Bloquea escrituras de otras transacciones (las reservas esperan) y deja leer los reportes, hasta el commit
+    @Modifying
+    @Query(value = "LOCK TABLE monthly_revenue_rollup IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+}
@@ -0,0 +1,33 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.ReservationDayEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ReservationDayRepository extends JpaRepository<ReservationDayEntity, LocalDate> {
+    @Query("SELECT d.version FROM ReservationDayEntity d WHERE d.reservationDay = :day")
+    Long findVersion(@Param("day") LocalDate day);
+
+    @Modifying
+    @Query("UPDATE ReservationDayEntity d SET d.version = d.version + 1 WHERE d.reservationDay = :day")
+    int incrementVersion(@Param("day") LocalDate day);
+
+    // Avanza la versión solo si sigue siendo la que se leyó; 0 si otra transacción la cambió antes
+    @Modifying
+    @Query("UPDATE ReservationDayEntity d SET d.version = d.version + 1 WHERE d.reservationDay = :day AND d.version = :version")
+    int advanceVersion(@Param("day") LocalDate day, @Param("version") long version);
+
+    // Inserción directa (no merge): si otra transacción ya creó la fila, falla con la clave primaria
+    @Modifying
+    @Query("INSERT INTO ReservationDayEntity (reservationDay, version) VALUES (:day, 1)")
+    int insertFirstVersion(@Param("day") LocalDate day);
+
+    List<ReservationDayEntity> findByReservationDayBetween(LocalDate from, LocalDate to);
+}
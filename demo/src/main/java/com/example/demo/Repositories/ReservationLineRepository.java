@@ -0,0 +1,33 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.ReservationLineEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReservationLineRepository extends JpaRepository<ReservationLineEntity, Long> {
+    List<ReservationLineEntity> findByReservationIdOrderByPosition(Long reservationId);
+
+    @Query("SELECT COALESCE(SUM(l.total), 0) FROM ReservationLineEntity l WHERE l.reservationId = :reservationId")
+    double sumTotalByReservationId(@Param("reservationId") Long reservationId);
+
+    interface ReservationTotal {
+        Long getReservationId();
+        Double getTotal();
+    }
+
+    // Total de varias reservas en una sola consulta, para los listados por página
+    @Query("SELECT l.reservationId AS reservationId, SUM(l.total) AS total FROM ReservationLineEntity l " +
+            "WHERE l.reservationId IN :reservationIds GROUP BY l.reservationId")
+    List<ReservationTotal> sumTotalsByReservationIds(@Param("reservationIds") Collection<Long> reservationIds);
+
+    @Modifying
+    @Query("DELETE FROM ReservationLineEntity l WHERE l.reservationId = :reservationId")
+    int deleteByReservationId(@Param("reservationId") Long reservationId);
+}
@@ -0,0 +1,34 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.ReservationParticipantEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReservationParticipantRepository extends JpaRepository<ReservationParticipantEntity, Long> {
+
+    interface RutCount {
+        String getRut();
+        Long getReservations();
+    }
+
+    List<ReservationParticipantEntity> findByReservationId(Long reservationId);
+
+    // Reservas en las que participa cada RUT dentro del rango, resuelto con el índice (rut, reservationDate)
+    @Query("SELECT p.rut AS rut, COUNT(p) AS reservations FROM ReservationParticipantEntity p " +
+            "WHERE p.rut IN :ruts AND p.reservationDate BETWEEN :startDate AND :endDate GROUP BY p.rut")
+    List<RutCount> countReservationsByRutInRange(@Param("ruts") Collection<String> ruts,
+                                                 @Param("startDate") LocalDateTime startDate,
+                                                 @Param("endDate") LocalDateTime endDate);
+
+    @Modifying
+    @Query("DELETE FROM ReservationParticipantEntity p WHERE p.reservationId = :reservationId")
+    int deleteByReservationId(@Param("reservationId") Long reservationId);
+}
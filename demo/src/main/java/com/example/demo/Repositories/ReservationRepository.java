@@ -1,17 +1,103 @@
 package com.example.demo.Repositories;
 
 import com.example.demo.Entities.ReservationEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ReservationRepository extends JpaRepository<ReservationEntity, Long> {
+    // Total facturado en un mes para una categoría (vueltas/tiempo o cantidad de personas)
+    interface MonthlyIncome {
+        Integer getIncomeYear();
+        Integer getIncomeMonth();
+        Integer getCategory();
+        Double getTotal();
+    }
+
+    interface MonthlyRevenue {
+        Integer getIncomeYear();
+        Integer getIncomeMonth();
+        Integer getLapsOrTime();
+        Integer getNumberPeople();
+        Double getTotal();
+        Long getReservations();
+    }
+
     ReservationEntity findByReservationDate(LocalDateTime reservationDate);
 
     List<ReservationEntity> findByReservationDateBetween(LocalDateTime startDate, LocalDateTime endDate);
+
+    @Query("SELECT r FROM ReservationEntity r WHERE r.id > :afterId AND NOT EXISTS " +
+            "(SELECT l FROM ReservationLineEntity l WHERE l.reservationId = r.id) ORDER BY r.id")
+    List<ReservationEntity> findWithoutLinesAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT r FROM ReservationEntity r WHERE r.id > :afterId AND NOT EXISTS " +
+            "(SELECT p FROM ReservationParticipantEntity p WHERE p.reservationId = r.id) ORDER BY r.id")
+    List<ReservationEntity> findWithoutParticipantsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    List<ReservationEntity> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    // Ventana [from, to) del rack, ordenada por (reservationDate, id) para paginar con cursor
+    @Query("SELECT r FROM ReservationEntity r WHERE r.reservationDate >= :from AND r.reservationDate < :to " +
+            "ORDER BY r.reservationDate, r.id")
+    List<ReservationEntity> findInWindow(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Limit limit);
+
+    @Query("SELECT r FROM ReservationEntity r WHERE r.reservationDate >= :from AND r.reservationDate < :to " +
+            "AND (r.reservationDate > :afterDate OR (r.reservationDate = :afterDate AND r.id > :afterId)) " +
+            "ORDER BY r.reservationDate, r.id")
+    List<ReservationEntity> findInWindowAfter(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                              @Param("afterDate") LocalDateTime afterDate, @Param("afterId") Long afterId, Limit limit);
+
+    // Cursor de solo lectura sobre la ventana [from, to) para exportar: las filas llegan de a FETCH_SIZE
+    // desde la base de datos en vez de cargarse todas juntas. Debe consumirse dentro de una transacción.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM ReservationEntity r WHERE r.reservationDate >= :from AND r.reservationDate < :to " +
+            "ORDER BY r.reservationDate, r.id")
+    Stream<ReservationEntity> streamInWindow(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Historial de un cliente, del más reciente al más antiguo, vía el índice (rut, reservationDate) de participantes
+    @Query("SELECT r FROM ReservationParticipantEntity p, ReservationEntity r WHERE r.id = p.reservationId AND p.rut = :rut " +
+            "ORDER BY p.reservationDate DESC, p.reservationId DESC")
+    List<ReservationEntity> findLatestByParticipant(@Param("rut") String rut, Limit limit);
+
+    // Página siguiente: reservas anteriores a (beforeDate, beforeId) en el mismo orden
+    @Query("SELECT r FROM ReservationParticipantEntity p, ReservationEntity r WHERE r.id = p.reservationId AND p.rut = :rut " +
+            "AND (p.reservationDate < :beforeDate OR (p.reservationDate = :beforeDate AND p.reservationId < :beforeId)) " +
+            "ORDER BY p.reservationDate DESC, p.reservationId DESC")
+    List<ReservationEntity> findByParticipantBefore(@Param("rut") String rut, @Param("beforeDate") LocalDateTime beforeDate,
+                                                    @Param("beforeId") Long beforeId, Limit limit);
+
+    @Query("SELECT EXTRACT(YEAR FROM r.reservationDate) AS incomeYear, EXTRACT(MONTH FROM r.reservationDate) AS incomeMonth, " +
+            "r.lapsOrTime AS category, SUM(l.total) AS total " +
+            "FROM ReservationEntity r, ReservationLineEntity l WHERE l.reservationId = r.id " +
+            "AND r.reservationDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY EXTRACT(YEAR FROM r.reservationDate), EXTRACT(MONTH FROM r.reservationDate), r.lapsOrTime")
+    List<MonthlyIncome> sumIncomeByMonthAndLapsOrTime(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT EXTRACT(YEAR FROM r.reservationDate) AS incomeYear, EXTRACT(MONTH FROM r.reservationDate) AS incomeMonth, " +
+            "r.numberPeople AS category, SUM(l.total) AS total " +
+            "FROM ReservationEntity r, ReservationLineEntity l WHERE l.reservationId = r.id " +
+            "AND r.reservationDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY EXTRACT(YEAR FROM r.reservationDate), EXTRACT(MONTH FROM r.reservationDate), r.numberPeople")
+    List<MonthlyIncome> sumIncomeByMonthAndNumberPeople(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
+    // LEFT JOIN: una reserva sin líneas cuenta con total 0, igual que en el acumulado incremental
+    @Query("SELECT EXTRACT(YEAR FROM r.reservationDate) AS incomeYear, EXTRACT(MONTH FROM r.reservationDate) AS incomeMonth, " +
+            "r.lapsOrTime AS lapsOrTime, r.numberPeople AS numberPeople, COALESCE(SUM(l.total), 0.0) AS total, COUNT(DISTINCT r.id) AS reservations " +
+            "FROM ReservationEntity r LEFT JOIN ReservationLineEntity l ON l.reservationId = r.id " +
+            "GROUP BY EXTRACT(YEAR FROM r.reservationDate), EXTRACT(MONTH FROM r.reservationDate), r.lapsOrTime, r.numberPeople")
+    List<MonthlyRevenue> sumRevenueByMonthLapsAndNumberPeople();
 }
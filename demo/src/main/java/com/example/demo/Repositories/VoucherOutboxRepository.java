@@ -0,0 +1,30 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.VoucherOutboxEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface VoucherOutboxRepository extends JpaRepository<VoucherOutboxEntity, Long> {
+    VoucherOutboxEntity findByReservationId(Long reservationId);
+
+    // Pendientes cuyo próximo intento ya venció, y envíos tomados por una réplica que no terminó a tiempo
+    @Query("SELECT v FROM VoucherOutboxEntity v WHERE v.status IN ('PENDING', 'SENDING') AND v.nextAttemptAt <= :now ORDER BY v.nextAttemptAt")
+    List<VoucherOutboxEntity> findDue(@Param("now") LocalDateTime now, Limit limit);
+
+    // Toma la fila solo si nadie la modificó desde que se leyó (una sola réplica gana)
+    @Transactional
+    @Modifying
+    @Query("UPDATE VoucherOutboxEntity v SET v.status = 'SENDING', v.attempts = v.attempts + 1, v.nextAttemptAt = :leaseUntil " +
+            "WHERE v.id = :id AND v.status = :status AND v.nextAttemptAt = :nextAttemptAt")
+    int claim(@Param("id") Long id, @Param("status") String status, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+}
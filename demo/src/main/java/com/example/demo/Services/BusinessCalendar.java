@@ -0,0 +1,201 @@
+package com.example.demo.Services;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.MonthDay;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Calendario del local: tipo de día (hábil, fin de semana o feriado) y horario de atención.
+// Cada año se calcula una sola vez en una tabla indexada por día del año, así las consultas de precios,
+// validación de reservas y disponibilidad son lecturas de arreglo sin crear objetos.
+@Service
+public class BusinessCalendar {
+
+    public enum DayType { WEEKDAY, WEEKEND, HOLIDAY }
+
+    private static final DayType[] DAY_TYPES = DayType.values();
+
+    // Feriados que caen todos los años el mismo día (MM-dd)
+    @Value("${calendar.fixed-holidays:01-01,05-01,09-18,09-19,12-25}")
+    String fixedHolidays = "01-01,05-01,09-18,09-19,12-25";
+
+    // Feriados móviles o trasladados de un año puntual (yyyy-MM-dd)
+    @Value("${calendar.extra-holidays:}")
+    String extraHolidays = "";
+
+    // Feriados que dependen de la Pascua, en días respecto del domingo de Pascua (p. ej. -2,-1 para Viernes y
+    // Sábado Santo). Vacío por defecto: el calendario base solo tiene los feriados fijos.
+    @Value("${calendar.easter-offsets:}")
+    String easterOffsets = "";
+
+    @Value("${calendar.weekday-opening:14:00}")
+    String weekdayOpening = "14:00";
+
+    @Value("${calendar.weekend-opening:10:00}")
+    String weekendOpening = "10:00";
+
+    @Value("${calendar.closing:22:00}")
+    String closing = "22:00";
+
+    // Años que se mantienen en memoria: de FIRST_YEAR a FIRST_YEAR + YEARS - 1
+    static final int FIRST_YEAR = 2000;
+    static final int YEARS = 200;
+
+    private final AtomicReferenceArray<YearTable> years = new AtomicReferenceArray<>(YEARS);
+
+    private volatile Rules rules;
+
+    // Por día del año (0..365): tipo de día y minutos de apertura y cierre
+    record YearTable(int year, byte[] dayTypes, short[] openingMinutes, short[] closingMinutes) {
+    }
+
+    private record Rules(Set<MonthDay> fixed, Set<LocalDate> extra, int[] easterOffsets,
+                         int weekdayOpening, int weekendOpening, int closing) {
+    }
+
+    // Se leen los feriados configurados y se dejan listos el año en curso y el siguiente
+    @PostConstruct
+    public void load() {
+        rules = parseRules();
+        for (int i = 0; i < YEARS; i++) {
+            years.set(i, null);
+        }
+        int current = Year.now().getValue();
+        table(current);
+        table(current + 1);
+    }
+
+    public DayType dayType(LocalDate date) {
+        return DAY_TYPES[table(date.getYear()).dayTypes()[date.getDayOfYear() - 1]];
+    }
+
+    // Fin de semana o feriado: días con tarifa y horario de fin de semana
+    public boolean isWeekendOrHoliday(LocalDate date) {
+        return table(date.getYear()).dayTypes()[date.getDayOfYear() - 1] != DayType.WEEKDAY.ordinal();
+    }
+
+    public int openingMinute(LocalDate date) {
+        return table(date.getYear()).openingMinutes()[date.getDayOfYear() - 1];
+    }
+
+    public int closingMinute(LocalDate date) {
+        return table(date.getYear()).closingMinutes()[date.getDayOfYear() - 1];
+    }
+
+    // [startMinute, endMinute) cabe dentro del horario de atención del día
+    public boolean isOpen(LocalDate date, int startMinute, int endMinute) {
+        YearTable table = table(date.getYear());
+        int index = date.getDayOfYear() - 1;
+        return startMinute >= table.openingMinutes()[index] && endMinute <= table.closingMinutes()[index];
+    }
+
+    YearTable table(int year) {
+        int slot = year - FIRST_YEAR;
+        if (slot < 0 || slot >= YEARS) {
+            return build(year, rules());
+        }
+        YearTable table = years.get(slot);
+        if (table == null) {
+            table = build(year, rules());
+            years.compareAndSet(slot, null, table);
+        }
+        return table;
+    }
+
+    private Rules rules() {
+        Rules current = rules;
+        if (current == null) {
+            current = parseRules();
+            rules = current;
+        }
+        return current;
+    }
+
+    private Rules parseRules() {
+        Set<MonthDay> fixed = new HashSet<>();
+        for (String value : split(fixedHolidays)) {
+            fixed.add(MonthDay.parse("--" + value));
+        }
+        Set<LocalDate> extra = new HashSet<>();
+        for (String value : split(extraHolidays)) {
+            extra.add(LocalDate.parse(value));
+        }
+        int[] offsets = split(easterOffsets).stream().mapToInt(Integer::parseInt).toArray();
+        return new Rules(fixed, extra, offsets, minuteOf(weekdayOpening), minuteOf(weekendOpening), minuteOf(closing));
+    }
+
+    private static YearTable build(int year, Rules rules) {
+        int length = Year.of(year).length();
+        byte[] types = new byte[length];
+        short[] opening = new short[length];
+        short[] closingMinutes = new short[length];
+
+        Set<LocalDate> easterHolidays = new HashSet<>();
+        LocalDate easter = easterSunday(year);
+        for (int offset : rules.easterOffsets()) {
+            easterHolidays.add(easter.plusDays(offset));
+        }
+
+        LocalDate date = LocalDate.ofYearDay(year, 1);
+        for (int i = 0; i < length; i++, date = date.plusDays(1)) {
+            DayType type;
+            if (rules.fixed().contains(MonthDay.from(date)) || rules.extra().contains(date) || easterHolidays.contains(date)) {
+                type = DayType.HOLIDAY;
+            } else if (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                type = DayType.WEEKEND;
+            } else {
+                type = DayType.WEEKDAY;
+            }
+            types[i] = (byte) type.ordinal();
+            opening[i] = (short) (type == DayType.WEEKDAY ? rules.weekdayOpening() : rules.weekendOpening());
+            closingMinutes[i] = (short) rules.closing();
+        }
+        return new YearTable(year, types, opening, closingMinutes);
+    }
+
+    // Domingo de Pascua (algoritmo anónimo gregoriano)
+    static LocalDate easterSunday(int year) {
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int month = (h + l - 7 * m + 114) / 31;
+        int day = (h + l - 7 * m + 114) % 31 + 1;
+        return LocalDate.of(year, month, day);
+    }
+
+    private static List<String> split(String values) {
+        List<String> result = new ArrayList<>();
+        if (values != null) {
+            Arrays.stream(values.split(","))
+                    .map(String::trim)
+                    .filter(v -> !v.isEmpty())
+                    .forEach(result::add);
+        }
+        return result;
+    }
+
+    private static int minuteOf(String time) {
+        LocalTime parsed = LocalTime.parse(time);
+        return parsed.getHour() * 60 + parsed.getMinute();
+    }
+}
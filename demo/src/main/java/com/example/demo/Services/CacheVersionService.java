@@ -0,0 +1,31 @@
+package com.example.demo.Services;
+
+import com.example.demo.Repositories.CacheVersionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+// Señal de cambio entre réplicas (tabla cache_version): quien modifica los datos incrementa la versión
+// y cada réplica compara periódicamente la versión con la última que vio.
+@Service
+public class CacheVersionService {
+    @Autowired
+    CacheVersionRepository cacheVersionRepository;
+
+    public void bump(String cacheName) {
+        if (cacheVersionRepository.bumpVersion(cacheName) == 0) {
+            try {
+                cacheVersionRepository.insertVersion(cacheName);
+            } catch (DataIntegrityViolationException e) {
+                // Otra réplica creó la fila
+            }
+            cacheVersionRepository.bumpVersion(cacheName);
+        }
+    }
+
+    // 0 mientras nadie haya modificado los datos
+    public long getVersion(String cacheName) {
+        Long version = cacheVersionRepository.findVersion(cacheName);
+        return version == null ? 0 : version;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.CustomerEntity;
+import com.example.demo.Repositories.CustomerRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+
+// Clientes por RUT y por id, acotados por tamaño y vencidos a los ttl-seconds. Los RUT sin cliente no se
+// guardan, así un cliente recién registrado en otra réplica se encuentra de inmediato.
+// Al editar o eliminar un cliente se incrementa la fila "customer" de cache_version; cada réplica la
+// consulta cada poll-ms y vacía su caché cuando cambia.
+@Service
+public class CustomerCache {
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    CacheVersionService cacheVersionService;
+
+    @Value("${customer.cache.max-size:10000}")
+    long maxSize = 10000;
+
+    @Value("${customer.cache.ttl-seconds:600}")
+    long ttlSeconds = 600;
+
+    static final String CACHE_NAME = "customer";
+
+    // Máximo de RUT por consulta IN
+    private static final int LOOKUP_BATCH = 1000;
+
+    private Cache<String, CustomerEntity> byRut;
+    private Cache<Long, CustomerEntity> byId;
+
+    // Última versión leída de cache_version; -1 antes de la primera consulta
+    private volatile long seenVersion = -1;
+
+    private synchronized Cache<String, CustomerEntity> byRut() {
+        if (byRut == null) {
+            byRut = newCache();
+        }
+        return byRut;
+    }
+
+    private synchronized Cache<Long, CustomerEntity> byId() {
+        if (byId == null) {
+            byId = newCache();
+        }
+        return byId;
+    }
+
+    private <K> Cache<K, CustomerEntity> newCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    public CustomerEntity findByRut(String rut) {
+        if (rut == null) {
+            return null;
+        }
+        return byRut().get(rut, key -> {
+            CustomerEntity customer = customerRepository.findByRut(key);
+            if (customer != null && customer.getId() != null) {
+                byId().put(customer.getId(), customer);
+            }
+            return customer;
+        });
+    }
+
+    public Optional<CustomerEntity> findById(Long id) {
+        return Optional.ofNullable(byId().get(id, key -> {
+            CustomerEntity customer = customerRepository.findById(key).orElse(null);
+            if (customer != null && customer.getRut() != null) {
+                byRut().put(customer.getRut(), customer);
+            }
+            return customer;
+        }));
+    }
+
+    // Los RUT que no están en caché se resuelven juntos con findAllByRutIn
+    public Map<String, CustomerEntity> findAllByRut(Collection<String> ruts) {
+        Set<String> keys = new LinkedHashSet<>(ruts);
+        keys.remove(null);
+        return byRut().getAll(keys, missing -> {
+            List<String> pending = new ArrayList<>(missing);
+            Map<String, CustomerEntity> loaded = new HashMap<>();
+            for (int i = 0; i < pending.size(); i += LOOKUP_BATCH) {
+                for (CustomerEntity customer : customerRepository.findAllByRutIn(pending.subList(i, Math.min(i + LOOKUP_BATCH, pending.size())))) {
+                    loaded.put(customer.getRut(), customer);
+                    if (customer.getId() != null) {
+                        byId().put(customer.getId(), customer);
+                    }
+                }
+            }
+            return loaded;
+        });
+    }
+
+    public Map<String, String> getNames(Collection<String> ruts) {
+        Map<String, String> names = new HashMap<>();
+        findAllByRut(ruts).forEach((rut, customer) -> names.put(rut, customer.getName()));
+        return names;
+    }
+
+    // Al editar o eliminar un cliente: se descarta aquí y se avisa a las otras réplicas
+    public void invalidate(Long id, String rut) {
+        evict(id, rut);
+        cacheVersionService.bump(CACHE_NAME);
+    }
+
+    private void evict(Long id, String rut) {
+        if (id != null) {
+            CustomerEntity previous = byId().getIfPresent(id);
+            if (previous != null && previous.getRut() != null) {
+                byRut().invalidate(previous.getRut());
+            }
+            byId().invalidate(id);
+        }
+        if (rut != null) {
+            CustomerEntity previous = byRut().getIfPresent(rut);
+            if (previous != null && previous.getId() != null) {
+                byId().invalidate(previous.getId());
+            }
+            byRut().invalidate(rut);
+        }
+    }
+
+    public void invalidateAll() {
+        byRut().invalidateAll();
+        byId().invalidateAll();
+    }
+
+    @Scheduled(fixedDelayString = "${customer.cache.poll-ms:2000}")
+    public void pollChanges() {
+        long current = cacheVersionService.getVersion(CACHE_NAME);
+        if (current != seenVersion) {
+            invalidateAll();
+            seenVersion = current;
+        }
+    }
+
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        stats.put("byRut", statsOf(byRut()));
+        stats.put("byId", statsOf(byId()));
+        return stats;
+    }
+
+    private static Map<String, Object> statsOf(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("size", cache.estimatedSize());
+        values.put("hits", stats.hitCount());
+        values.put("misses", stats.missCount());
+        values.put("hitRate", stats.hitRate());
+        values.put("evictions", stats.evictionCount());
+        return values;
+    }
+}
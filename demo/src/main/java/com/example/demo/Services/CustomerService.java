@@ -13,9 +13,12 @@ public class CustomerService {
     @Autowired
     CustomerRepository customerRepository;
 
+    @Autowired
+    CustomerCache customerCache;
+
     public CustomerEntity saveUser(CustomerEntity customer) {
         // CustomerEntity existingUserEmail = customerRepository.findByEmail(customer.getEmail());
-        CustomerEntity existingUserRut = customerRepository.findByRut(customer.getRut());
+        CustomerEntity existingUserRut = customerCache.findByRut(customer.getRut());
         // if (existingUserEmail != null) {
             // return null; // User already exists
         // }
@@ -31,16 +34,20 @@ public class CustomerService {
     }
 
     public CustomerEntity getUserById(Long id) {
-        return customerRepository.findById(id).get();
+        return customerCache.findById(id).get();
     }
 
     public CustomerEntity updateUser(CustomerEntity user) {
-        return customerRepository.save(user);
+        CustomerEntity updated = customerRepository.save(user);
+        // El RUT pudo cambiar: se descartan el anterior (por id) y el nuevo
+        customerCache.invalidate(user.getId(), user.getRut());
+        return updated;
     }
 
     public boolean deleteUser(Long id) throws Exception {
         try {
             customerRepository.deleteById(id);
+            customerCache.invalidate(id, null);
             return true;
         } catch (Exception e) {
             throw new Exception(e.getMessage());
@@ -48,7 +55,7 @@ public class CustomerService {
     }
 
     public CustomerEntity getUserByRut(String rut) {
-        return customerRepository.findByRut(rut);
+        return customerCache.findByRut(rut);
     }
 
     public CustomerEntity login(CustomerEntity user) {
@@ -0,0 +1,166 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.CustomerVisitEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.CustomerVisitRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Contador de visitas por cliente y día (tabla customer_visit). Reemplaza el recorrido de todas las reservas
+// del mes al calcular el descuento por cliente frecuente.
+@Service
+public class CustomerVisitService {
+    @Autowired
+    CustomerVisitRepository customerVisitRepository;
+
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    // Las cotizaciones leen las visitas de una caché corta: durante una llamada se cotiza varias veces
+    // lo mismo y unos segundos de atraso no cambian el descuento. Las reservas leen siempre la tabla.
+    @Value("${customer.visits.quote-ttl-seconds:30}")
+    long quoteTtlSeconds = 30;
+
+    @Value("${customer.visits.quote-max-size:10000}")
+    long quoteMaxSize = 10000;
+
+    private static final int REBUILD_BATCH = 500;
+
+    private record VisitKey(String rut, LocalDate day) {
+    }
+
+    private Cache<VisitKey, Long> recentVisits;
+
+    private synchronized Cache<VisitKey, Long> recentVisits() {
+        if (recentVisits == null) {
+            recentVisits = Caffeine.newBuilder()
+                    .maximumSize(quoteMaxSize)
+                    .expireAfterWrite(Duration.ofSeconds(quoteTtlSeconds))
+                    .build();
+        }
+        return recentVisits;
+    }
+
+    // Visitas de cada cliente desde el inicio del mes hasta el día de la reserva
+    public Map<String, Long> countVisitsThisMonth(Collection<String> ruts, LocalDateTime reservationDate) {
+        Map<String, Long> visits = new HashMap<>();
+        if (ruts.isEmpty()) {
+            return visits;
+        }
+        LocalDate day = reservationDate.toLocalDate();
+        for (CustomerVisitRepository.RutVisits row : customerVisitRepository.sumVisitsByRut(ruts, day.withDayOfMonth(1), day)) {
+            visits.put(row.getRut(), row.getVisits());
+        }
+        return visits;
+    }
+
+    // Igual que countVisitsThisMonth, pero reutiliza los conteos leídos hace menos de quote-ttl-seconds
+    public Map<String, Long> countVisitsThisMonthCached(Collection<String> ruts, LocalDateTime reservationDate) {
+        LocalDate day = reservationDate.toLocalDate();
+        Set<VisitKey> keys = new LinkedHashSet<>();
+        for (String rut : ruts) {
+            if (rut != null) {
+                keys.add(new VisitKey(rut, day));
+            }
+        }
+        Map<VisitKey, Long> cached = recentVisits().getAll(keys, missing -> {
+            List<String> pending = new ArrayList<>();
+            missing.forEach(key -> pending.add(key.rut()));
+            Map<String, Long> counted = countVisitsThisMonth(pending, reservationDate);
+            Map<VisitKey, Long> loaded = new HashMap<>();
+            for (String rut : pending) {
+                loaded.put(new VisitKey(rut, day), counted.getOrDefault(rut, 0L));
+            }
+            return loaded;
+        });
+        Map<String, Long> visits = new HashMap<>();
+        cached.forEach((key, count) -> visits.put(key.rut(), count));
+        return visits;
+    }
+
+    // Suma (delta = 1) o resta (delta = -1) una visita a cada participante de la reserva
+    public void recordVisits(ReservationEntity reservation, int delta) {
+        if (reservation == null || reservation.getReservationDate() == null) {
+            return;
+        }
+        // Un cliente que es dueño y participante cuenta una sola visita
+        Set<String> ruts = new LinkedHashSet<>(ReservationService.participantRuts(reservation));
+        ruts.remove(null);
+        if (ruts.isEmpty()) {
+            return;
+        }
+        LocalDate day = reservation.getReservationDate().toLocalDate();
+        // Los conteos cacheados que incluyen este día son los de los mismos clientes desde ese día hasta fin de mes.
+        // Se descartan después del commit, para que una cotización entremedio no vuelva a cachear el valor anterior.
+        List<VisitKey> stale = new ArrayList<>();
+        for (LocalDate d = day; d.getMonth() == day.getMonth(); d = d.plusDays(1)) {
+            for (String rut : ruts) {
+                stale.add(new VisitKey(rut, d));
+            }
+        }
+        runAfterCommit(() -> recentVisits().invalidateAll(stale));
+
+        if (delta > 0) {
+            // Ordenados, para que dos reservas con clientes en común tomen las filas en el mismo orden
+            customerVisitRepository.upsertVisits(ruts.stream().sorted().toArray(String[]::new), day, delta);
+        } else {
+            customerVisitRepository.addVisits(ruts, day, delta);
+        }
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Recalcula los contadores desde las reservas; devuelve la cantidad de filas generadas
+    @Transactional
+    public int rebuild() {
+        customerVisitRepository.deleteAllVisits();
+
+        Map<String, CustomerVisitEntity> visits = new LinkedHashMap<>();
+        long afterId = 0;
+        List<ReservationEntity> batch;
+        do {
+            batch = reservationRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(REBUILD_BATCH));
+            for (ReservationEntity reservation : batch) {
+                afterId = reservation.getId();
+                if (reservation.getReservationDate() == null) {
+                    continue;
+                }
+                LocalDate day = reservation.getReservationDate().toLocalDate();
+                for (String rut : new LinkedHashSet<>(ReservationService.participantRuts(reservation))) {
+                    if (rut == null) {
+                        continue;
+                    }
+                    CustomerVisitEntity visit = visits.computeIfAbsent(rut + "|" + day, k -> new CustomerVisitEntity(rut, day, 0));
+                    visit.setVisits(visit.getVisits() + 1);
+                }
+            }
+        } while (batch.size() == REBUILD_BATCH);
+
+        customerVisitRepository.saveAll(visits.values());
+        return visits.size();
+    }
+}
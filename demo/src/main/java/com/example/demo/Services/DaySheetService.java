@@ -0,0 +1,173 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.CustomerEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.ReservationDayRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import com.lowagie.text.Document;
+import com.lowagie.text.Font;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Hoja de pista para los comisarios: todas las reservas de un día con horario, responsable, participantes y karts.
+// Los nombres se resuelven en una sola consulta y la tabla se va agregando al documento por tramos, así las páginas
+// terminadas se escriben a la salida sin esperar al resto. La hoja de mañana queda generada de antemano y se rehace
+// cuando cambia la versión del día (la misma que avanza con cada reserva, modificación o eliminación).
+@Service
+public class DaySheetService {
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    @Autowired
+    ReservationDayRepository reservationDayRepository;
+
+    @Autowired
+    CustomerCache customerCache;
+
+    // Filas que se acumulan antes de pasar la tabla al documento
+    static final int FLUSH_ROWS = 40;
+
+    private static final String[] HEADERS = {"Horario", "Reserva", "Responsable", "Participantes", "Vueltas / Tiempo", "Karts"};
+    private static final float[] WIDTHS = {1.4f, 1.1f, 2.2f, 4f, 1.2f, 0.8f};
+
+    private static final Font TITLE_FONT = new Font(Font.HELVETICA, 14, Font.BOLD);
+    private static final Font HEADER_FONT = new Font(Font.HELVETICA, 10, Font.BOLD);
+    private static final Font CELL_FONT = new Font(Font.HELVETICA, 10);
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    record Sheet(LocalDate day, long version, byte[] pdf) {
+    }
+
+    private final AtomicReference<Sheet> prerendered = new AtomicReference<>();
+
+    // Hoja ya generada del día, si sigue vigente; null si hay que generarla
+    public byte[] cached(LocalDate day) {
+        Sheet sheet = prerendered.get();
+        return sheet != null && sheet.day().equals(day) && sheet.version() == version(day) ? sheet.pdf() : null;
+    }
+
+    // Durante la noche deja lista la hoja de mañana; el resto del día solo la rehace si el día cambió
+    @Scheduled(fixedDelayString = "${daysheet.poll-ms:60000}", initialDelayString = "${daysheet.poll-ms:60000}")
+    public void prerenderTomorrow() throws IOException {
+        refresh(LocalDate.now().plusDays(1));
+    }
+
+    void refresh(LocalDate day) throws IOException {
+        // La versión se lee antes de generar: si entra una reserva mientras tanto, la próxima pasada la rehace
+        long version = version(day);
+        Sheet current = prerendered.get();
+        if (current != null && current.day().equals(day) && current.version() == version) {
+            return;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(day, out);
+        prerendered.set(new Sheet(day, version, out.toByteArray()));
+    }
+
+    public void write(LocalDate day, OutputStream out) throws IOException {
+        List<ReservationEntity> reservations = new ArrayList<>(reservationRepository.findByReservationDateBetween(
+                day.atStartOfDay(), day.atTime(23, 59, 59)));
+        reservations.sort(Comparator.comparing(ReservationEntity::getReservationDate).thenComparing(ReservationEntity::getId,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+
+        Set<String> ruts = new LinkedHashSet<>();
+        for (ReservationEntity reservation : reservations) {
+            ruts.addAll(ReservationService.participantRuts(reservation));
+        }
+        Map<String, CustomerEntity> customers = customerCache.findAllByRut(ruts);
+
+        Document document = new Document(PageSize.A4, 36, 36, 36, 36);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        writer.setCloseStream(false);
+        document.open();
+
+        int karts = reservations.stream().mapToInt(ReservationEntity::getNumberPeople).sum();
+        document.add(new Paragraph("Hoja de pista - " + day.format(DAY_FORMAT), TITLE_FONT));
+        document.add(new Paragraph(reservations.size() + " reservas, " + karts + " karts en total", CELL_FONT));
+        document.add(new Paragraph(" "));
+
+        if (reservations.isEmpty()) {
+            document.add(new Paragraph("Sin reservas para este día.", CELL_FONT));
+            document.close();
+            return;
+        }
+
+        PdfPTable table = new PdfPTable(WIDTHS);
+        table.setWidthPercentage(100);
+        table.setHeaderRows(1);
+        // Tabla incompleta: cada document.add escribe las filas acumuladas y las suelta
+        table.setComplete(false);
+        for (String header : HEADERS) {
+            PdfPCell cell = new PdfPCell(new Phrase(header, HEADER_FONT));
+            cell.setBackgroundColor(Color.LIGHT_GRAY);
+            table.addCell(cell);
+        }
+
+        int rows = 0;
+        for (ReservationEntity reservation : reservations) {
+            addRow(table, reservation, customers);
+            if (++rows % FLUSH_ROWS == 0) {
+                document.add(table);
+            }
+        }
+        table.setComplete(true);
+        document.add(table);
+        document.close();
+    }
+
+    private static void addRow(PdfPTable table, ReservationEntity reservation, Map<String, CustomerEntity> customers) {
+        LocalDateTime start = reservation.getReservationDate();
+        LocalDateTime end = start.plusMinutes(ReservationService.durationMinutes(reservation.getLapsOrTime()));
+
+        // El grupo completo, con el responsable primero
+        StringBuilder participants = new StringBuilder();
+        for (String rut : new LinkedHashSet<>(ReservationService.participantRuts(reservation))) {
+            if (!participants.isEmpty()) {
+                participants.append('\n');
+            }
+            participants.append(name(customers, rut));
+        }
+
+        table.addCell(new Phrase(start.format(TIME_FORMAT) + " - " + end.format(TIME_FORMAT), CELL_FONT));
+        table.addCell(new Phrase("RES-" + reservation.getId(), CELL_FONT));
+        table.addCell(new Phrase(name(customers, reservation.getRutUser()), CELL_FONT));
+        table.addCell(new Phrase(participants.toString(), CELL_FONT));
+        table.addCell(new Phrase(String.valueOf(reservation.getLapsOrTime()), CELL_FONT));
+        table.addCell(new Phrase(String.valueOf(reservation.getNumberPeople()), CELL_FONT));
+    }
+
+    // Nombre del cliente, o el RUT si no está registrado
+    private static String name(Map<String, CustomerEntity> customers, String rut) {
+        CustomerEntity customer = customers.get(rut);
+        return customer == null || customer.getName() == null ? String.valueOf(rut) : customer.getName();
+    }
+
+    private long version(LocalDate day) {
+        Long version = reservationDayRepository.findVersion(day);
+        return version == null ? 0L : version;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.ReservationLineRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+// Reportes de ingresos en Excel. Se usa SXSSF: solo las últimas ROW_WINDOW filas quedan en memoria y el resto
+// se baja a un archivo temporal comprimido, así que el detalle por reserva de varios años no llena el heap.
+// El detalle se lee por páginas con el mismo cursor (fecha, id) del rack.
+@Service
+public class IncomeReportExporter {
+    @Autowired
+    ReservationService reservationService;
+
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    @Autowired
+    ReservationLineRepository reservationLineRepository;
+
+    static final int ROW_WINDOW = 100;
+    static final int PAGE_SIZE = 500;
+
+    // Rango máximo de un reporte
+    static final int MAX_YEARS = 10;
+
+    public static final String CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    // Resumen ya calculado más la categoría que corresponde a cada reserva del detalle
+    public record Report(LocalDate startDate, LocalDate endDate, String categoryTitle,
+                         Map<String, Map<String, Double>> summary, Function<ReservationEntity, String> category) {
+    }
+
+    // El resumen se calcula al pedir el reporte, así un rango inválido se rechaza antes de empezar la respuesta
+    public Report lapsOrTimeReport(LocalDate startDate, LocalDate endDate) {
+        validateRange(startDate, endDate);
+        return new Report(startDate, endDate, "Vueltas o tiempo", reservationService.incomeFromLapsOrTime(startDate, endDate),
+                r -> r.getLapsOrTime() + " vueltas o máx. " + r.getLapsOrTime() + " minutos");
+    }
+
+    public Report personsReport(LocalDate startDate, LocalDate endDate) {
+        validateRange(startDate, endDate);
+        return new Report(startDate, endDate, "Personas", reservationService.incomePerPerson(startDate, endDate),
+                r -> RevenueRollupService.peopleRange(r.getNumberPeople()));
+    }
+
+    public void write(Report report, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            CellStyle header = headerStyle(workbook);
+            CellStyle money = workbook.createCellStyle();
+            money.setDataFormat(workbook.createDataFormat().getFormat("#,##0"));
+            CellStyle date = workbook.createCellStyle();
+            date.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd hh:mm"));
+
+            writeSummary(workbook.createSheet("Resumen"), report, header, money);
+            writeDetail(workbook.createSheet("Detalle"), report, header, money, date);
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void writeSummary(SXSSFSheet sheet, Report report, CellStyle header, CellStyle money) {
+        List<String> columns = new ArrayList<>();
+        report.summary().values().stream().findFirst().ifPresent(row -> columns.addAll(row.keySet()));
+
+        Row title = sheet.createRow(0);
+        cell(title, 0, report.categoryTitle(), header);
+        for (int c = 0; c < columns.size(); c++) {
+            cell(title, c + 1, columns.get(c), header);
+        }
+        int r = 1;
+        for (Map.Entry<String, Map<String, Double>> entry : report.summary().entrySet()) {
+            Row row = sheet.createRow(r++);
+            cell(row, 0, entry.getKey(), null);
+            for (int c = 0; c < columns.size(); c++) {
+                Cell cell = row.createCell(c + 1);
+                cell.setCellValue(entry.getValue().getOrDefault(columns.get(c), 0.0));
+                cell.setCellStyle(money);
+            }
+        }
+    }
+
+    private void writeDetail(SXSSFSheet sheet, Report report, CellStyle header, CellStyle money, CellStyle date) {
+        String[] columns = {"Id", "Fecha", "Vueltas o tiempo", "Personas", report.categoryTitle(), "RUT", "Cliente", "Total"};
+        Row title = sheet.createRow(0);
+        for (int c = 0; c < columns.length; c++) {
+            cell(title, c, columns[c], header);
+        }
+
+        LocalDateTime from = report.startDate().atStartOfDay();
+        LocalDateTime to = report.endDate().plusDays(1).atStartOfDay();
+        int r = 1;
+        List<ReservationEntity> page = reservationRepository.findInWindow(from, to, Limit.of(PAGE_SIZE));
+        while (!page.isEmpty()) {
+            Map<String, String> names = reservationService.resolveOwnerNames(page);
+            Map<Long, Double> totals = new HashMap<>();
+            for (ReservationLineRepository.ReservationTotal total : reservationLineRepository.sumTotalsByReservationIds(
+                    page.stream().map(ReservationEntity::getId).toList())) {
+                totals.put(total.getReservationId(), total.getTotal());
+            }
+
+            for (ReservationEntity reservation : page) {
+                Row row = sheet.createRow(r++);
+                row.createCell(0).setCellValue(reservation.getId());
+                Cell when = row.createCell(1);
+                when.setCellValue(reservation.getReservationDate());
+                when.setCellStyle(date);
+                row.createCell(2).setCellValue(reservation.getLapsOrTime());
+                row.createCell(3).setCellValue(reservation.getNumberPeople());
+                cell(row, 4, report.category().apply(reservation), null);
+                cell(row, 5, reservation.getRutUser(), null);
+                cell(row, 6, names.getOrDefault(reservation.getRutUser(), ""), null);
+                Cell total = row.createCell(7);
+                total.setCellValue(totals.getOrDefault(reservation.getId(), 0.0));
+                total.setCellStyle(money);
+            }
+
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            ReservationEntity last = page.get(page.size() - 1);
+            page = reservationRepository.findInWindowAfter(from, to, last.getReservationDate(), last.getId(), Limit.of(PAGE_SIZE));
+        }
+    }
+
+    private static void validateRange(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("La fecha de término debe ser posterior a la de inicio.");
+        }
+        if (startDate.plusYears(MAX_YEARS).isBefore(endDate)) {
+            throw new IllegalArgumentException("El rango no puede superar los " + MAX_YEARS + " años.");
+        }
+    }
+
+    private static CellStyle headerStyle(Workbook workbook) {
+        Font bold = workbook.createFont();
+        bold.setBold(true);
+        CellStyle style = workbook.createCellStyle();
+        style.setFont(bold);
+        return style;
+    }
+
+    private static void cell(Row row, int column, String value, CellStyle style) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(value);
+        if (style != null) {
+            cell.setCellStyle(style);
+        }
+    }
+}
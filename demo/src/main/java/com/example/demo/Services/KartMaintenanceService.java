@@ -0,0 +1,60 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.KartMaintenanceEntity;
+import com.example.demo.Repositories.KartMaintenanceRepository;
+import com.example.demo.Repositories.KartRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Ventanas de mantención de karts. Cada alta o baja invalida los días que toca en ReservationScheduleIndex,
+// que descuenta esos karts de la capacidad de cada tramo.
+@Service
+public class KartMaintenanceService {
+    @Autowired
+    KartMaintenanceRepository kartMaintenanceRepository;
+
+    @Autowired
+    KartRepository kartRepository;
+
+    @Autowired
+    ReservationScheduleIndex reservationScheduleIndex;
+
+    @Transactional
+    public KartMaintenanceEntity scheduleMaintenance(KartMaintenanceEntity maintenance) {
+        if (maintenance.getStartTime() == null || maintenance.getEndTime() == null
+                || !maintenance.getStartTime().isBefore(maintenance.getEndTime())) {
+            throw new IllegalArgumentException("La mantención debe terminar después de empezar.");
+        }
+        if (maintenance.getKartId() == null || !kartRepository.existsById(maintenance.getKartId())) {
+            throw new IllegalArgumentException("El kart no existe.");
+        }
+        KartMaintenanceEntity saved = kartMaintenanceRepository.save(maintenance);
+        recordChange(saved);
+        return saved;
+    }
+
+    public List<KartMaintenanceEntity> getMaintenance(LocalDateTime from, LocalDateTime to) {
+        return kartMaintenanceRepository.findOverlapping(from, to);
+    }
+
+    @Transactional
+    public void deleteMaintenance(Long id) {
+        kartMaintenanceRepository.findById(id).ifPresent(maintenance -> {
+            kartMaintenanceRepository.delete(maintenance);
+            recordChange(maintenance);
+        });
+    }
+
+    // Un fin a medianoche no toca el día siguiente
+    private void recordChange(KartMaintenanceEntity maintenance) {
+        LocalDate last = maintenance.getEndTime().minusNanos(1).toLocalDate();
+        for (LocalDate day = maintenance.getStartTime().toLocalDate(); !day.isAfter(last); day = day.plusDays(1)) {
+            reservationScheduleIndex.recordChange(day);
+        }
+    }
+}
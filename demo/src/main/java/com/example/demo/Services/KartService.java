@@ -3,33 +3,116 @@ package com.example.demo.Services;
 import com.example.demo.Entities.KartEntity;
 import com.example.demo.Repositories.KartRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class KartService {
     @Autowired
     KartRepository kartRepository;
 
+    @Autowired
+    CacheVersionService cacheVersionService;
+
+    static final String CACHE_NAME = "kart";
+
+    // Karts disponibles, para validar reservas sin leer la tabla. -1 mientras no se haya contado.
+    // Se recuenta tras cada alta, edición o baja; las otras réplicas recuentan al ver cambiar la versión "kart".
+    private final AtomicInteger availableKarts = new AtomicInteger(-1);
+
+    private volatile long seenVersion = -1;
+
+    // Cambia cada vez que cambia la disponibilidad de algún kart (aquí o en otra réplica)
+    private final AtomicLong availabilityVersion = new AtomicLong();
+
+    // Lectura del estado anterior, guardado y ajuste del contador en una sola transacción
+    @Transactional
     public KartEntity saveKart(KartEntity kart) {
-        return kartRepository.save(kart);
+        boolean wasAvailable = wasAvailable(kart.getId());
+        KartEntity saved = kartRepository.save(kart);
+        availabilityChanged(wasAvailable, saved.isAvailable());
+        return saved;
     }
 
     public List<KartEntity> getKartsByAvailability(boolean availability) {
         return kartRepository.findByAvailable(availability);
     }
 
+    @Transactional
     public KartEntity updateKart(KartEntity kart) {
-        return kartRepository.save(kart);
+        boolean wasAvailable = wasAvailable(kart.getId());
+        KartEntity updated = kartRepository.save(kart);
+        availabilityChanged(wasAvailable, updated.isAvailable());
+        return updated;
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public boolean deleteKart(Long id) throws Exception {
         try {
+            boolean wasAvailable = wasAvailable(id);
             kartRepository.deleteById(id);
+            availabilityChanged(wasAvailable, false);
             return true;
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
     }
+
+    public int countAvailableKarts() {
+        int count = availableKarts.get();
+        return count >= 0 ? count : resyncAvailableKarts();
+    }
+
+    public int resyncAvailableKarts() {
+        int count = (int) kartRepository.countByAvailable(true);
+        availableKarts.set(count);
+        availabilityVersion.incrementAndGet();
+        return count;
+    }
+
+    @Scheduled(fixedDelayString = "${kart.counter.poll-ms:2000}")
+    public void pollChanges() {
+        long current = cacheVersionService.getVersion(CACHE_NAME);
+        if (current != seenVersion) {
+            seenVersion = current;
+            resyncAvailableKarts();
+        }
+    }
+
+    public long getAvailabilityVersion() {
+        return availabilityVersion.get();
+    }
+
+    private boolean wasAvailable(Long id) {
+        return id != null && kartRepository.findByIdForUpdate(id).map(KartEntity::isAvailable).orElse(false);
+    }
+
+    // La versión "kart" sube dentro de la transacción y después del commit se recuenta desde la tabla.
+    // No se suma ni resta al contador: pollChanges puede haber recontado ya con este cambio incluido.
+    private void availabilityChanged(boolean before, boolean after) {
+        if (before != after) {
+            cacheVersionService.bump(CACHE_NAME);
+            runAfterCommit(this::resyncAvailableKarts);
+        }
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 }
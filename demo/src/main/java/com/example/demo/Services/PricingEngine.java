@@ -0,0 +1,219 @@
+package com.example.demo.Services;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Cálculo de precios de una reserva a partir de tablas armadas una sola vez desde la configuración:
+// tarifa por vueltas/tiempo, descuentos por tamaño de grupo y por visitas del mes, cupos de cumpleaños,
+// recargo de fin de semana e IVA. Las tablas son inmutables, así que se puede usar desde varios hilos a la vez
+// para reservar, cotizar o recalcular reservas en lote.
+@Service
+public class PricingEngine {
+
+    // vueltas:precio
+    @Value("${pricing.tariffs:10:15000,15:20000,20:25000}")
+    String tariffs = "10:15000,15:20000,20:25000";
+
+    // personasDesde-personasHasta:descuento%
+    @Value("${pricing.group-discounts:0-2:0,3-5:10,6-10:20,11-15:30}")
+    String groupDiscounts = "0-2:0,3-5:10,6-10:20,11-15:30";
+
+    // visitasMínimas:descuento%
+    @Value("${pricing.visit-discounts:2:10,5:20,7:30}")
+    String visitDiscounts = "2:10,5:20,7:30";
+
+    // personasDesde-personasHasta:cumpleañeros con descuento
+    @Value("${pricing.birthday-allowances:3-5:1,6-15:2}")
+    String birthdayAllowances = "3-5:1,6-15:2";
+
+    @Value("${pricing.birthday-discount:50}")
+    int birthdayDiscount = 50;
+
+    @Value("${pricing.weekend-surcharge:15}")
+    int weekendSurcharge = 15;
+
+    @Value("${pricing.tax-rate:19}")
+    int taxRate = 19;
+
+    private volatile Tables tables;
+
+    // Índice = vueltas o personas; -1 donde no hay regla
+    private record Tables(int[] tariffByLaps, int[] groupDiscountByPeople, int[] birthdayAllowanceByPeople,
+                          int[] visitThresholds, int[] visitDiscountByThreshold,
+                          int birthdayDiscount, double weekendFactor, double taxRate) {
+    }
+
+    // Datos de un participante que afectan su precio
+    public record Participant(String rut, String name, long visitsThisMonth, boolean birthday) {
+    }
+
+    public record ParticipantPrice(String rut, String name, double basePrice, int groupDiscount, int visitDiscount,
+                                   boolean birthday, int specialDiscount, int discountApplied,
+                                   double price, double iva, double totalWithTax) {
+
+        // Fila del detalle de la reserva, en el formato que se guarda en groupDetail y se imprime en el comprobante
+        public List<Object> toDetailRow() {
+            return List.of(
+                    name,
+                    (int) Math.round(basePrice * 100) / 100,
+                    groupDiscount,
+                    visitDiscount,
+                    birthday ? "Sí" : "No",
+                    specialDiscount,
+                    discountApplied,
+                    (int) Math.round(price * 100) / 100,
+                    (int) Math.round(iva * 100) / 100,
+                    (int) Math.round(totalWithTax * 100) / 100
+            );
+        }
+    }
+
+    public record PriceBreakdown(double basePrice, boolean weekendOrHoliday, int groupDiscount,
+                                 List<ParticipantPrice> participants, double totalWithTax) {
+
+        public List<List<Object>> toDetailRows() {
+            List<List<Object>> rows = new ArrayList<>(participants.size());
+            for (ParticipantPrice p : participants) {
+                rows.add(p.toDetailRow());
+            }
+            return rows;
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        tables = compile();
+    }
+
+    // Tarifa base; 0 si las vueltas no tienen tarifa
+    public double basePrice(int lapsOrTime) {
+        int[] byLaps = tables().tariffByLaps();
+        return lapsOrTime >= 0 && lapsOrTime < byLaps.length ? Math.max(0, byLaps[lapsOrTime]) : 0;
+    }
+
+    // Descuento por tamaño del grupo; -1 si el grupo está fuera de las reglas
+    public int groupDiscount(int numberPeople) {
+        int[] byPeople = tables().groupDiscountByPeople();
+        return numberPeople >= 0 && numberPeople < byPeople.length ? byPeople[numberPeople] : -1;
+    }
+
+    public int visitDiscount(long visitsThisMonth) {
+        Tables t = tables();
+        int discount = 0;
+        for (int i = 0; i < t.visitThresholds().length && visitsThisMonth >= t.visitThresholds()[i]; i++) {
+            discount = t.visitDiscountByThreshold()[i];
+        }
+        return discount;
+    }
+
+    public int birthdayAllowance(int numberPeople) {
+        int[] byPeople = tables().birthdayAllowanceByPeople();
+        return numberPeople >= 0 && numberPeople < byPeople.length ? Math.max(0, byPeople[numberPeople]) : 0;
+    }
+
+    // Precio de cada participante y total con IVA. customPrice y specialDiscount solo se consideran si son
+    // mayores que 0 (los pasa el administrador). Los cupos de cumpleaños se asignan en el orden de la lista.
+    public PriceBreakdown price(int lapsOrTime, int numberPeople, boolean weekendOrHoliday, List<Participant> participants,
+                                Double customPrice, Double specialDiscount) {
+        Tables t = tables();
+        double basePrice = customPrice != null && customPrice > 0 ? customPrice : basePrice(lapsOrTime);
+        if (weekendOrHoliday) {
+            basePrice *= t.weekendFactor();
+        }
+        int groupDiscount = groupDiscount(numberPeople);
+        int birthdaysLeft = birthdayAllowance(numberPeople);
+        int special = specialDiscount != null && specialDiscount > 0 ? specialDiscount.intValue() : 0;
+
+        List<ParticipantPrice> prices = new ArrayList<>(participants.size());
+        double total = 0;
+        for (Participant participant : participants) {
+            int visitDiscount = visitDiscount(participant.visitsThisMonth());
+            boolean birthday = participant.birthday() && birthdaysLeft > 0;
+
+            // Se aplica el mayor descuento; el de cumpleaños tiene prioridad sobre grupo y visitas
+            int discountApplied = Math.max(groupDiscount, visitDiscount);
+            if (birthday) {
+                discountApplied = t.birthdayDiscount();
+                birthdaysLeft--;
+            }
+            if (special > discountApplied) {
+                discountApplied = special;
+            }
+
+            double price = basePrice * (1 - discountApplied / 100.0);
+            double iva = price * t.taxRate();
+            double totalWithTax = price + iva;
+            total += totalWithTax;
+
+            prices.add(new ParticipantPrice(participant.rut(), participant.name(), basePrice, groupDiscount, visitDiscount,
+                    birthday, special, discountApplied, price, iva, totalWithTax));
+        }
+        return new PriceBreakdown(basePrice, weekendOrHoliday, groupDiscount, prices, total);
+    }
+
+    private Tables tables() {
+        Tables current = tables;
+        if (current == null) {
+            current = compile();
+            tables = current;
+        }
+        return current;
+    }
+
+    private Tables compile() {
+        int[] tariffByLaps = rangeTable(tariffs, false);
+        int[] groupByPeople = rangeTable(groupDiscounts, true);
+        int[] birthdaysByPeople = rangeTable(birthdayAllowances, true);
+
+        List<int[]> visitRules = new ArrayList<>();
+        for (String rule : split(visitDiscounts)) {
+            String[] parts = rule.split(":");
+            visitRules.add(new int[]{Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())});
+        }
+        visitRules.sort((a, b) -> Integer.compare(a[0], b[0]));
+        int[] thresholds = visitRules.stream().mapToInt(r -> r[0]).toArray();
+        int[] discounts = visitRules.stream().mapToInt(r -> r[1]).toArray();
+
+        return new Tables(tariffByLaps, groupByPeople, birthdaysByPeople, thresholds, discounts,
+                birthdayDiscount, 1 + weekendSurcharge / 100.0, taxRate / 100.0);
+    }
+
+    // "clave:valor" o "desde-hasta:valor" a un arreglo indexado por la clave, con -1 donde no hay regla
+    private static int[] rangeTable(String rules, boolean ranges) {
+        List<int[]> parsed = new ArrayList<>();
+        int size = 0;
+        for (String rule : split(rules)) {
+            String[] parts = rule.split(":");
+            String[] bounds = ranges ? parts[0].split("-") : new String[]{parts[0], parts[0]};
+            int from = Integer.parseInt(bounds[0].trim());
+            int to = Integer.parseInt(bounds[bounds.length - 1].trim());
+            if (from < 0 || to < from) {
+                throw new IllegalArgumentException("Regla de precios inválida: " + rule);
+            }
+            parsed.add(new int[]{from, to, Integer.parseInt(parts[1].trim())});
+            size = Math.max(size, to + 1);
+        }
+        int[] table = new int[size];
+        Arrays.fill(table, -1);
+        for (int[] rule : parsed) {
+            Arrays.fill(table, rule[0], rule[1] + 1, rule[2]);
+        }
+        return table;
+    }
+
+    private static List<String> split(String values) {
+        List<String> result = new ArrayList<>();
+        if (values != null) {
+            Arrays.stream(values.split(","))
+                    .map(String::trim)
+                    .filter(v -> !v.isEmpty())
+                    .forEach(result::add);
+        }
+        return result;
+    }
+}
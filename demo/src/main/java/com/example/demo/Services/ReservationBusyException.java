@@ -0,0 +1,14 @@
+package com.example.demo.Services;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Se agotaron los reintentos porque otras reservas seguían cambiando el mismo día.
+// Es un conflicto pasajero (409), no un error en los datos: el cliente puede volver a intentarlo.
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ReservationBusyException extends ConcurrencyFailureException {
+    public ReservationBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Entities.ReservationLineEntity;
+import com.example.demo.Repositories.ReservationRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Libro de reservas en CSV: una fila por participante, con el desglose de group_detail.
+// Las reservas se leen con un cursor de la base de datos y cada una se suelta del contexto de persistencia
+// apenas se escribe, así la memoria no crece con la cantidad de filas exportadas.
+@Service
+public class ReservationLedgerExporter {
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    @Autowired
+    ReservationLineService reservationLineService;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    public static final String CONTENT_TYPE = "text/csv;charset=UTF-8";
+
+    static final String HEADER = "reserva,fecha,rut_dueno,ruts_participantes,vueltas_o_tiempo,personas,posicion,participante,"
+            + "tarifa_base,desc_grupo,desc_frecuente,cumpleanos,desc_especial,desc_aplicado,subtotal,iva,total";
+
+    public void validateRange(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("La fecha de término debe ser posterior a la de inicio.");
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void write(LocalDate startDate, LocalDate endDate, OutputStream out) throws IOException {
+        validateRange(startDate, endDate);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        // BOM para que Excel reconozca los acentos
+        writer.write('\uFEFF');
+        writer.write(HEADER);
+        writer.write('\n');
+
+        try (Stream<ReservationEntity> reservations = reservationRepository.streamInWindow(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay())) {
+            for (ReservationEntity reservation : (Iterable<ReservationEntity>) reservations::iterator) {
+                writeReservation(writer, reservation);
+                entityManager.detach(reservation);
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeReservation(Writer writer, ReservationEntity reservation) throws IOException {
+        List<ReservationLineEntity> lines;
+        try {
+            lines = reservationLineService.toLines(reservation.getId(), reservation.getGroupDetail());
+        } catch (IllegalArgumentException e) {
+            // Detalle ilegible: la reserva se exporta igual, sin desglose
+            lines = List.of();
+        }
+
+        String prefix = reservation.getId() + "," + reservation.getReservationDate() + "," + csv(reservation.getRutUser()) + ","
+                + csv(reservation.getRutsUsers()) + "," + reservation.getLapsOrTime() + "," + reservation.getNumberPeople() + ",";
+        if (lines.isEmpty()) {
+            writer.write(prefix);
+            writer.write(",,,,,,,,,,\n");
+            return;
+        }
+        for (ReservationLineEntity line : lines) {
+            writer.write(prefix);
+            writer.write(line.getPosition() + "," + csv(line.getName()) + "," + amount(line.getBasePrice()) + ","
+                    + line.getGroupDiscount() + "," + line.getFrequentDiscount() + "," + (line.isBirthday() ? "si" : "no") + ","
+                    + line.getSpecialDiscount() + "," + line.getAppliedDiscount() + "," + amount(line.getSubtotal()) + ","
+                    + amount(line.getIva()) + "," + amount(line.getTotal()) + "\n");
+        }
+    }
+
+    private static String amount(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    // Un texto que empieza con = + - @ (o tabulación/retorno) Excel lo toma como fórmula; se antepone ' para que
+    // quede como texto. Comillas solo cuando el valor trae separadores, comillas o saltos de línea.
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
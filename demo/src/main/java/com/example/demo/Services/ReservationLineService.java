@@ -0,0 +1,129 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Entities.ReservationLineEntity;
+import com.example.demo.Repositories.ReservationLineRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Mantiene la tabla reservation_line: una fila tipada por participante con el desglose de precio,
+// equivalente a las filas que se guardan como JSON en group_detail
+@Service
+public class ReservationLineService {
+    @Autowired
+    ReservationLineRepository reservationLineRepository;
+
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private static final int BACKFILL_BATCH = 500;
+
+    // Columnas: nombre, tarifa base, desc. grupo, desc. frecuente, cumpleaños, desc. especial,
+    // desc. aplicado, subtotal, IVA, total. Las filas antiguas pueden traer solo nombre y total.
+    public ReservationLineEntity toLine(Long reservationId, int position, List<Object> row) {
+        ReservationLineEntity line = new ReservationLineEntity();
+        line.setReservationId(reservationId);
+        line.setPosition(position);
+        if (row.isEmpty()) {
+            return line;
+        }
+        line.setName(String.valueOf(row.get(0)));
+
+        if (row.size() >= 10) {
+            line.setBasePrice(number(row.get(1)));
+            line.setGroupDiscount((int) number(row.get(2)));
+            line.setFrequentDiscount((int) number(row.get(3)));
+            line.setBirthday("Sí".equals(row.get(4)));
+            line.setSpecialDiscount((int) number(row.get(5)));
+            line.setAppliedDiscount((int) number(row.get(6)));
+            line.setSubtotal(number(row.get(7)));
+            line.setIva(number(row.get(8)));
+        }
+        line.setTotal(number(row.get(row.size() - 1)));
+        return line;
+    }
+
+    public List<ReservationLineEntity> saveLines(Long reservationId, List<List<Object>> detail) {
+        List<ReservationLineEntity> lines = new ArrayList<>();
+        for (int i = 0; i < detail.size(); i++) {
+            lines.add(toLine(reservationId, i, detail.get(i)));
+        }
+        return reservationLineRepository.saveAll(lines);
+    }
+
+    // Líneas armadas desde el JSON de group_detail, sin guardarlas
+    public List<ReservationLineEntity> toLines(Long reservationId, String groupDetail) {
+        List<List<Object>> detail = parse(groupDetail);
+        List<ReservationLineEntity> lines = new ArrayList<>(detail.size());
+        for (int i = 0; i < detail.size(); i++) {
+            lines.add(toLine(reservationId, i, detail.get(i)));
+        }
+        return lines;
+    }
+
+    public List<ReservationLineEntity> getLines(Long reservationId) {
+        return reservationLineRepository.findByReservationIdOrderByPosition(reservationId);
+    }
+
+    // Se usa cuando una reserva se edita directamente y su group_detail puede haber cambiado
+    public void replaceLines(Long reservationId, String groupDetail) {
+        reservationLineRepository.deleteByReservationId(reservationId);
+        saveLines(reservationId, parse(groupDetail));
+    }
+
+    public void deleteLines(Long reservationId) {
+        reservationLineRepository.deleteByReservationId(reservationId);
+    }
+
+    // Migración de las reservas antiguas: genera las líneas a partir del JSON de group_detail.
+    // Avanza por id en lotes, así que se puede volver a ejecutar y solo completa lo que falta.
+    public int backfillFromGroupDetail() {
+        int created = 0;
+        long afterId = 0;
+        List<ReservationEntity> batch;
+        do {
+            batch = reservationRepository.findWithoutLinesAfter(afterId, Limit.of(BACKFILL_BATCH));
+            for (ReservationEntity reservation : batch) {
+                try {
+                    created += saveLines(reservation.getId(), parse(reservation.getGroupDetail())).size();
+                } catch (IllegalArgumentException e) {
+                    // group_detail ilegible: la reserva queda sin líneas
+                }
+                afterId = reservation.getId();
+            }
+        } while (batch.size() == BACKFILL_BATCH);
+        return created;
+    }
+
+    private List<List<Object>> parse(String groupDetail) {
+        if (groupDetail == null || groupDetail.isBlank()) {
+            return new ArrayList<>();
+        }
+        try {
+            return mapper.readValue(groupDetail, new TypeReference<List<List<Object>>>() {
+            });
+        } catch (Exception e) {
+            throw new IllegalArgumentException("El detalle de la reserva no es un JSON válido.", e);
+        }
+    }
+
+    private static double number(Object value) {
+        if (value instanceof Number n) {
+            return n.doubleValue();
+        }
+        try {
+            return Double.parseDouble(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Entities.ReservationParticipantEntity;
+import com.example.demo.Repositories.ReservationParticipantRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Mantiene la tabla reservation_participant: una fila por cliente de la reserva (dueño y participantes),
+// equivalente al CSV de rutsUsers pero consultable por RUT
+@Service
+public class ReservationParticipantService {
+    @Autowired
+    ReservationParticipantRepository reservationParticipantRepository;
+
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    private static final int BACKFILL_BATCH = 500;
+
+    public List<ReservationParticipantEntity> toParticipants(ReservationEntity reservation) {
+        List<ReservationParticipantEntity> participants = new ArrayList<>();
+        // Un dueño repetido en rutsUsers queda una sola vez
+        for (String rut : new LinkedHashSet<>(ReservationService.participantRuts(reservation))) {
+            if (rut == null) {
+                continue;
+            }
+            participants.add(new ReservationParticipantEntity(reservation.getId(), rut, reservation.getReservationDate(),
+                    rut.equals(reservation.getRutUser())));
+        }
+        return participants;
+    }
+
+    public List<ReservationParticipantEntity> saveParticipants(ReservationEntity reservation) {
+        return reservationParticipantRepository.saveAll(toParticipants(reservation));
+    }
+
+    // Se usa al editar una reserva: pueden cambiar los RUT o la fecha
+    public void replaceParticipants(ReservationEntity reservation) {
+        reservationParticipantRepository.deleteByReservationId(reservation.getId());
+        saveParticipants(reservation);
+    }
+
+    public void deleteParticipants(Long reservationId) {
+        reservationParticipantRepository.deleteByReservationId(reservationId);
+    }
+
+    public Map<String, Long> countReservationsByRut(Collection<String> ruts, LocalDateTime startDate, LocalDateTime endDate) {
+        Map<String, Long> counts = new HashMap<>();
+        if (ruts.isEmpty()) {
+            return counts;
+        }
+        for (ReservationParticipantRepository.RutCount row : reservationParticipantRepository.countReservationsByRutInRange(ruts, startDate, endDate)) {
+            counts.put(row.getRut(), row.getReservations());
+        }
+        return counts;
+    }
+
+    // Migración desde el CSV de rutsUsers. Avanza por id en lotes y solo completa las reservas sin participantes.
+    public int backfillFromRutsUsers() {
+        int created = 0;
+        long afterId = 0;
+        List<ReservationEntity> batch;
+        do {
+            batch = reservationRepository.findWithoutParticipantsAfter(afterId, Limit.of(BACKFILL_BATCH));
+            for (ReservationEntity reservation : batch) {
+                created += saveParticipants(reservation).size();
+                afterId = reservation.getId();
+            }
+        } while (batch.size() == BACKFILL_BATCH);
+        return created;
+    }
+}
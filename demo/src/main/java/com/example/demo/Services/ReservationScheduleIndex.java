@@ -0,0 +1,371 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.KartMaintenanceEntity;
+import com.example.demo.Entities.ReservationDayEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.KartMaintenanceRepository;
+import com.example.demo.Repositories.ReservationDayRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Índice en memoria de los intervalos [inicio, fin) reservados por día y de los karts ocupados
+// en cada tramo de 5 minutos (por reservas o por mantención).
+// Cada día tiene un número de versión en la tabla reservation_day que se incrementa con cada escritura,
+// así las otras réplicas detectan que su copia quedó vieja y la recargan.
+@Service
+public class ReservationScheduleIndex {
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    @Autowired
+    ReservationDayRepository reservationDayRepository;
+
+    @Autowired
+    KartMaintenanceRepository kartMaintenanceRepository;
+
+    @Autowired
+    KartService kartService;
+
+    // true: varios grupos pueden compartir la pista mientras alcancen los karts.
+    // false: un solo grupo a la vez, como antes.
+    @Value("${reservation.shared-track:true}")
+    boolean sharedTrack = true;
+
+    static final int SLOT_MINUTES = 5;
+    static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    private final Map<LocalDate, DaySchedule> days = new ConcurrentHashMap<>();
+
+    // Intervalos ordenados por inicio; maxEnd[i] es el mayor fin entre 0..i.
+    // bookedKarts[s] y maintenanceKarts[s]: karts tomados en el tramo s del día.
+    // kartsVersion: disponibilidad de karts con la que se contó la mantención.
+    record DaySchedule(long version, long kartsVersion, int[] starts, int[] ends, int[] maxEnd,
+                       int[] bookedKarts, int[] maintenanceKarts) {
+
+        static DaySchedule of(long version, long kartsVersion, int[] starts, int[] ends, int[] bookedKarts, int[] maintenanceKarts) {
+            int n = starts.length;
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Integer.compare(starts[a], starts[b]));
+
+            int[] s = new int[n];
+            int[] e = new int[n];
+            int[] m = new int[n];
+            for (int i = 0; i < n; i++) {
+                s[i] = starts[order[i]];
+                e[i] = ends[order[i]];
+                m[i] = i == 0 ? e[i] : Math.max(m[i - 1], e[i]);
+            }
+            return new DaySchedule(version, kartsVersion, s, e, m, bookedKarts, maintenanceKarts);
+        }
+
+        boolean overlaps(int start, int end) {
+            // Último intervalo que empieza antes del fin del nuevo
+            int lo = 0, hi = starts.length - 1, last = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < end) {
+                    last = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return last >= 0 && maxEnd[last] > start;
+        }
+
+        // Mayor cantidad de karts tomados en algún tramo de [start, end)
+        int maxTaken(int start, int end) {
+            int taken = 0;
+            for (int slot = firstSlot(start); slot < endSlot(end); slot++) {
+                taken = Math.max(taken, bookedKarts[slot] + maintenanceKarts[slot]);
+            }
+            return taken;
+        }
+
+        DaySchedule withVersion(long newVersion) {
+            return new DaySchedule(newVersion, kartsVersion, starts, ends, maxEnd, bookedKarts, maintenanceKarts);
+        }
+
+        DaySchedule with(long newVersion, int start, int end, int karts) {
+            int n = starts.length;
+            int[] s = Arrays.copyOf(starts, n + 1);
+            int[] e = Arrays.copyOf(ends, n + 1);
+            s[n] = start;
+            e[n] = end;
+            int[] booked = bookedKarts.clone();
+            addKarts(booked, start, end, karts);
+            return of(newVersion, kartsVersion, s, e, booked, maintenanceKarts);
+        }
+    }
+
+    // Solo para pruebas: las reservas pasan por canSeat
+    boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        LocalDate day = start.toLocalDate();
+        return schedule(day).overlaps(minuteOfDay(start), minuteOfDay(end));
+    }
+
+    // Karts libres durante todo [start, end): la flota disponible menos el tramo más cargado
+    int freeKarts(LocalDateTime start, LocalDateTime end) {
+        int fleet = kartService.countAvailableKarts();
+        return Math.max(0, fleet - schedule(start.toLocalDate()).maxTaken(minuteOfDay(start), minuteOfDay(end)));
+    }
+
+    public boolean canSeat(LocalDateTime start, LocalDateTime end, int karts) {
+        return fits(schedule(start.toLocalDate()), minuteOfDay(start), minuteOfDay(end), karts);
+    }
+
+    private boolean fits(DaySchedule schedule, int from, int to, int karts) {
+        if (!sharedTrack && schedule.overlaps(from, to)) {
+            return false;
+        }
+        return karts <= kartService.countAvailableKarts() - schedule.maxTaken(from, to);
+    }
+
+    // Registra una reserva nueva. Se valida otra vez contra la versión actual del día y la versión avanza solo
+    // si nadie la cambió entremedio (UPDATE ... WHERE version = la leída). Si otra reserva del mismo día se
+    // confirmó antes, en esta u otra réplica, lanza OptimisticLockingFailureException y la reserva se reintenta.
+    // Debe llamarse antes de guardar la reserva, para que la recarga del día no la cuente dos veces.
+    public void recordBooking(LocalDateTime start, LocalDateTime end, int karts) {
+        LocalDate day = start.toLocalDate();
+        DaySchedule schedule = schedule(day);
+        if (!fits(schedule, minuteOfDay(start), minuteOfDay(end), karts)) {
+            throw new IllegalArgumentException("No quedan karts libres para ese horario.");
+        }
+        long newVersion = schedule.version() + 1;
+        if (!advanceVersion(day, schedule.version())) {
+            throw new OptimisticLockingFailureException("Otra reserva modificó el día " + day + ".");
+        }
+        runAfterCommit(() -> days.computeIfPresent(day, (d, current) ->
+                current.version() == newVersion - 1 ? current.with(newVersion, minuteOfDay(start), minuteOfDay(end), karts) : null));
+    }
+
+    public record Booking(LocalDateTime start, LocalDateTime end, int karts) {
+    }
+
+    // Registra un lote de reservas. Cada una se valida contra el día guardado más las anteriores del mismo lote
+    // que ya se aceptaron; las que no caben quedan en false y las demás se registran. La versión de cada día tocado
+    // avanza una sola vez, con el mismo control que recordBooking.
+    public boolean[] recordBookings(List<Booking> bookings) {
+        boolean[] accepted = new boolean[bookings.size()];
+        Map<LocalDate, DaySchedule> loaded = new HashMap<>();
+        Map<LocalDate, DaySchedule> working = new HashMap<>();
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
+            LocalDate day = booking.start().toLocalDate();
+            DaySchedule schedule = working.computeIfAbsent(day, d -> loaded.computeIfAbsent(d, this::schedule));
+            int from = minuteOfDay(booking.start());
+            int to = minuteOfDay(booking.end());
+            if (fits(schedule, from, to, booking.karts())) {
+                accepted[i] = true;
+                working.put(day, schedule.with(schedule.version(), from, to, booking.karts()));
+            }
+        }
+
+        for (Map.Entry<LocalDate, DaySchedule> entry : working.entrySet()) {
+            LocalDate day = entry.getKey();
+            long expected = loaded.get(day).version();
+            if (entry.getValue() == loaded.get(day)) {
+                continue;
+            }
+            if (!advanceVersion(day, expected)) {
+                throw new OptimisticLockingFailureException("Otra reserva modificó el día " + day + ".");
+            }
+            DaySchedule updated = entry.getValue().withVersion(expected + 1);
+            runAfterCommit(() -> days.computeIfPresent(day, (d, current) -> current.version() == expected ? updated : null));
+        }
+        return accepted;
+    }
+
+    // Reservas modificadas o eliminadas: se sube la versión y se descarta la copia local del día
+    public void recordChange(LocalDate day) {
+        bumpVersion(day);
+        runAfterCommit(() -> days.remove(day));
+    }
+
+    DaySchedule schedule(LocalDate day) {
+        Long stored = reservationDayRepository.findVersion(day);
+        long version = stored == null ? 0L : stored;
+        long kartsVersion = kartService.getAvailabilityVersion();
+
+        DaySchedule cached = days.get(day);
+        if (cached != null && cached.version() == version && cached.kartsVersion() == kartsVersion) {
+            return cached;
+        }
+
+        List<ReservationEntity> reservations = reservationRepository.findByReservationDateBetween(
+                day.atStartOfDay(), day.atTime(23, 59, 59));
+        List<KartMaintenanceEntity> maintenance = kartMaintenanceRepository.findOverlappingForAvailableKarts(
+                day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        DaySchedule loaded = build(day, version, kartsVersion, reservations, maintenance);
+        days.put(day, loaded);
+        return loaded;
+    }
+
+    // Varios días de una vez: una consulta para las versiones y, solo si hay días vencidos,
+    // una para las reservas y otra para la mantención de todo el rango vencido
+    Map<LocalDate, DaySchedule> schedules(LocalDate from, LocalDate to) {
+        Map<LocalDate, Long> versions = new HashMap<>();
+        for (ReservationDayEntity d : reservationDayRepository.findByReservationDayBetween(from, to)) {
+            versions.put(d.getReservationDay(), d.getVersion());
+        }
+        long kartsVersion = kartService.getAvailabilityVersion();
+
+        Map<LocalDate, DaySchedule> result = new TreeMap<>();
+        List<LocalDate> stale = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            DaySchedule cached = days.get(day);
+            if (cached != null && cached.version() == versions.getOrDefault(day, 0L) && cached.kartsVersion() == kartsVersion) {
+                result.put(day, cached);
+            } else {
+                stale.add(day);
+            }
+        }
+        if (stale.isEmpty()) {
+            return result;
+        }
+
+        LocalDate first = stale.get(0);
+        LocalDate last = stale.get(stale.size() - 1);
+        Map<LocalDate, List<ReservationEntity>> reservationsByDay = reservationRepository
+                .findByReservationDateBetween(first.atStartOfDay(), last.atTime(23, 59, 59)).stream()
+                .collect(Collectors.groupingBy(r -> r.getReservationDate().toLocalDate()));
+        List<KartMaintenanceEntity> maintenance = kartMaintenanceRepository.findOverlappingForAvailableKarts(
+                first.atStartOfDay(), last.plusDays(1).atStartOfDay());
+
+        for (LocalDate day : stale) {
+            LocalDateTime dayStart = day.atStartOfDay();
+            LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+            List<KartMaintenanceEntity> dayMaintenance = maintenance.stream()
+                    .filter(m -> m.getStartTime().isBefore(dayEnd) && m.getEndTime().isAfter(dayStart))
+                    .toList();
+            DaySchedule loaded = build(day, versions.getOrDefault(day, 0L), kartsVersion,
+                    reservationsByDay.getOrDefault(day, List.of()), dayMaintenance);
+            days.put(day, loaded);
+            result.put(day, loaded);
+        }
+        return result;
+    }
+
+    // De los inicios candidatos, los que todavía tienen karts para el grupo durante toda la duración
+    public List<LocalDateTime> seatable(List<LocalDateTime> starts, int durationMinutes, int karts) {
+        if (starts.isEmpty()) {
+            return List.of();
+        }
+        LocalDate from = starts.stream().map(LocalDateTime::toLocalDate).min(LocalDate::compareTo).get();
+        LocalDate to = starts.stream().map(LocalDateTime::toLocalDate).max(LocalDate::compareTo).get();
+        Map<LocalDate, DaySchedule> byDay = schedules(from, to);
+
+        List<LocalDateTime> result = new ArrayList<>();
+        for (LocalDateTime start : starts) {
+            int minute = minuteOfDay(start);
+            if (fits(byDay.get(start.toLocalDate()), minute, minute + durationMinutes, karts)) {
+                result.add(start);
+            }
+        }
+        return result;
+    }
+
+    private static DaySchedule build(LocalDate day, long version, long kartsVersion,
+                                     List<ReservationEntity> reservations, List<KartMaintenanceEntity> maintenanceWindows) {
+        int[] starts = new int[reservations.size()];
+        int[] ends = new int[reservations.size()];
+        int[] booked = new int[SLOTS_PER_DAY];
+        for (int i = 0; i < reservations.size(); i++) {
+            ReservationEntity r = reservations.get(i);
+            starts[i] = minuteOfDay(r.getReservationDate());
+            ends[i] = starts[i] + ReservationService.durationMinutes(r.getLapsOrTime());
+            addKarts(booked, starts[i], ends[i], r.getNumberPeople());
+        }
+
+        // Un kart con ventanas de mantención superpuestas cuenta una sola vez por tramo
+        Map<Long, int[]> maintenanceByKart = new HashMap<>();
+        for (KartMaintenanceEntity m : maintenanceWindows) {
+            int from = m.getStartTime().toLocalDate().isBefore(day) ? 0 : minuteOfDay(m.getStartTime());
+            int to = m.getEndTime().toLocalDate().isAfter(day) ? 24 * 60 : minuteOfDay(m.getEndTime());
+            addKarts(maintenanceByKart.computeIfAbsent(m.getKartId(), k -> new int[SLOTS_PER_DAY]), from, to, 1);
+        }
+        int[] maintenance = new int[SLOTS_PER_DAY];
+        for (int[] kartSlots : maintenanceByKart.values()) {
+            for (int slot = 0; slot < SLOTS_PER_DAY; slot++) {
+                maintenance[slot] += Math.min(1, kartSlots[slot]);
+            }
+        }
+
+        return DaySchedule.of(version, kartsVersion, starts, ends, booked, maintenance);
+    }
+
+    private boolean advanceVersion(LocalDate day, long expected) {
+        if (expected > 0) {
+            return reservationDayRepository.advanceVersion(day, expected) == 1;
+        }
+        // Primer cambio del día: si otra transacción crea la fila al mismo tiempo, choca con la clave primaria
+        try {
+            return reservationDayRepository.insertFirstVersion(day) == 1;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    // Igual que advanceVersion: si dos cambios crean la primera fila del día a la vez, el que choca con la
+    // clave primaria se trata como conflicto de concurrencia y se reintenta
+    private void bumpVersion(LocalDate day) {
+        if (reservationDayRepository.incrementVersion(day) > 0) {
+            return;
+        }
+        try {
+            reservationDayRepository.insertFirstVersion(day);
+        } catch (DataIntegrityViolationException e) {
+            throw new OptimisticLockingFailureException("Otra transacción modificó el día " + day + ".");
+        }
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static int minuteOfDay(LocalDateTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    // Un intervalo ocupa todos los tramos que toca, aunque sea en parte
+    private static int firstSlot(int minute) {
+        return minute / SLOT_MINUTES;
+    }
+
+    private static int endSlot(int minute) {
+        return Math.min(SLOTS_PER_DAY, (minute + SLOT_MINUTES - 1) / SLOT_MINUTES);
+    }
+
+    private static void addKarts(int[] slots, int start, int end, int karts) {
+        for (int slot = firstSlot(start); slot < endSlot(end); slot++) {
+            slots[slot] += karts;
+        }
+    }
+}
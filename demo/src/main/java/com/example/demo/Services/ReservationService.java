@@ -3,30 +3,38 @@ package com.example.demo.Services;
 import com.example.demo.Entities.KartEntity;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.example.demo.Entities.CustomerEntity;
+import com.example.demo.Entities.MonthlyRevenueRollupEntity;
 import com.example.demo.Entities.ReservationEntity;
 import com.example.demo.Repositories.CustomerRepository;
+import com.example.demo.Entities.VoucherOutboxEntity;
 import com.example.demo.Repositories.ReservationRepository;
+import com.example.demo.Repositories.VoucherOutboxRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.lowagie.text.*;
-import com.lowagie.text.pdf.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jakarta.activation.DataHandler;
 import jakarta.mail.MessagingException;
+import jakarta.mail.Part;
 import jakarta.mail.internet.MimeMessage;
-import java.awt.*;
-import java.io.ByteArrayOutputStream;
+import jakarta.mail.internet.PreencodedMimeBodyPart;
+import jakarta.mail.util.ByteArrayDataSource;
 import java.time.*;
-import java.time.format.DateTimeFormatter;
 import java.time.format.TextStyle;
 import java.util.*;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Service
 public class ReservationService {
@@ -42,100 +50,67 @@ public class ReservationService {
     @Autowired
     JavaMailSender mailSender;
 
-    public final ObjectMapper mapper = new ObjectMapper();
+    @Autowired
+    VoucherOutboxRepository voucherOutboxRepository;
 
+    @Autowired
+    ReservationScheduleIndex reservationScheduleIndex;
 
-    public double calculateBasePrice(int lapsOrTime) {
-        int price = 0;
-        if (lapsOrTime == 10) {
-            price = 15000;
-        } else if (lapsOrTime == 15) {
-            price = 20000;
-        } else if (lapsOrTime == 20) {
-            price = 25000;
-        }
-        return price;
-    }
+    @Autowired
+    ReservationLineService reservationLineService;
 
-    public boolean isHoliday(LocalDate date) {
-        DayOfWeek day = date.getDayOfWeek();
-
-        // Feriados fijos
-        List<MonthDay> feriadosFijos = List.of(
-                MonthDay.of(1, 1),   // Año Nuevo
-                MonthDay.of(5, 1),   // Día del Trabajador
-                MonthDay.of(9, 18),  // Independencia Chile
-                MonthDay.of(9, 19),  // Glorias del Ejército
-                MonthDay.of(12, 25)  // Navidad
-        );
+    @Autowired
+    RevenueRollupService revenueRollupService;
 
-        MonthDay diaActual = MonthDay.from(date);
+    @Autowired
+    CustomerVisitService customerVisitService;
 
-        return day == DayOfWeek.SATURDAY ||
-                day == DayOfWeek.SUNDAY ||
-                feriadosFijos.contains(diaActual);
-    }
+    @Autowired
+    ReservationParticipantService reservationParticipantService;
 
+    @Autowired
+    CustomerCache customerCache;
 
-    public int calculateDiscountNumberPeople(int numberPeople) {
-        int discount = -1;
-        if (numberPeople < 3) {
-            discount = 0;
-        } else if (numberPeople <= 5) {
-            discount = 10;
-        } else if (numberPeople <= 10) {
-            discount = 20;
-        } else if (numberPeople <= 15) {
-            discount = 30;
-        }
-        return discount;
-    }
+    @Autowired
+    PlatformTransactionManager transactionManager;
 
-    public Map<CustomerEntity, Integer> calculateDiscountFrequentCustomers(List<CustomerEntity> customers, LocalDateTime reservationDate) {
-        Map<CustomerEntity, Integer> discounts = new HashMap<>();
+    @Autowired
+    BusinessCalendar businessCalendar;
 
-        LocalDateTime startOfMonth = reservationDate.withDayOfMonth(1).toLocalDate().atStartOfDay();
+    @Autowired
+    PricingEngine pricingEngine;
 
-        // Reservaciones del mes
-        List<ReservationEntity> reservationsThisMonth = reservationRepository.findByReservationDateBetween(startOfMonth, reservationDate);
+    @Autowired
+    VoucherRenderer voucherRenderer;
 
-        // Contar las reservas de un mes en las que esta cada usuario
-        for (CustomerEntity customer : customers) {
-            String rut = customer.getRut();
-            int visitCount = 0;
+    @Value("${reservation.booking.max-attempts:5}")
+    int bookingAttempts = 5;
 
-            for (ReservationEntity reservation : reservationsThisMonth) {
-                boolean isMainCustomer = rut.equals(reservation.getRutUser());
+    public final ObjectMapper mapper = new ObjectMapper();
 
-                boolean isInParticipants = false;
-                if (reservation.getRutsUsers() != null && !reservation.getRutsUsers().isBlank()) {
-                    isInParticipants = Arrays.stream(reservation.getRutsUsers().split(","))
-                            .map(String::trim)
-                            .anyMatch(rut::equals);
-                }
+    // Ventana máxima que se puede pedir de una vez a los listados del rack
+    static final int MAX_WINDOW_DAYS = 62;
 
-                if (isMainCustomer || isInParticipants) {
-                    visitCount++;
-                }
-            }
+    // Días que se pueden consultar de una vez en la disponibilidad
+    static final int MAX_AVAILABILITY_DAYS = 31;
 
-            int discount;
-            if (visitCount >= 7) {
-                discount = 30;
-            } else if (visitCount >= 5) {
-                discount = 20;
-            } else if (visitCount >= 2) {
-                discount = 10;
-            } else {
-                discount = 0;
-            }
+    // Reservas por carga masiva
+    static final int MAX_BATCH_SIZE = 100;
 
-            discounts.put(customer, discount);
-        }
 
-        return discounts;
+    public double calculateBasePrice(int lapsOrTime) {
+        return pricingEngine.basePrice(lapsOrTime);
     }
 
+    // Fin de semana o feriado, según el calendario del local
+    public boolean isHoliday(LocalDate date) {
+        return businessCalendar.isWeekendOrHoliday(date);
+    }
+
+
+    public int calculateDiscountNumberPeople(int numberPeople) {
+        return pricingEngine.groupDiscount(numberPeople);
+    }
 
     public Set<CustomerEntity> getBirthdayCustomers(List<CustomerEntity> customers, LocalDate date) {
         return customers.stream()
@@ -143,7 +118,7 @@ public class ReservationService {
                 .collect(Collectors.toSet());
     }
 
-    public LocalDateTime calculateEndTime(LocalDateTime start, int lapsOrTime) {
+    static int durationMinutes(int lapsOrTime) {
         int minutes = 0;
         if (lapsOrTime == 10) {
             minutes = 30;
@@ -152,196 +127,247 @@ public class ReservationService {
         } else if (lapsOrTime == 20) {
             minutes = 40;
         }
-        return start.plusMinutes(minutes);
+        return minutes;
+    }
+
+    public LocalDateTime calculateEndTime(LocalDateTime start, int lapsOrTime) {
+        return start.plusMinutes(durationMinutes(lapsOrTime));
     }
 
     public byte[] generatePDF(ReservationEntity reservation, List<List<Object>> detail) {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        Document document = new Document();
-        PdfWriter.getInstance(document, out);
-
-        // Abrir el documento
-        document.open();
-
-        // Agregar contenido al documento
-        com.lowagie.text.Font font = new com.lowagie.text.Font(com.lowagie.text.Font.HELVETICA, 14, com.lowagie.text.Font.BOLD);
-        document.add(new Paragraph("Comprobante de Reserva - KartingRM", font));
-        document.add(new Paragraph(" "));
-
-        document.add(new Paragraph("Código de reserva: RES-" + reservation.getId()));
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-        String fechaFormateada = reservation.getReservationDate().format(formatter);
-        document.add(new Paragraph("Fecha y hora: " + fechaFormateada));
-        document.add(new Paragraph("N° de vueltas o Tiempo máximo: " + reservation.getLapsOrTime()));
-        document.add(new Paragraph("Cantidad de personas: " + reservation.getNumberPeople()));
-        document.add(new Paragraph("Persona que hizo la reservación: " + customerRepository.findByRut(reservation.getRutUser()).getName()));
-        document.add(new Paragraph(" "));
-
-        PdfPTable table = new PdfPTable(10);
-        table.setWidthPercentage(100);
-        Stream.of("Nombre", "Tarifa base", "Desc. Grupo", "Desc. Frec.", "Desc. Cumple.", "Desc. Especial",
-                        "Desc. Aplicado", "Subtotal", "IVA (19%)", "Total")
-                .forEach(h -> {
-                    PdfPCell cell = new PdfPCell(new Phrase(h));
-                    cell.setBackgroundColor(Color.LIGHT_GRAY);
-                    table.addCell(cell);
-                });
-
-        // Agregar los datos de los participantes
-        for (List<Object> fila : detail) {
-            for (Object col : fila) {
-                table.addCell(String.valueOf(col));
-            }
+        return voucherRenderer.render(reservation, customerCache.findByRut(reservation.getRutUser()).getName(), detail);
+    }
+
+    // Envía todos los correos en una sola sesión SMTP y devuelve, por destinatario, si el envío resultó
+    public Map<String, Boolean> sendVoucherByEmail(List<String> emails, byte[] pdf) {
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        if (emails.isEmpty()) {
+            return results;
         }
 
-        document.add(table);
-        document.close();
-        return out.toByteArray();
-    }
+        // El PDF se codifica en base64 una sola vez y se comparte entre todos los mensajes
+        byte[] encodedPdf = Base64.getMimeEncoder().encode(pdf);
 
-    public void sendVoucherByEmail(List<String> emails, byte[] pdf) throws MessagingException {
+        Map<MimeMessage, String> messages = new IdentityHashMap<>();
         for (String email : emails) {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
-            helper.setTo(email);
-            helper.setSubject("Comprobante de Reserva KartingRM");
-            helper.setText("Estimado cliente, adjuntamos el comprobante de su reserva en formato PDF. Preséntelo el día de su visita.");
-            helper.addAttachment("comprobante_reserva.pdf", new ByteArrayResource(pdf));
-            mailSender.send(message);
+            try {
+                MimeMessage message = mailSender.createMimeMessage();
+                MimeMessageHelper helper = new MimeMessageHelper(message, true);
+                helper.setTo(email);
+                helper.setSubject("Comprobante de Reserva KartingRM");
+                helper.setText("Estimado cliente, adjuntamos el comprobante de su reserva en formato PDF. Preséntelo el día de su visita.");
+
+                PreencodedMimeBodyPart attachment = new PreencodedMimeBodyPart("base64");
+                attachment.setDataHandler(new DataHandler(new ByteArrayDataSource(encodedPdf, "application/pdf")));
+                attachment.setFileName("comprobante_reserva.pdf");
+                attachment.setDisposition(Part.ATTACHMENT);
+                helper.getRootMimeMultipart().addBodyPart(attachment);
+
+                messages.put(message, email);
+                results.put(email, true);
+            } catch (MessagingException e) {
+                results.put(email, false);
+            }
         }
-    }
-
-    private boolean isWithinWorkingHours(LocalDate date, LocalTime startTime, LocalTime endTime) {
-        DayOfWeek day = date.getDayOfWeek();
 
-        LocalTime apertura;
-        if (day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY || isHoliday(date)) {
-            apertura = LocalTime.of(10, 0); // Fin de semana o feriado
-        } else {
-            apertura = LocalTime.of(14, 0); // Lunes a Viernes
+        if (messages.isEmpty()) {
+            return results;
         }
-        LocalTime cierre = LocalTime.of(22, 0);
 
-        return !startTime.isBefore(apertura) && !endTime.isAfter(cierre);
+        try {
+            mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            for (Object failed : e.getFailedMessages().keySet()) {
+                String email = messages.get(failed);
+                if (email != null) {
+                    results.put(email, false);
+                }
+            }
+        } catch (MailException e) {
+            messages.values().forEach(email -> results.put(email, false));
+        }
+        return results;
     }
 
-    public ReservationEntity makeReservation(ReservationEntity reservation, Boolean isAdmin, Double customPrice, Double specialDiscount) {
-        boolean isAdminUser = Boolean.TRUE.equals(isAdmin);
-        LocalDateTime newStart = reservation.getReservationDate();
-        LocalDateTime newEnd = calculateEndTime(newStart, reservation.getLapsOrTime());
+    private boolean isWithinWorkingHours(LocalDate date, LocalTime startTime, LocalTime endTime) {
+        return businessCalendar.isOpen(date, startTime.getHour() * 60 + startTime.getMinute(),
+                endTime.getHour() * 60 + endTime.getMinute());
+    }
 
-        // Verificar que el horario esté dentro del horario de atención
-        if (!isWithinWorkingHours(newStart.toLocalDate(), newStart.toLocalTime(), newEnd.toLocalTime())) {
-            throw new IllegalArgumentException("La reserva está fuera del horario de atención.");
+    // Horas de inicio reservables entre from y to (ambos incluidos), cada 5 minutos, para un grupo de people
+    // personas. Las candidatas salen del horario de atención y se filtran con el índice de la agenda, que carga
+    // los días que no tiene al día con una sola consulta por rango.
+    public Map<String, List<String>> getAvailability(LocalDate from, LocalDate to, int lapsOrTime, int people) {
+        if (from.isAfter(to) || from.plusDays(MAX_AVAILABILITY_DAYS).isBefore(to)) {
+            throw new IllegalArgumentException("Rango de fechas inválido.");
         }
-
-        // Verificar si hay suficientes karts
-        List<KartEntity> kartsDisponibles = kartService.getKartsByAvailability(true);
-        if (reservation.getNumberPeople() > kartsDisponibles.size()) {
-            throw new IllegalArgumentException("No hay suficientes karts disponibles para esta reserva.");
+        int duration = durationMinutes(lapsOrTime);
+        if (duration == 0 || people < 1 || people > 15) {
+            throw new IllegalArgumentException("Vueltas o cantidad de personas inválidas.");
         }
 
-        // Verificar si ya existe una reserva en el mismo horario
-        LocalDate date = newStart.toLocalDate();
-        List<ReservationEntity> reservations = reservationRepository.findByReservationDateBetween(
-                date.atStartOfDay(),
-                date.atTime(23, 59, 59)
-        );
-
-        for (ReservationEntity r : reservations) {
-            LocalDateTime start = r.getReservationDate();
-            LocalDateTime end = calculateEndTime(start, r.getLapsOrTime());
-            if (newStart.isBefore(end) && start.isBefore(newEnd)) {
-                throw new IllegalArgumentException("Ya existe una reserva que se solapa en ese horario.");
+        LocalDateTime now = LocalDateTime.now();
+        List<LocalDateTime> candidates = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            int lastStart = businessCalendar.closingMinute(date) - duration;
+            for (int minute = businessCalendar.openingMinute(date); minute <= lastStart; minute += ReservationScheduleIndex.SLOT_MINUTES) {
+                LocalDateTime start = date.atStartOfDay().plusMinutes(minute);
+                if (start.isAfter(now)) {
+                    candidates.add(start);
+                }
             }
         }
 
-        // Verificar que los RUTs de los participantes estén registrados
+        Map<String, List<String>> availability = new TreeMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            availability.put(date.toString(), new ArrayList<>());
+        }
+        for (LocalDateTime start : reservationScheduleIndex.seatable(candidates, duration, people)) {
+            availability.get(start.toLocalDate().toString()).add(start.toLocalTime().toString());
+        }
+        return availability;
+    }
+
+    public List<String> getParticipantRuts(ReservationEntity reservation) {
+        return participantRuts(reservation);
+    }
+
+    // Dueño de la reserva seguido de los participantes del CSV rutsUsers
+    static List<String> participantRuts(ReservationEntity reservation) {
         List<String> allRuts = new ArrayList<>();
         allRuts.add(reservation.getRutUser());
-        List<String> extraRuts = Arrays.stream(reservation.getRutsUsers().split(","))
-                .map(String::trim)
-                .filter(r -> !r.isEmpty())
-                .toList();
-        allRuts.addAll(extraRuts);
-
-        List<CustomerEntity> participants = customerRepository.findAllByRutIn(allRuts);
-        if (participants.size() != allRuts.size()) {
-            throw new IllegalArgumentException("Uno o más RUTs no están registrados");
+        if (reservation.getRutsUsers() != null) {
+            Arrays.stream(reservation.getRutsUsers().split(","))
+                    .map(String::trim)
+                    .filter(r -> !r.isEmpty())
+                    .forEach(allRuts::add);
         }
+        return allRuts;
+    }
 
-        // Determinar el precio base
-        double basePrice = (isAdminUser && customPrice != null && customPrice > 0) ? customPrice : calculateBasePrice(reservation.getLapsOrTime());
+    public List<List<Object>> parseGroupDetail(String groupDetail) {
+        if (groupDetail == null || groupDetail.isBlank()) {
+            return new ArrayList<>();
+        }
+        try {
+            return mapper.readValue(groupDetail, new TypeReference<List<List<Object>>>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-        boolean isWeekend = isHoliday(LocalDate.from(reservation.getReservationDate()));
-        int groupDiscount = calculateDiscountNumberPeople(reservation.getNumberPeople());
-        Map<CustomerEntity, Integer> visitDiscounts = calculateDiscountFrequentCustomers(participants, reservation.getReservationDate());
-        Set<CustomerEntity> birthdayClients = getBirthdayCustomers(participants, LocalDate.from(reservation.getReservationDate()));
+    // Precio de la reserva para los participantes ya cargados, con las visitas del mes y cumpleaños de cada uno
+    PricingEngine.PriceBreakdown priceReservation(ReservationEntity reservation, List<CustomerEntity> participants,
+                                                  Map<String, Long> visitsThisMonth, Double customPrice, Double specialDiscount) {
+        LocalDateTime date = reservation.getReservationDate();
+        Set<CustomerEntity> birthdayClients = getBirthdayCustomers(participants, date.toLocalDate());
 
-        // Calcular el número de descuentos por cumpleaños permitidos
-        int numberPeople = reservation.getNumberPeople();
-        int birthdayDiscountsAllowed = 0;
-        if (numberPeople >= 3 && numberPeople <= 5) {
-            birthdayDiscountsAllowed = 1;
-        } else if (numberPeople >= 6 && numberPeople <= 15) {
-            birthdayDiscountsAllowed = 2;
+        List<PricingEngine.Participant> pricing = new ArrayList<>(participants.size());
+        for (CustomerEntity c : participants) {
+            pricing.add(new PricingEngine.Participant(c.getRut(), c.getName(),
+                    visitsThisMonth.getOrDefault(c.getRut(), 0L), birthdayClients.contains(c)));
         }
+        return pricingEngine.price(reservation.getLapsOrTime(), reservation.getNumberPeople(),
+                isHoliday(date.toLocalDate()), pricing, customPrice, specialDiscount);
+    }
 
+    // Cada intento corre en su propia transacción. Si otra reserva del mismo día se confirmó entre la validación
+    // y el guardado (recordBooking lo detecta por la versión del día), se descarta el intento y se vuelve a validar.
+    public ReservationEntity makeReservation(ReservationEntity reservation, Boolean isAdmin, Double customPrice, Double specialDiscount) {
+        return retryOnConflict(() -> bookReservation(reservation, isAdmin, customPrice, specialDiscount),
+                "El horario se está reservando en este momento, intenta nuevamente.");
+    }
 
-        List<List<Object>> detailParticipants = new ArrayList<>();
-        double totalPaymentWithTax = 0;
-        int birthdayApplied = 0;
+    // Ejecuta la acción en una transacción nueva y la repite si la versión de algún día cambió entremedio
+    private <T> T retryOnConflict(Supplier<T> action, String busyMessage) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return template.execute(status -> action.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= bookingAttempts) {
+                    throw new ReservationBusyException(busyMessage);
+                }
+            }
+        }
+    }
 
-        // Aplicar el recargo del fin de semana
-        if (isWeekend) basePrice *= 1.15;
+    // Precio de una reserva sin guardarla ni enviar nada: mismas validaciones y mismo cálculo que makeReservation.
+    // Los clientes y sus visitas del mes se leen de caché, porque la misma cotización se repite varias veces.
+    public PricingEngine.PriceBreakdown quoteReservation(ReservationEntity reservation, Boolean isAdmin, Double customPrice, Double specialDiscount) {
+        if (reservation.getReservationDate() == null || durationMinutes(reservation.getLapsOrTime()) == 0) {
+            throw new IllegalArgumentException("Fecha o vueltas inválidas.");
+        }
+        boolean isAdminUser = Boolean.TRUE.equals(isAdmin);
+        LocalDateTime start = reservation.getReservationDate();
+        validateSchedule(start, calculateEndTime(start, reservation.getLapsOrTime()), reservation.getNumberPeople());
 
-        // Determinar que descuentos aplicar
-        for (CustomerEntity c : participants) {
-            double price = basePrice;
+        List<String> allRuts = getParticipantRuts(reservation);
+        List<CustomerEntity> participants = resolveParticipants(allRuts, customerCache.findAllByRut(allRuts));
 
-            int visitDiscount = visitDiscounts.getOrDefault(c, 0);
-            boolean birthday = birthdayClients.contains(c) && birthdayApplied < birthdayDiscountsAllowed;
+        Map<String, Long> visitsThisMonth = customerVisitService.countVisitsThisMonthCached(allRuts, start);
+        return priceReservation(reservation, participants, visitsThisMonth,
+                isAdminUser ? customPrice : null, isAdminUser ? specialDiscount : null);
+    }
 
+    // Participantes en el orden de la reserva. Cotización, reserva y lote usan esta misma regla:
+    // un RUT no registrado o repetido rechaza la reserva completa.
+    private static List<CustomerEntity> resolveParticipants(List<String> ruts, Map<String, CustomerEntity> customers) {
+        List<CustomerEntity> participants = new ArrayList<>(ruts.size());
+        Set<String> seen = new HashSet<>();
+        for (String rut : ruts) {
+            CustomerEntity customer = customers.get(rut);
+            if (customer == null || !seen.add(rut)) {
+                throw new IllegalArgumentException("Uno o más RUTs no están registrados");
+            }
+            participants.add(customer);
+        }
+        return participants;
+    }
 
-            int discountApplied;
+    private void validateSchedule(LocalDateTime newStart, LocalDateTime newEnd, int numberPeople) {
+        validateHoursAndFleet(newStart, newEnd, numberPeople);
 
-            // Calcular el descuento aplicado
-            discountApplied = Math.max(groupDiscount, visitDiscount);
+        // Verificar que queden karts libres en todos los tramos de [inicio, fin), descontando
+        // las reservas que se solapan y los karts en mantención
+        if (!reservationScheduleIndex.canSeat(newStart, newEnd, numberPeople)) {
+            throw new IllegalArgumentException("No quedan karts libres para ese horario.");
+        }
+    }
 
-            if (birthday) {
-                discountApplied = 50; // cumpleaños tiene prioridad
-                birthdayApplied++;
-            }
+    private void validateHoursAndFleet(LocalDateTime newStart, LocalDateTime newEnd, int numberPeople) {
+        // Verificar que el horario esté dentro del horario de atención
+        if (!isWithinWorkingHours(newStart.toLocalDate(), newStart.toLocalTime(), newEnd.toLocalTime())) {
+            throw new IllegalArgumentException("La reserva está fuera del horario de atención.");
+        }
 
-            // Comparar con el descuento del administrador
-            if (isAdminUser && specialDiscount != null && specialDiscount > 0) {
-                if (specialDiscount > discountApplied) {
-                    discountApplied = specialDiscount.intValue();
-                }
-            }
+        // Verificar si hay suficientes karts
+        if (numberPeople > kartService.countAvailableKarts()) {
+            throw new IllegalArgumentException("No hay suficientes karts disponibles para esta reserva.");
+        }
+    }
 
-            // Aplicar el descuento final
-            price *= (1 - discountApplied / 100.0);
+    private ReservationEntity bookReservation(ReservationEntity reservation, Boolean isAdmin, Double customPrice, Double specialDiscount) {
+        boolean isAdminUser = Boolean.TRUE.equals(isAdmin);
+        LocalDateTime newStart = reservation.getReservationDate();
+        LocalDateTime newEnd = calculateEndTime(newStart, reservation.getLapsOrTime());
 
+        validateSchedule(newStart, newEnd, reservation.getNumberPeople());
 
-            double iva = price * 0.19;
-            double totalWithTax = price + iva;
-            totalPaymentWithTax += totalWithTax;
+        // Verificar que los RUTs de los participantes estén registrados
+        List<String> allRuts = getParticipantRuts(reservation);
 
-            // Hacer una lista con los datos de cada participante
-            detailParticipants.add(List.of(
-                    c.getName(),
-                    (int) Math.round(basePrice * 100) / 100,
-                    groupDiscount,
-                    visitDiscount,
-                    birthday ? "Sí" : "No",
-                    (specialDiscount != null) ? specialDiscount.intValue() : 0,
-                    discountApplied,
-                    (int) Math.round(price * 100) / 100,
-                    (int) Math.round(iva * 100) / 100,
-                    (int) Math.round(totalWithTax * 100) / 100
-            ));
+        Map<String, CustomerEntity> customers = new HashMap<>();
+        for (CustomerEntity customer : customerRepository.findAllByRutIn(allRuts)) {
+            customers.put(customer.getRut(), customer);
         }
+        List<CustomerEntity> participants = resolveParticipants(allRuts, customers);
+
+        Map<String, Long> visitsThisMonth = customerVisitService.countVisitsThisMonth(allRuts, newStart);
+        PricingEngine.PriceBreakdown breakdown = priceReservation(reservation, participants, visitsThisMonth,
+                isAdminUser ? customPrice : null, isAdminUser ? specialDiscount : null);
+        List<List<Object>> detailParticipants = breakdown.toDetailRows();
 
         ReservationEntity reservationNew = new ReservationEntity(
                 reservation.getRutUser(),
@@ -353,33 +379,159 @@ public class ReservationService {
         );
 
         // Hacer un json con los detalles de la reserva de cada participante
-        ObjectMapper mapper = new ObjectMapper();
-        String detailJson = null;
+        reservationNew.setGroupDetail(toDetailJson(detailParticipants));
+
+        reservationScheduleIndex.recordBooking(newStart, newEnd, reservationNew.getNumberPeople());
+        reservationNew = reservationRepository.save(reservationNew);
+        reservationLineService.saveLines(reservationNew.getId(), detailParticipants);
+        reservationParticipantService.saveParticipants(reservationNew);
+        revenueRollupService.add(reservationNew);
+        customerVisitService.recordVisits(reservationNew, 1);
+
+        // El comprobante se genera y envía fuera de la petición; aquí solo queda registrado como pendiente
+        voucherOutboxRepository.save(new VoucherOutboxEntity(reservationNew.getId(), LocalDateTime.now()));
+
+        return reservationNew;
+    }
+
+    private String toDetailJson(List<List<Object>> detail) {
         try {
-            detailJson = mapper.writeValueAsString(detailParticipants);
+            return new ObjectMapper().writeValueAsString(detail);
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
-        reservationNew.setGroupDetail(detailJson);
+    }
 
-        reservationNew = reservationRepository.save(reservationNew);
+    // Carga de varias reservas de una vez (eventos, ligas). Todas se guardan en una sola transacción y cada una
+    // se valida contra lo ya reservado y contra las anteriores del mismo lote. Devuelve el resultado de cada
+    // posición: BOOKED con el id y el total, o REJECTED con el motivo; las rechazadas no impiden guardar las demás.
+    public List<Map<String, Object>> makeReservations(List<ReservationEntity> reservations, Boolean isAdmin, Double customPrice, Double specialDiscount) {
+        if (reservations == null || reservations.isEmpty() || reservations.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("El lote debe tener entre 1 y " + MAX_BATCH_SIZE + " reservas.");
+        }
+        return retryOnConflict(() -> bookReservations(reservations, isAdmin, customPrice, specialDiscount),
+                "El horario se está reservando en este momento, intenta nuevamente.");
+    }
+
+    private List<Map<String, Object>> bookReservations(List<ReservationEntity> reservations, Boolean isAdmin, Double customPrice, Double specialDiscount) {
+        boolean isAdminUser = Boolean.TRUE.equals(isAdmin);
+        int n = reservations.size();
+        String[] errors = new String[n];
 
-        // Generar el PDF
-        byte[] pdf = generatePDF(reservationNew, detailParticipants);
+        // Todos los RUTs del lote en una sola consulta
+        Set<String> allRuts = new LinkedHashSet<>();
+        for (ReservationEntity reservation : reservations) {
+            allRuts.addAll(getParticipantRuts(reservation));
+        }
+        allRuts.remove(null);
+        Map<String, CustomerEntity> customers = new HashMap<>();
+        for (CustomerEntity customer : customerRepository.findAllByRutIn(new ArrayList<>(allRuts))) {
+            customers.put(customer.getRut(), customer);
+        }
 
-        // Enviar el voucher por correo electrónico a los participantes
-        List<String> emails = participants.stream()
-                .map(CustomerEntity::getEmail)
-                .filter(email -> email != null && !email.isBlank())
-                .toList();
+        // Validaciones propias de cada reserva; las que pasan se ubican juntas en la agenda
+        List<Integer> candidates = new ArrayList<>();
+        List<ReservationScheduleIndex.Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            ReservationEntity reservation = reservations.get(i);
+            try {
+                if (reservation.getReservationDate() == null || durationMinutes(reservation.getLapsOrTime()) == 0) {
+                    throw new IllegalArgumentException("Fecha o vueltas inválidas.");
+                }
+                LocalDateTime start = reservation.getReservationDate();
+                LocalDateTime end = calculateEndTime(start, reservation.getLapsOrTime());
+                validateHoursAndFleet(start, end, reservation.getNumberPeople());
+                resolveParticipants(getParticipantRuts(reservation), customers);
+                candidates.add(i);
+                bookings.add(new ReservationScheduleIndex.Booking(start, end, reservation.getNumberPeople()));
+            } catch (IllegalArgumentException e) {
+                errors[i] = e.getMessage();
+            }
+        }
 
-        try {
-            sendVoucherByEmail(emails, pdf);
-        } catch (MessagingException e) {
-            throw new RuntimeException(e);
+        boolean[] seated = reservationScheduleIndex.recordBookings(bookings);
+        List<Integer> accepted = new ArrayList<>();
+        for (int c = 0; c < candidates.size(); c++) {
+            if (seated[c]) {
+                accepted.add(candidates.get(c));
+            } else {
+                errors[candidates.get(c)] = "No quedan karts libres para ese horario.";
+            }
         }
 
-        return reservationNew;
+        // Visitas del mes: una consulta por fecha distinta, más las visitas que suman las reservas anteriores del lote
+        Map<LocalDate, Set<String>> rutsByDay = new HashMap<>();
+        for (int i : accepted) {
+            ReservationEntity reservation = reservations.get(i);
+            rutsByDay.computeIfAbsent(reservation.getReservationDate().toLocalDate(), d -> new LinkedHashSet<>())
+                    .addAll(getParticipantRuts(reservation));
+        }
+        Map<LocalDate, Map<String, Long>> visitsByDay = new HashMap<>();
+        rutsByDay.forEach((day, ruts) -> visitsByDay.put(day, customerVisitService.countVisitsThisMonth(ruts, day.atStartOfDay())));
+
+        List<ReservationEntity> toSave = new ArrayList<>();
+        List<List<List<Object>>> details = new ArrayList<>();
+        List<Double> totals = new ArrayList<>();
+        for (int a = 0; a < accepted.size(); a++) {
+            ReservationEntity reservation = reservations.get(accepted.get(a));
+            LocalDate day = reservation.getReservationDate().toLocalDate();
+            List<String> ruts = getParticipantRuts(reservation);
+
+            Map<String, Long> visits = new HashMap<>(visitsByDay.get(day));
+            for (int b = 0; b < a; b++) {
+                ReservationEntity earlier = reservations.get(accepted.get(b));
+                LocalDate earlierDay = earlier.getReservationDate().toLocalDate();
+                if (YearMonth.from(earlierDay).equals(YearMonth.from(day)) && !earlierDay.isAfter(day)) {
+                    for (String rut : new LinkedHashSet<>(getParticipantRuts(earlier))) {
+                        if (ruts.contains(rut)) {
+                            visits.merge(rut, 1L, Long::sum);
+                        }
+                    }
+                }
+            }
+
+            List<CustomerEntity> participants = ruts.stream().map(customers::get).toList();
+            PricingEngine.PriceBreakdown breakdown = priceReservation(reservation, participants, visits,
+                    isAdminUser ? customPrice : null, isAdminUser ? specialDiscount : null);
+            List<List<Object>> detail = breakdown.toDetailRows();
+
+            ReservationEntity reservationNew = new ReservationEntity(reservation.getRutUser(), reservation.getRutsUsers(),
+                    reservation.getReservationDate(), reservation.getLapsOrTime(), reservation.getNumberPeople(), toDetailJson(detail));
+            toSave.add(reservationNew);
+            details.add(detail);
+            totals.add(breakdown.totalWithTax());
+        }
+
+        List<ReservationEntity> saved = reservationRepository.saveAll(toSave);
+        List<VoucherOutboxEntity> vouchers = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int a = 0; a < saved.size(); a++) {
+            ReservationEntity reservationNew = saved.get(a);
+            reservationLineService.saveLines(reservationNew.getId(), details.get(a));
+            reservationParticipantService.saveParticipants(reservationNew);
+            revenueRollupService.add(reservationNew);
+            customerVisitService.recordVisits(reservationNew, 1);
+            vouchers.add(new VoucherOutboxEntity(reservationNew.getId(), now));
+        }
+        // Los comprobantes quedan pendientes para el despachador, igual que en una reserva individual
+        voucherOutboxRepository.saveAll(vouchers);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i = 0, a = 0; i < n; i++) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("index", i);
+            if (errors[i] == null) {
+                result.put("status", "BOOKED");
+                result.put("id", saved.get(a).getId());
+                result.put("totalWithTax", totals.get(a));
+                a++;
+            } else {
+                result.put("status", "REJECTED");
+                result.put("message", errors[i]);
+            }
+            results.add(result);
+        }
+        return results;
     }
 
     public String getMonth(String yyyyMM) {
@@ -387,33 +539,52 @@ public class ReservationService {
         return month.getDisplayName(TextStyle.FULL, new Locale("es"));
     }
 
-    public Map<String, Map<String, Double>> incomeFromLapsOrTime(LocalDate startDate, LocalDate endDate) {
-        List<ReservationEntity> reservations = reservationRepository.findByReservationDateBetween(
-                startDate.atStartOfDay(), endDate.atTime(23, 59));
+    // Meses que el rango cubre completos, como [primer mes, último mes]; null si no hay ninguno
+    private String[] fullMonths(LocalDate startDate, LocalDate endDate) {
+        YearMonth first = YearMonth.from(startDate);
+        YearMonth last = YearMonth.from(endDate);
+        if (startDate.getDayOfMonth() != 1) first = first.plusMonths(1);
+        if (!endDate.equals(last.atEndOfMonth())) last = last.minusMonths(1);
+        return first.isAfter(last) ? null : new String[]{first.toString(), last.toString()};
+    }
 
-        Map<String, Map<String, Double>> intermediate = new TreeMap<>();
-        for (ReservationEntity r : reservations) {
-            String monthReservation = r.getReservationDate().getYear() + "-" + String.format("%02d", r.getReservationDate().getMonthValue());
-            String lapsOrTimeReservation = r.getLapsOrTime() + " vueltas o máx. " + r.getLapsOrTime() + " minutos";
-            double totalReservation = 0;
-            try {
-                List<List<Object>> detail = mapper.readValue(r.getGroupDetail(), new TypeReference<List<List<Object>>>() {
-                });
-                for (List<Object> row : detail) {
-                    if (!row.isEmpty()) {
-                        Object tarifa = row.get(row.size() - 1);
-                        if (tarifa instanceof Number total) {
-                            totalReservation += total.doubleValue();
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                continue;
+    // Tramos de los meses que el rango cubre solo en parte (a lo más el primero y el último)
+    private List<LocalDate[]> partialMonths(LocalDate startDate, LocalDate endDate) {
+        List<LocalDate[]> ranges = new ArrayList<>();
+        YearMonth first = YearMonth.from(startDate);
+        YearMonth last = YearMonth.from(endDate);
+        for (YearMonth month : first.equals(last) ? List.of(first) : List.of(first, last)) {
+            LocalDate from = startDate.isAfter(month.atDay(1)) ? startDate : month.atDay(1);
+            LocalDate to = endDate.isBefore(month.atEndOfMonth()) ? endDate : month.atEndOfMonth();
+            if (!from.isAfter(to) && (from.getDayOfMonth() != 1 || !to.equals(month.atEndOfMonth()))) {
+                ranges.add(new LocalDate[]{from, to});
             }
+        }
+        return ranges;
+    }
+
+    private List<MonthlyRevenueRollupEntity> fullMonthRollups(LocalDate startDate, LocalDate endDate) {
+        String[] months = fullMonths(startDate, endDate);
+        return months == null ? List.of() : revenueRollupService.getRollups(months[0], months[1]);
+    }
 
-            intermediate.computeIfAbsent(lapsOrTimeReservation, k -> new TreeMap<>());
-            intermediate.get(lapsOrTimeReservation).put(monthReservation,
-                    intermediate.get(lapsOrTimeReservation).getOrDefault(monthReservation, 0.0) + totalReservation);
+    public Map<String, Map<String, Double>> incomeFromLapsOrTime(LocalDate startDate, LocalDate endDate) {
+        // Los meses completos salen de los acumulados; los meses cortados por el rango se suman en la base de datos
+        Map<String, Map<String, Double>> intermediate = new TreeMap<>();
+        for (MonthlyRevenueRollupEntity rollup : fullMonthRollups(startDate, endDate)) {
+            String lapsOrTimeReservation = rollup.getLapsOrTime() + " vueltas o máx. " + rollup.getLapsOrTime() + " minutos";
+            intermediate.computeIfAbsent(lapsOrTimeReservation, k -> new TreeMap<>())
+                    .merge(rollup.getRevenueMonth(), rollup.getTotal(), Double::sum);
+        }
+        for (LocalDate[] range : partialMonths(startDate, endDate)) {
+            for (ReservationRepository.MonthlyIncome row : reservationRepository.sumIncomeByMonthAndLapsOrTime(
+                    range[0].atStartOfDay(), range[1].atTime(23, 59))) {
+                String monthReservation = row.getIncomeYear() + "-" + String.format("%02d", row.getIncomeMonth());
+                String lapsOrTimeReservation = row.getCategory() + " vueltas o máx. " + row.getCategory() + " minutos";
+
+                intermediate.computeIfAbsent(lapsOrTimeReservation, k -> new TreeMap<>())
+                        .merge(monthReservation, row.getTotal(), Double::sum);
+            }
         }
 
         // Generar lista de todos los meses entre startDate y endDate
@@ -466,38 +637,19 @@ public class ReservationService {
     }
 
     public Map<String, Map<String, Double>> incomePerPerson(LocalDate startDate, LocalDate endDate) {
-        List<ReservationEntity> reservations = reservationRepository.findByReservationDateBetween(
-                startDate.atStartOfDay(), endDate.atTime(23, 59));
-
+        // Los meses completos salen de los acumulados; los meses cortados por el rango se suman en la base de datos
         Map<String, Map<String, Double>> intermediate = new TreeMap<>();
-        for (ReservationEntity r : reservations) {
-            String monthReservation = r.getReservationDate().getYear() + "-" + String.format("%02d", r.getReservationDate().getMonthValue());
-            int numberPeople = r.getNumberPeople();
-            String range;
-            if (numberPeople <= 2) range = "1-2 personas";
-            else if (numberPeople <= 5) range = "3-5 personas";
-            else if (numberPeople <= 10) range = "6-10 personas";
-            else range = "11-15 personas";
-
-            double totalReservation = 0;
-            try {
-                List<List<Object>> detail = mapper.readValue(r.getGroupDetail(), new TypeReference<List<List<Object>>>() {
-                });
-                for (List<Object> row : detail) {
-                    if (!row.isEmpty()) {
-                        Object tarifa = row.get(row.size() - 1);
-                        if (tarifa instanceof Number total) {
-                            totalReservation += total.doubleValue();
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                continue;
+        for (MonthlyRevenueRollupEntity rollup : fullMonthRollups(startDate, endDate)) {
+            intermediate.computeIfAbsent(rollup.getPeopleRange(), k -> new TreeMap<>())
+                    .merge(rollup.getRevenueMonth(), rollup.getTotal(), Double::sum);
+        }
+        for (LocalDate[] range : partialMonths(startDate, endDate)) {
+            for (ReservationRepository.MonthlyIncome row : reservationRepository.sumIncomeByMonthAndNumberPeople(
+                    range[0].atStartOfDay(), range[1].atTime(23, 59))) {
+                String monthReservation = row.getIncomeYear() + "-" + String.format("%02d", row.getIncomeMonth());
+                intermediate.computeIfAbsent(RevenueRollupService.peopleRange(row.getCategory()), k -> new TreeMap<>())
+                        .merge(monthReservation, row.getTotal(), Double::sum);
             }
-
-            intermediate.computeIfAbsent(range, k -> new TreeMap<>());
-            intermediate.get(range).put(monthReservation,
-                    intermediate.get(range).getOrDefault(monthReservation, 0.0) + totalReservation);
         }
 
         Set<String> allMonths = new TreeSet<>();
@@ -547,59 +699,156 @@ public class ReservationService {
         return reservationRepository.findById(id).get();
     }
 
+    // Igual que las reservas nuevas, se reintenta si otra transacción cambió la versión de alguno de los días
     public ReservationEntity updateReservation(ReservationEntity reservation) {
-        return reservationRepository.save(reservation);
+        return retryOnConflict(() -> applyUpdate(reservation),
+                "La reserva se está modificando en este momento, intenta nuevamente.");
+    }
+
+    private ReservationEntity applyUpdate(ReservationEntity reservation) {
+        ReservationEntity previous = reservation.getId() == null ? null
+                : reservationRepository.findById(reservation.getId()).orElse(null);
+        if (previous != null) {
+            // Se descuenta con los valores y líneas anteriores, antes de que el guardado los reemplace
+            revenueRollupService.remove(previous);
+            customerVisitService.recordVisits(previous, -1);
+            if (previous.getReservationDate() != null) {
+                reservationScheduleIndex.recordChange(previous.getReservationDate().toLocalDate());
+            }
+        }
+        ReservationEntity updated = reservationRepository.save(reservation);
+        if (updated != null && updated.getReservationDate() != null) {
+            reservationScheduleIndex.recordChange(updated.getReservationDate().toLocalDate());
+        }
+        if (updated != null && updated.getId() != null && updated.getGroupDetail() != null) {
+            reservationLineService.replaceLines(updated.getId(), updated.getGroupDetail());
+        }
+        if (updated != null && updated.getId() != null) {
+            reservationParticipantService.replaceParticipants(updated);
+            // También cuando el PUT traía un id nulo o desconocido y terminó creando la reserva
+            revenueRollupService.add(updated);
+            customerVisitService.recordVisits(updated, 1);
+        }
+        return updated;
     }
 
     public boolean deleteReservation(LocalDateTime date) throws Exception {
         try {
-            ReservationEntity reservation = reservationRepository.findByReservationDate(date);
-            if (reservation == null) {
-                throw new Exception("No se encontró la reserva con la fecha proporcionada.");
-            }
-            Long id = reservation.getId();
-            reservationRepository.deleteById(id);
-            return true;
+            return retryOnConflict(() -> {
+                ReservationEntity reservation = reservationRepository.findByReservationDate(date);
+                if (reservation == null) {
+                    throw new IllegalArgumentException("No se encontró la reserva con la fecha proporcionada.");
+                }
+                Long id = reservation.getId();
+                revenueRollupService.remove(reservation);
+                customerVisitService.recordVisits(reservation, -1);
+                reservationRepository.deleteById(id);
+                reservationLineService.deleteLines(id);
+                reservationParticipantService.deleteParticipants(id);
+                reservationScheduleIndex.recordChange(date.toLocalDate());
+                return true;
+            }, "La reserva se está modificando en este momento, intenta nuevamente.");
+        } catch (ReservationBusyException e) {
+            throw e;
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
     }
 
-    public ReservationEntity getReservationsByDate(LocalDateTime reservationDate) {
-        return reservationRepository.findByReservationDate(reservationDate);
-    }
+    // Posición de paginación: fecha e id de la última reserva entregada, en texto "fecha_id"
+    record Cursor(LocalDateTime date, Long id) {
 
-    public List<ReservationEntity> getAllReservations() {
-        return reservationRepository.findAll();
+        static Cursor parse(String cursor) {
+            int separator = cursor.lastIndexOf('_');
+            try {
+                return new Cursor(LocalDateTime.parse(cursor.substring(0, separator)), Long.parseLong(cursor.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor de paginación inválido.");
+            }
+        }
+
+        static String of(ReservationEntity reservation) {
+            return reservation.getReservationDate() + "_" + reservation.getId();
+        }
     }
 
-    public List<Map<String, Object>> getAllReservationsByDuration() {
-        List<ReservationEntity> reservations = reservationRepository.findAll();
+    // Se piden pageSize + 1 filas: si llega la extra hay otra página y el cursor apunta a la última entregada
+    private Map<String, Object> page(List<ReservationEntity> fetched, int pageSize) {
+        List<ReservationEntity> reservations = fetched;
+        String nextCursor = null;
+        if (fetched.size() > pageSize) {
+            reservations = fetched.subList(0, pageSize);
+            nextCursor = Cursor.of(reservations.get(pageSize - 1));
+        }
 
-        List<Map<String, Object>> result = new ArrayList<>();
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("reservations", reservations);
+        page.put("nextCursor", nextCursor);
+        return page;
+    }
 
-        for (ReservationEntity r : reservations) {
-            LocalDateTime start = r.getReservationDate();
-            int laps = r.getLapsOrTime();
-            int duration;
+    // Historial paginado de un cliente, de la reserva más reciente a la más antigua
+    public Map<String, Object> getReservationsByCustomer(String rut, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, 100));
+        Limit limit = Limit.of(pageSize + 1);
 
-            if (laps == 10) duration = 30;
-            else if (laps == 15) duration = 35;
-            else if (laps == 20) duration = 40;
-            else duration = laps + 20;
+        if (cursor == null || cursor.isBlank()) {
+            return page(reservationRepository.findLatestByParticipant(rut, limit), pageSize);
+        }
+        Cursor after = Cursor.parse(cursor);
+        return page(reservationRepository.findByParticipantBefore(rut, after.date(), after.id(), limit), pageSize);
+    }
 
-            LocalDateTime end = start.plusMinutes(duration);
+    // Reservas de la ventana [startDate, endDate] en orden de fecha, por páginas
+    public Map<String, Object> getReservationsPage(LocalDate startDate, LocalDate endDate, String cursor, int size) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("La fecha de término debe ser posterior a la de inicio.");
+        }
+        if (startDate.plusDays(MAX_WINDOW_DAYS).isBefore(endDate)) {
+            throw new IllegalArgumentException("El rango no puede superar los " + MAX_WINDOW_DAYS + " días.");
+        }
+        int pageSize = Math.max(1, Math.min(size, 500));
+        Limit limit = Limit.of(pageSize + 1);
+        LocalDateTime from = startDate.atStartOfDay();
+        LocalDateTime to = endDate.plusDays(1).atStartOfDay();
 
-            Optional<CustomerEntity> user = Optional.ofNullable(customerRepository.findByRut(r.getRutUser()));
+        if (cursor == null || cursor.isBlank()) {
+            return page(reservationRepository.findInWindow(from, to, limit), pageSize);
+        }
+        Cursor after = Cursor.parse(cursor);
+        return page(reservationRepository.findInWindowAfter(from, to, after.date(), after.id(), limit), pageSize);
+    }
 
-            Map<String, Object> reservation = new HashMap<>();
-            reservation.put("start", start.toString());
-            reservation.put("end", end.toString());
-            reservation.put("title", user.map(CustomerEntity::getName).orElse(r.getRutUser()));
+    // Nombres de los dueños de todas las reservas en una sola consulta (ninguna si ya están en la caché)
+    public Map<String, String> resolveOwnerNames(List<ReservationEntity> reservations) {
+        return customerCache.getNames(reservations.stream()
+                .map(ReservationEntity::getRutUser)
+                .filter(Objects::nonNull)
+                .toList());
+    }
 
-            result.add(reservation);
-        }
+    // Evento del rack: inicio, término y nombre del dueño de la reserva (o su RUT si no es cliente)
+    public Map<String, Object> toRackEvent(ReservationEntity r, Map<String, String> ownerNames) {
+        LocalDateTime start = r.getReservationDate();
+        int laps = r.getLapsOrTime();
+        int duration;
+
+        if (laps == 10) duration = 30;
+        else if (laps == 15) duration = 35;
+        else if (laps == 20) duration = 40;
+        else duration = laps + 20;
+
+        LocalDateTime end = start.plusMinutes(duration);
+
+        Map<String, Object> reservation = new HashMap<>();
+        reservation.put("id", r.getId());
+        reservation.put("start", start.toString());
+        reservation.put("end", end.toString());
+        reservation.put("title", ownerNames.getOrDefault(r.getRutUser(), r.getRutUser()));
+        return reservation;
+    }
 
-        return result;
+    public ReservationEntity getReservationsByDate(LocalDateTime reservationDate) {
+        return reservationRepository.findByReservationDate(reservationDate);
     }
 }
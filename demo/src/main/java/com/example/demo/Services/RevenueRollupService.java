@@ -0,0 +1,95 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.MonthlyRevenueRollupEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.MonthlyRevenueRollupRepository;
+import com.example.demo.Repositories.ReservationLineRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Acumulados de ingresos por mes, vueltas/tiempo y rango de personas (tabla monthly_revenue_rollup).
+// Se actualizan en la misma transacción que crea, edita o elimina la reserva, así los reportes no recorren las reservas.
+@Service
+public class RevenueRollupService {
+    @Autowired
+    MonthlyRevenueRollupRepository rollupRepository;
+
+    @Autowired
+    ReservationLineRepository reservationLineRepository;
+
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    public static String monthKey(LocalDateTime date) {
+        return YearMonth.from(date).toString();
+    }
+
+    public static String peopleRange(int numberPeople) {
+        if (numberPeople <= 2) return "1-2 personas";
+        else if (numberPeople <= 5) return "3-5 personas";
+        else if (numberPeople <= 10) return "6-10 personas";
+        else return "11-15 personas";
+    }
+
+    // Suma el total de las líneas de la reserva a su acumulado
+    public void add(ReservationEntity reservation) {
+        if (reservation == null || reservation.getId() == null || reservation.getReservationDate() == null) {
+            return;
+        }
+        apply(reservation.getReservationDate(), reservation.getLapsOrTime(), reservation.getNumberPeople(),
+                reservationLineRepository.sumTotalByReservationId(reservation.getId()), 1);
+    }
+
+    // Descuenta la reserva de su acumulado; se llama antes de borrar o reemplazar sus líneas
+    public void remove(ReservationEntity reservation) {
+        if (reservation == null || reservation.getId() == null || reservation.getReservationDate() == null) {
+            return;
+        }
+        apply(reservation.getReservationDate(), reservation.getLapsOrTime(), reservation.getNumberPeople(),
+                -reservationLineRepository.sumTotalByReservationId(reservation.getId()), -1);
+    }
+
+    void apply(LocalDateTime date, int lapsOrTime, int numberPeople, double amount, long count) {
+        String month = monthKey(date);
+        String range = peopleRange(numberPeople);
+        if (rollupRepository.addToRollup(month, lapsOrTime, range, amount, count) == 0) {
+            // Primera reserva de la celda. Se crea en la misma transacción: una transacción aparte esperaría
+            // detrás del bloqueo de rebuild(), que a su vez espera a esta reserva, y ninguna de las dos avanzaría.
+            rollupRepository.insertRollupIfMissing(month, lapsOrTime, range);
+            rollupRepository.addToRollup(month, lapsOrTime, range, amount, count);
+        }
+    }
+
+    public List<MonthlyRevenueRollupEntity> getRollups(String fromMonth, String toMonth) {
+        return rollupRepository.findByRevenueMonthBetween(fromMonth, toMonth);
+    }
+
+    // Recalcula todos los acumulados desde las reservas y sus líneas; devuelve la cantidad de filas generadas.
+    // Es una tarea de administración: todo corre en una transacción con la tabla bloqueada, así una reserva que
+    // toca su acumulado espera al final del recálculo y se suma una sola vez. Conviene correrla en horas de poco uso.
+    @Transactional
+    public int rebuild() {
+        rollupRepository.lockForRebuild();
+        rollupRepository.deleteAllRollups();
+
+        Map<String, MonthlyRevenueRollupEntity> rollups = new LinkedHashMap<>();
+        for (ReservationRepository.MonthlyRevenue row : reservationRepository.sumRevenueByMonthLapsAndNumberPeople()) {
+            String month = row.getIncomeYear() + "-" + String.format("%02d", row.getIncomeMonth());
+            String range = peopleRange(row.getNumberPeople());
+            MonthlyRevenueRollupEntity rollup = rollups.computeIfAbsent(month + "|" + row.getLapsOrTime() + "|" + range,
+                    k -> new MonthlyRevenueRollupEntity(month, row.getLapsOrTime(), range, 0, 0));
+            rollup.setTotal(rollup.getTotal() + row.getTotal());
+            rollup.setReservations(rollup.getReservations() + row.getReservations());
+        }
+        rollupRepository.saveAll(rollups.values());
+        return rollups.size();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.CustomerEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.ReservationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Comprobantes PDF ya generados, por hash del contenido que se imprime. Si la reserva (o el nombre de quien reservó)
+// cambia, el hash cambia y se genera uno nuevo; el anterior sale solo del caché por tamaño. El mismo hash sirve de ETag.
+@Service
+public class VoucherCache {
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    @Autowired
+    ReservationService reservationService;
+
+    @Autowired
+    CustomerCache customerCache;
+
+    // Tope del caché en bytes de PDF
+    @Value("${voucher.cache.max-bytes:33554432}")
+    long maxBytes = 32L * 1024 * 1024;
+
+    private Cache<String, byte[]> pdfs;
+
+    public record Voucher(String etag, byte[] pdf) {
+    }
+
+    private synchronized Cache<String, byte[]> pdfs() {
+        if (pdfs == null) {
+            pdfs = Caffeine.newBuilder()
+                    .maximumWeight(maxBytes)
+                    .weigher((String key, byte[] pdf) -> pdf.length)
+                    .build();
+        }
+        return pdfs;
+    }
+
+    // null si la reserva no existe
+    public Voucher voucher(Long reservationId) {
+        ReservationEntity reservation = reservationRepository.findById(reservationId).orElse(null);
+        return reservation == null ? null : pdf(reservation);
+    }
+
+    public Voucher pdf(ReservationEntity reservation) {
+        String key = contentKey(reservation);
+        byte[] pdf = pdfs().get(key, k ->
+                reservationService.generatePDF(reservation, reservationService.parseGroupDetail(reservation.getGroupDetail())));
+        return new Voucher("\"" + key + "\"", pdf);
+    }
+
+    // SHA-256 de los campos que aparecen en el comprobante
+    String contentKey(ReservationEntity reservation) {
+        CustomerEntity owner = customerCache.findByRut(reservation.getRutUser());
+        String content = reservation.getId() + "\n" + reservation.getReservationDate() + "\n" + reservation.getLapsOrTime()
+                + "\n" + reservation.getNumberPeople() + "\n" + (owner == null ? "" : owner.getName())
+                + "\n" + reservation.getGroupDetail();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.CustomerEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Entities.VoucherOutboxEntity;
+import com.example.demo.Repositories.CustomerRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import com.example.demo.Repositories.VoucherOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+@Service
+public class VoucherDispatchService {
+    @Autowired
+    VoucherOutboxRepository voucherOutboxRepository;
+
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    ReservationService reservationService;
+
+    @Autowired
+    VoucherCache voucherCache;
+
+    @Value("${voucher.dispatch.max-concurrency:8}")
+    int maxConcurrency = 8;
+
+    @Value("${voucher.dispatch.max-attempts:5}")
+    int maxAttempts = 5;
+
+    @Value("${voucher.dispatch.backoff-seconds:30}")
+    long backoffSeconds = 30;
+
+    @Value("${voucher.dispatch.lease-seconds:300}")
+    long leaseSeconds = 300;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private Semaphore permits;
+
+    private synchronized Semaphore permits() {
+        if (permits == null) {
+            permits = new Semaphore(maxConcurrency);
+        }
+        return permits;
+    }
+
+    // Revisa la bandeja de salida y reparte los comprobantes pendientes entre los hilos virtuales
+    @Scheduled(fixedDelayString = "${voucher.dispatch.poll-ms:2000}")
+    public void dispatchPending() {
+        Semaphore semaphore = permits();
+        int free = semaphore.availablePermits();
+        if (free == 0) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<VoucherOutboxEntity> due = voucherOutboxRepository.findDue(now, Limit.of(free));
+        for (VoucherOutboxEntity entry : due) {
+            int claimed = voucherOutboxRepository.claim(entry.getId(), entry.getStatus(), entry.getNextAttemptAt(),
+                    now.plusSeconds(leaseSeconds));
+            if (claimed == 0 || !semaphore.tryAcquire()) {
+                continue;
+            }
+            Long id = entry.getId();
+            executor.submit(() -> {
+                try {
+                    deliver(id);
+                } finally {
+                    semaphore.release();
+                }
+            });
+        }
+    }
+
+    public void deliver(Long outboxId) {
+        VoucherOutboxEntity entry = voucherOutboxRepository.findById(outboxId).orElse(null);
+        if (entry == null) {
+            return;
+        }
+
+        ReservationEntity reservation = reservationRepository.findById(entry.getReservationId()).orElse(null);
+        if (reservation == null) {
+            entry.setStatus(VoucherOutboxEntity.FAILED);
+            entry.setLastError("La reserva ya no existe.");
+            voucherOutboxRepository.save(entry);
+            return;
+        }
+
+        try {
+            // Queda en caché para cuando el cliente lo descargue después
+            byte[] pdf = voucherCache.pdf(reservation).pdf();
+
+            // En un reintento solo se vuelve a escribir a quienes no recibieron el comprobante
+            List<String> emails;
+            if (entry.getFailedRecipients() != null && !entry.getFailedRecipients().isBlank()) {
+                emails = Arrays.stream(entry.getFailedRecipients().split(",")).map(String::trim).toList();
+            } else {
+                emails = customerRepository.findAllByRutIn(reservationService.getParticipantRuts(reservation)).stream()
+                        .map(CustomerEntity::getEmail)
+                        .filter(email -> email != null && !email.isBlank())
+                        .toList();
+            }
+
+            Map<String, Boolean> results = reservationService.sendVoucherByEmail(emails, pdf);
+            List<String> failed = results.entrySet().stream()
+                    .filter(result -> !result.getValue())
+                    .map(Map.Entry::getKey)
+                    .toList();
+
+            if (failed.isEmpty()) {
+                entry.setStatus(VoucherOutboxEntity.SENT);
+                entry.setSentAt(LocalDateTime.now());
+                entry.setLastError(null);
+                entry.setFailedRecipients(null);
+            } else {
+                entry.setFailedRecipients(String.join(",", failed));
+                scheduleRetry(entry, "No se pudo enviar el comprobante a: " + String.join(", ", failed));
+            }
+        } catch (Exception e) {
+            scheduleRetry(entry, e.getMessage());
+        }
+        voucherOutboxRepository.save(entry);
+    }
+
+    // Reintento con espera exponencial hasta agotar los intentos
+    private void scheduleRetry(VoucherOutboxEntity entry, String error) {
+        if (entry.getAttempts() >= maxAttempts) {
+            entry.setStatus(VoucherOutboxEntity.FAILED);
+        } else {
+            entry.setStatus(VoucherOutboxEntity.PENDING);
+            long delay = backoffSeconds << Math.max(0, Math.min(entry.getAttempts() - 1, 10));
+            entry.setNextAttemptAt(LocalDateTime.now().plusSeconds(delay));
+        }
+        entry.setLastError(error);
+    }
+
+    public VoucherOutboxEntity getVoucherStatus(Long reservationId) {
+        return voucherOutboxRepository.findByReservationId(reservationId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.ReservationEntity;
+import com.lowagie.text.Document;
+import com.lowagie.text.Font;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.lowagie.text.pdf.PdfWriter;
+import org.springframework.stereotype.Service;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+// Comprobante de reserva en PDF. Lo que no cambia entre comprobantes se calcula una sola vez: fuentes, formato de
+// fecha, posición de las columnas y los encabezados ya cortados en líneas. La tabla se dibuja directo sobre la página
+// en vez de usar PdfPTable, que por cada celda arma dos veces (al medir y al escribir) estructuras de texto de varios KB.
+// El buffer de salida de cada comprobante parte del tamaño del anterior, así casi nunca tiene que crecer.
+@Service
+public class VoucherRenderer {
+
+    static final String TITLE = "Comprobante de Reserva - KartingRM";
+
+    static final String[] HEADERS = {"Nombre", "Tarifa base", "Desc. Grupo", "Desc. Frec.", "Desc. Cumple.",
+            "Desc. Especial", "Desc. Aplicado", "Subtotal", "IVA (19%)", "Total"};
+
+    private static final Rectangle PAGE = PageSize.A4;
+    private static final float MARGIN = 36;
+
+    private static final Font TITLE_FONT = new Font(Font.HELVETICA, 14, Font.BOLD);
+
+    private static final BaseFont CELL_FONT = cellFont();
+    private static final float FONT_SIZE = 12;
+    private static final float LEADING = FONT_SIZE * 1.2f;
+    private static final float PADDING = 2;
+    private static final float ASCENT = CELL_FONT.getFontDescriptor(BaseFont.ASCENT, FONT_SIZE);
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    // Tamaño inicial del buffer: el último comprobante más un margen, acotado para que uno muy grande
+    // no haga reservar de más en los siguientes
+    static final int INITIAL_BUFFER = 16 * 1024;
+    static final int MAX_INITIAL_BUFFER = 256 * 1024;
+
+    private volatile int lastSize = INITIAL_BUFFER;
+
+    // Borde izquierdo de cada columna (y el derecho de la última) y encabezados ya cortados a su ancho
+    private record Layout(float[] columnX, String[][] headerLines, float headerHeight) {
+    }
+
+    private final Layout layout = buildLayout();
+
+    public byte[] render(ReservationEntity reservation, String ownerName, List<List<Object>> detail) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bufferSize());
+        Document document = new Document(PAGE, MARGIN, MARGIN, MARGIN, MARGIN);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        document.open();
+
+        document.add(new Paragraph(TITLE, TITLE_FONT));
+        document.add(new Paragraph(" "));
+        document.add(new Paragraph("Código de reserva: RES-" + reservation.getId()));
+        document.add(new Paragraph("Fecha y hora: " + reservation.getReservationDate().format(DATE_FORMAT)));
+        document.add(new Paragraph("N° de vueltas o Tiempo máximo: " + reservation.getLapsOrTime()));
+        document.add(new Paragraph("Cantidad de personas: " + reservation.getNumberPeople()));
+        document.add(new Paragraph("Persona que hizo la reservación: " + ownerName));
+        document.add(new Paragraph(" "));
+
+        writeTable(document, writer, detail);
+        document.close();
+        lastSize = out.size();
+        return out.toByteArray();
+    }
+
+    int bufferSize() {
+        int size = lastSize;
+        return Math.min(MAX_INITIAL_BUFFER, size + size / 8);
+    }
+
+    // Filas de la tabla desde la posición actual; si una fila no cabe, sigue en otra página repitiendo el encabezado
+    private void writeTable(Document document, PdfWriter writer, List<List<Object>> detail) {
+        PdfContentByte canvas = writer.getDirectContent();
+        float top = writer.getVerticalPosition(true);
+        drawRow(canvas, top, layout.headerLines(), layout.headerHeight(), true);
+        top -= layout.headerHeight();
+
+        float[] columnX = layout.columnX();
+        for (List<Object> row : detail) {
+            String[][] cells = new String[HEADERS.length][];
+            int lines = 1;
+            for (int i = 0; i < cells.length; i++) {
+                String value = i < row.size() ? String.valueOf(row.get(i)) : "";
+                cells[i] = wrap(value, columnX[i + 1] - columnX[i] - 2 * PADDING);
+                lines = Math.max(lines, cells[i].length);
+            }
+            float height = rowHeight(lines);
+            if (top - height < MARGIN) {
+                document.newPage();
+                top = PAGE.getHeight() - MARGIN;
+                drawRow(canvas, top, layout.headerLines(), layout.headerHeight(), true);
+                top -= layout.headerHeight();
+            }
+            drawRow(canvas, top, cells, height, false);
+            top -= height;
+        }
+    }
+
+    private void drawRow(PdfContentByte canvas, float top, String[][] cells, float height, boolean header) {
+        float[] columnX = layout.columnX();
+        float left = columnX[0];
+        float width = columnX[columnX.length - 1] - left;
+        if (header) {
+            canvas.setColorFill(Color.LIGHT_GRAY);
+            canvas.rectangle(left, top - height, width, height);
+            canvas.fill();
+            canvas.setGrayFill(0);
+        }
+
+        canvas.setLineWidth(0.5f);
+        for (int i = 0; i < cells.length; i++) {
+            canvas.rectangle(columnX[i], top - height, columnX[i + 1] - columnX[i], height);
+        }
+        canvas.stroke();
+
+        canvas.beginText();
+        canvas.setFontAndSize(CELL_FONT, FONT_SIZE);
+        for (int i = 0; i < cells.length; i++) {
+            float baseline = top - PADDING - ASCENT;
+            for (String line : cells[i]) {
+                canvas.setTextMatrix(columnX[i] + PADDING, baseline);
+                canvas.showText(line);
+                baseline -= LEADING;
+            }
+        }
+        canvas.endText();
+    }
+
+    private static float rowHeight(int lines) {
+        return lines * LEADING + 2 * PADDING;
+    }
+
+    // Corta el texto en líneas que quepan en el ancho, por palabras y, si una palabra sola no cabe, por caracteres
+    static String[] wrap(String text, float width) {
+        if (fits(text, width)) {
+            return new String[]{text};
+        }
+        List<String> lines = new ArrayList<>();
+        String current = "";
+        for (String word : text.split(" ")) {
+            String candidate = current.isEmpty() ? word : current + " " + word;
+            if (fits(candidate, width)) {
+                current = candidate;
+                continue;
+            }
+            if (!current.isEmpty()) {
+                lines.add(current);
+            }
+            current = word;
+            while (current.length() > 1 && !fits(current, width)) {
+                int cut = current.length() - 1;
+                while (cut > 1 && !fits(current.substring(0, cut), width)) {
+                    cut--;
+                }
+                lines.add(current.substring(0, cut));
+                current = current.substring(cut);
+            }
+        }
+        if (!current.isEmpty() || lines.isEmpty()) {
+            lines.add(current);
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    private static boolean fits(String text, float width) {
+        return CELL_FONT.getWidthPoint(text, FONT_SIZE) <= width;
+    }
+
+    private static Layout buildLayout() {
+        float left = MARGIN;
+        float columnWidth = (PAGE.getWidth() - 2 * MARGIN) / HEADERS.length;
+        float[] columnX = new float[HEADERS.length + 1];
+        for (int i = 0; i <= HEADERS.length; i++) {
+            columnX[i] = left + i * columnWidth;
+        }
+
+        String[][] headerLines = new String[HEADERS.length][];
+        int lines = 1;
+        for (int i = 0; i < HEADERS.length; i++) {
+            headerLines[i] = wrap(HEADERS[i], columnWidth - 2 * PADDING);
+            lines = Math.max(lines, headerLines[i].length);
+        }
+        return new Layout(columnX, headerLines, rowHeight(lines));
+    }
+
+    private static BaseFont cellFont() {
+        try {
+            return BaseFont.createFont(BaseFont.HELVETICA, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudo cargar la fuente del comprobante.", e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.Benchmarks;
+
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Services.VoucherRenderer;
+import com.lowagie.text.Document;
+import com.lowagie.text.Font;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Comprobante de un grupo de 6 personas: generación anterior (todo se arma en cada llamada) contra VoucherRenderer.
+// mvn -Pbenchmark test-compile exec:exec -Djmh.args="VoucherRendererBenchmark -prof gc"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VoucherRendererBenchmark {
+
+    private final VoucherRenderer renderer = new VoucherRenderer();
+
+    private ReservationEntity reservation;
+
+    private List<List<Object>> detail;
+
+    @Setup
+    public void setUp() {
+        reservation = new ReservationEntity("12345678-9", "", LocalDateTime.of(2025, 4, 20, 15, 0), 15, 6, null);
+        reservation.setId(4242L);
+        detail = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            detail.add(List.of("Participante " + i, 20000, 20, 10, i == 0 ? "Sí" : "No", 0, i == 0 ? 50 : 20,
+                    i == 0 ? 10000 : 16000, i == 0 ? 1900 : 3040, i == 0 ? 11900 : 19040));
+        }
+    }
+
+    @Benchmark
+    public byte[] legacy() {
+        return legacyPdf(reservation, "Ana", detail);
+    }
+
+    @Benchmark
+    public byte[] renderer() {
+        return renderer.render(reservation, "Ana", detail);
+    }
+
+    // Copia de ReservationService.generatePDF antes de VoucherRenderer
+    private static byte[] legacyPdf(ReservationEntity reservation, String ownerName, List<List<Object>> detail) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, out);
+        document.open();
+
+        Font font = new Font(Font.HELVETICA, 14, Font.BOLD);
+        document.add(new Paragraph("Comprobante de Reserva - KartingRM", font));
+        document.add(new Paragraph(" "));
+
+        document.add(new Paragraph("Código de reserva: RES-" + reservation.getId()));
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+        document.add(new Paragraph("Fecha y hora: " + reservation.getReservationDate().format(formatter)));
+        document.add(new Paragraph("N° de vueltas o Tiempo máximo: " + reservation.getLapsOrTime()));
+        document.add(new Paragraph("Cantidad de personas: " + reservation.getNumberPeople()));
+        document.add(new Paragraph("Persona que hizo la reservación: " + ownerName));
+        document.add(new Paragraph(" "));
+
+        PdfPTable table = new PdfPTable(10);
+        table.setWidthPercentage(100);
+        Stream.of("Nombre", "Tarifa base", "Desc. Grupo", "Desc. Frec.", "Desc. Cumple.", "Desc. Especial",
+                        "Desc. Aplicado", "Subtotal", "IVA (19%)", "Total")
+                .forEach(h -> {
+                    PdfPCell cell = new PdfPCell(new Phrase(h));
+                    cell.setBackgroundColor(Color.LIGHT_GRAY);
+                    table.addCell(cell);
+                });
+        for (List<Object> fila : detail) {
+            for (Object col : fila) {
+                table.addCell(String.valueOf(col));
+            }
+        }
+
+        document.add(table);
+        document.close();
+        return out.toByteArray();
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.demo.Controllers;
 
 import com.example.demo.Entities.CustomerEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Services.CustomerCache;
 import com.example.demo.Services.CustomerService;
+import com.example.demo.Services.ReservationService;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mockito;
@@ -11,6 +14,10 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import static org.hamcrest.Matchers.*;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -25,6 +32,12 @@ public class CustomerControllerTest {
     @MockitoBean
     private CustomerService customerService;
 
+    @MockitoBean
+    private ReservationService reservationService;
+
+    @MockitoBean
+    private CustomerCache customerCache;
+
     @InjectMocks
     private CustomerController controller;
 
@@ -143,6 +156,18 @@ public class CustomerControllerTest {
                 .andExpect(jsonPath("$.name", is("User Rut")));
     }
 
+    @Test
+    public void getCacheStats_ShouldReturnHitsAndMisses() throws Exception {
+        Map<String, Map<String, Object>> stats = new HashMap<>();
+        stats.put("byRut", Map.of("hits", 8, "misses", 2));
+        given(customerCache.getStats()).willReturn(stats);
+
+        mockMvc.perform(get("/user/admin/cache-stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.byRut.hits", is(8)))
+                .andExpect(jsonPath("$.byRut.misses", is(2)));
+    }
+
     @Test
     public void login_ShouldReturnCustomer_WhenValidCredentials() throws Exception {
         CustomerEntity user = new CustomerEntity();
@@ -168,5 +193,28 @@ public class CustomerControllerTest {
                 .andExpect(jsonPath("$.rut", is("12345678-9")));
     }
 
-}
+    @Test
+    public void getUserReservations_ShouldReturnPageWithCursor() throws Exception {
+        ReservationEntity reservation = new ReservationEntity();
+        reservation.setId(7L);
+        Map<String, Object> page = new HashMap<>();
+        page.put("reservations", List.of(reservation));
+        page.put("nextCursor", "2025-04-19T10:00_7");
+
+        given(reservationService.getReservationsByCustomer("12345678-9", null, 1)).willReturn(page);
+
+        mockMvc.perform(get("/user/12345678-9/reservations").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reservations", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor", is("2025-04-19T10:00_7")));
+    }
 
+    @Test
+    public void getUserReservations_ShouldReturnBadRequest_WhenCursorIsInvalid() throws Exception {
+        given(reservationService.getReservationsByCustomer("12345678-9", "ayer", 20))
+                .willThrow(new IllegalArgumentException("Cursor de paginación inválido."));
+
+        mockMvc.perform(get("/user/12345678-9/reservations").param("cursor", "ayer"))
+                .andExpect(status().isBadRequest());
+    }
+}
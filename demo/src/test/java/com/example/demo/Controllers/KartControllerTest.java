@@ -1,6 +1,7 @@
 package com.example.demo.Controllers;
 
 import com.example.demo.Entities.KartEntity;
+import com.example.demo.Services.KartMaintenanceService;
 import com.example.demo.Services.KartService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -26,6 +27,9 @@ public class KartControllerTest {
     @MockitoBean
     private KartService kartService;
 
+    @MockitoBean
+    private KartMaintenanceService kartMaintenanceService;
+
     @Test
     public void saveKart_ShouldReturnSavedKart() throws Exception {
         KartEntity kart = new KartEntity();
@@ -97,4 +101,32 @@ public class KartControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("true"));
     }
+
+    @Test
+    public void resyncAvailableKarts_ShouldReturnCount() throws Exception {
+        given(kartService.resyncAvailableKarts()).willReturn(12);
+
+        mockMvc.perform(post("/kart/admin/resync"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("12"));
+    }
+
+    @Test
+    public void scheduleMaintenance_ShouldReturnBadRequest_WhenWindowIsInvalid() throws Exception {
+        given(kartMaintenanceService.scheduleMaintenance(Mockito.any()))
+                .willThrow(new IllegalArgumentException("La mantención debe terminar después de empezar."));
+
+        String json = """
+                {
+                    "kartId": 1,
+                    "startTime": "2025-04-26T16:00:00",
+                    "endTime": "2025-04-26T15:00:00"
+                }
+                """;
+
+        mockMvc.perform(post("/kart/maintenance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isBadRequest());
+    }
 }
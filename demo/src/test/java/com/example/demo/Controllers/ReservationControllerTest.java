@@ -1,7 +1,19 @@
 package com.example.demo.Controllers;
 
 import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Entities.VoucherOutboxEntity;
+import com.example.demo.Services.CustomerVisitService;
+import com.example.demo.Services.DaySheetService;
+import com.example.demo.Services.IncomeReportExporter;
+import com.example.demo.Services.PricingEngine;
+import com.example.demo.Services.ReservationLedgerExporter;
+import com.example.demo.Services.ReservationLineService;
+import com.example.demo.Services.ReservationParticipantService;
+import com.example.demo.Services.ReservationBusyException;
 import com.example.demo.Services.ReservationService;
+import com.example.demo.Services.RevenueRollupService;
+import com.example.demo.Services.VoucherCache;
+import com.example.demo.Services.VoucherDispatchService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +21,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -31,6 +44,33 @@ public class ReservationControllerTest {
     @MockitoBean
     private ReservationService reservationService;
 
+    @MockitoBean
+    private VoucherDispatchService voucherDispatchService;
+
+    @MockitoBean
+    private ReservationLineService reservationLineService;
+
+    @MockitoBean
+    private RevenueRollupService revenueRollupService;
+
+    @MockitoBean
+    private CustomerVisitService customerVisitService;
+
+    @MockitoBean
+    private ReservationParticipantService reservationParticipantService;
+
+    @MockitoBean
+    private IncomeReportExporter incomeReportExporter;
+
+    @MockitoBean
+    private ReservationLedgerExporter reservationLedgerExporter;
+
+    @MockitoBean
+    private VoucherCache voucherCache;
+
+    @MockitoBean
+    private DaySheetService daySheetService;
+
     @Test
     public void createReservation_ShouldReturnReservation() throws Exception {
         ReservationEntity mockReservation = new ReservationEntity();
@@ -97,6 +137,102 @@ public class ReservationControllerTest {
                 .andExpect(jsonPath("$.rutUser", is("11111111-1")));
     }
 
+    @Test
+    public void getAvailability_ShouldReturnStartTimesPerDay() throws Exception {
+        given(reservationService.getAvailability(LocalDate.of(2030, 4, 26), LocalDate.of(2030, 4, 27), 15, 3))
+                .willReturn(Map.of("2030-04-26", List.of("14:00", "14:05"), "2030-04-27", List.of()));
+
+        mockMvc.perform(get("/reservation/availability")
+                        .param("from", "2030-04-26")
+                        .param("to", "2030-04-27")
+                        .param("lapsOrTime", "15")
+                        .param("people", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['2030-04-26']", contains("14:00", "14:05")))
+                .andExpect(jsonPath("$['2030-04-27']", empty()));
+    }
+
+    @Test
+    public void getAvailability_WithInvalidRange_ShouldReturnBadRequest() throws Exception {
+        given(reservationService.getAvailability(LocalDate.of(2030, 4, 27), LocalDate.of(2030, 4, 26), 10, 1))
+                .willThrow(new IllegalArgumentException("Rango de fechas inválido."));
+
+        mockMvc.perform(get("/reservation/availability")
+                        .param("from", "2030-04-27")
+                        .param("to", "2030-04-26")
+                        .param("lapsOrTime", "10"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Rango de fechas inválido."));
+    }
+
+    @Test
+    public void createReservations_ShouldReturnResultPerEntry() throws Exception {
+        given(reservationService.makeReservations(Mockito.anyList(), Mockito.isNull(), Mockito.isNull(), Mockito.isNull()))
+                .willReturn(List.of(
+                        Map.of("index", 0, "status", "BOOKED", "id", 7),
+                        Map.of("index", 1, "status", "REJECTED", "message", "No quedan karts libres para ese horario.")));
+
+        mockMvc.perform(post("/reservation/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"rutUser\":\"1\",\"reservationDate\":\"2025-04-22T15:00:00\",\"lapsOrTime\":10,\"numberPeople\":1},"
+                                + "{\"rutUser\":\"2\",\"reservationDate\":\"2025-04-22T15:00:00\",\"lapsOrTime\":10,\"numberPeople\":9}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status", is("BOOKED")))
+                .andExpect(jsonPath("$[1].message", is("No quedan karts libres para ese horario.")));
+    }
+
+    @Test
+    public void createReservations_WhenInvalid_ShouldReturnReason() throws Exception {
+        given(reservationService.makeReservations(Mockito.anyList(), Mockito.isNull(), Mockito.isNull(), Mockito.isNull()))
+                .willThrow(new IllegalArgumentException("El lote debe tener entre 1 y 100 reservas."));
+
+        mockMvc.perform(post("/reservation/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("El lote debe tener entre 1 y 100 reservas."));
+    }
+
+    @Test
+    public void createReservations_WhenDayStaysBusy_ShouldReturnConflict() throws Exception {
+        given(reservationService.makeReservations(Mockito.anyList(), Mockito.isNull(), Mockito.isNull(), Mockito.isNull()))
+                .willThrow(new ReservationBusyException("El horario se está reservando en este momento, intenta nuevamente."));
+
+        mockMvc.perform(post("/reservation/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"rutUser\":\"1\",\"reservationDate\":\"2025-04-22T15:00:00\",\"lapsOrTime\":10,\"numberPeople\":1}]"))
+                .andExpect(status().isConflict())
+                .andExpect(content().string(containsString("intenta nuevamente")));
+    }
+
+    @Test
+    public void quoteReservation_ShouldReturnBreakdown() throws Exception {
+        PricingEngine.ParticipantPrice ana = new PricingEngine.ParticipantPrice("1", "Ana", 15000, 0, 0, false, 0, 0, 15000, 2850, 17850);
+        given(reservationService.quoteReservation(Mockito.any(ReservationEntity.class), Mockito.isNull(), Mockito.isNull(), Mockito.isNull()))
+                .willReturn(new PricingEngine.PriceBreakdown(15000, false, 0, List.of(ana), 17850));
+
+        mockMvc.perform(post("/reservation/quote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"rutUser\":\"1\",\"reservationDate\":\"2025-04-22T15:00:00\",\"lapsOrTime\":10,\"numberPeople\":1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalWithTax", is(17850.0)))
+                .andExpect(jsonPath("$.participants[0].name", is("Ana")))
+                .andExpect(jsonPath("$.participants[0].totalWithTax", is(17850.0)));
+    }
+
+    @Test
+    public void quoteReservation_WhenInvalid_ShouldReturnBadRequest() throws Exception {
+        given(reservationService.quoteReservation(Mockito.any(ReservationEntity.class), Mockito.any(), Mockito.any(), Mockito.any()))
+                .willThrow(new IllegalArgumentException("La reserva está fuera del horario de atención."));
+
+        mockMvc.perform(post("/reservation/quote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"rutUser\":\"1\",\"reservationDate\":\"2025-04-22T09:00:00\",\"lapsOrTime\":10,\"numberPeople\":1}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("La reserva está fuera del horario de atención."));
+    }
+
     @Test
     public void getIncomeFromLapsOrTime_ShouldReturnMap() throws Exception {
         Map<String, Map<String, Double>> mockResponse = Map.of(
@@ -130,42 +266,254 @@ public class ReservationControllerTest {
     }
 
     @Test
-    public void getAllReservations_ShouldReturnList() throws Exception {
+    public void exportIncomeFromLapsOrTime_ShouldStreamWorkbook() throws Exception {
+        IncomeReportExporter.Report report = new IncomeReportExporter.Report(LocalDate.of(2024, 1, 1), LocalDate.of(2025, 12, 31),
+                "Vueltas o tiempo", Map.of(), r -> "");
+        given(incomeReportExporter.lapsOrTimeReport(LocalDate.of(2024, 1, 1), LocalDate.of(2025, 12, 31))).willReturn(report);
+
+        MvcResult result = mockMvc.perform(get("/reservation/income-lapsOrTime.xlsx")
+                        .param("startDate", "2024-01-01")
+                        .param("endDate", "2025-12-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", IncomeReportExporter.CONTENT_TYPE))
+                .andExpect(header().string("Content-Disposition", containsString("ingresos-vueltas-2024-01-01-2025-12-31.xlsx")));
+        Mockito.verify(incomeReportExporter).write(Mockito.eq(report), Mockito.any());
+    }
+
+    @Test
+    public void exportIncomePerPerson_WithInvalidRange_ShouldReturnBadRequest() throws Exception {
+        given(incomeReportExporter.personsReport(LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1)))
+                .willThrow(new IllegalArgumentException("La fecha de término debe ser posterior a la de inicio."));
+
+        mockMvc.perform(get("/reservation/income-persons.xlsx")
+                        .param("startDate", "2025-02-01")
+                        .param("endDate", "2025-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("La fecha de término debe ser posterior a la de inicio."));
+    }
+
+    @Test
+    public void getVoucherPdf_ShouldReturnPdfWithETag() throws Exception {
+        given(voucherCache.voucher(7L)).willReturn(new VoucherCache.Voucher("\"abc\"", new byte[]{1, 2, 3, 4, 5}));
+
+        mockMvc.perform(get("/reservation/7/voucher.pdf"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc\""))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+                .andExpect(content().bytes(new byte[]{1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    public void getVoucherPdf_WithMatchingETag_ShouldReturnNotModified() throws Exception {
+        given(voucherCache.voucher(7L)).willReturn(new VoucherCache.Voucher("\"abc\"", new byte[]{1, 2, 3, 4, 5}));
+
+        mockMvc.perform(get("/reservation/7/voucher.pdf").header("If-None-Match", "\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    public void getVoucherPdf_WithRange_ShouldReturnPartialContent() throws Exception {
+        given(voucherCache.voucher(7L)).willReturn(new VoucherCache.Voucher("\"abc\"", new byte[]{1, 2, 3, 4, 5}));
+
+        mockMvc.perform(get("/reservation/7/voucher.pdf").header("Range", "bytes=1-2"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 1-2/5"))
+                .andExpect(content().bytes(new byte[]{2, 3}));
+    }
+
+    @Test
+    public void getVoucherPdf_WhenReservationMissing_ShouldReturnNotFound() throws Exception {
+        given(voucherCache.voucher(99L)).willReturn(null);
+
+        mockMvc.perform(get("/reservation/99/voucher.pdf"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void getDaySheet_WhenPrerendered_ShouldServeCachedPdf() throws Exception {
+        given(daySheetService.cached(LocalDate.of(2025, 4, 21))).willReturn(new byte[]{7, 8});
+
+        MvcResult result = mockMvc.perform(get("/reservation/day-sheet/2025-04-21.pdf"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+                .andExpect(content().bytes(new byte[]{7, 8}));
+        Mockito.verify(daySheetService, Mockito.never()).write(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void getDaySheet_WhenNotPrerendered_ShouldStreamFreshSheet() throws Exception {
+        given(daySheetService.cached(LocalDate.of(2025, 4, 22))).willReturn(null);
+
+        MvcResult result = mockMvc.perform(get("/reservation/day-sheet/2025-04-22.pdf"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", containsString("hoja-pista-2025-04-22.pdf")));
+        Mockito.verify(daySheetService).write(Mockito.eq(LocalDate.of(2025, 4, 22)), Mockito.any());
+    }
+
+    @Test
+    public void exportLedger_ShouldStreamCsv() throws Exception {
+        MvcResult result = mockMvc.perform(get("/reservation/ledger.csv")
+                        .param("startDate", "2025-01-01")
+                        .param("endDate", "2025-03-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", ReservationLedgerExporter.CONTENT_TYPE))
+                .andExpect(header().string("Content-Disposition", containsString("reservas-2025-01-01-2025-03-31.csv")));
+        Mockito.verify(reservationLedgerExporter).write(Mockito.eq(LocalDate.of(2025, 1, 1)), Mockito.eq(LocalDate.of(2025, 3, 31)), Mockito.any());
+    }
+
+    @Test
+    public void exportLedger_WithInvalidRange_ShouldReturnBadRequest() throws Exception {
+        Mockito.doThrow(new IllegalArgumentException("La fecha de término debe ser posterior a la de inicio."))
+                .when(reservationLedgerExporter).validateRange(LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1));
+
+        mockMvc.perform(get("/reservation/ledger.csv")
+                        .param("startDate", "2025-02-01")
+                        .param("endDate", "2025-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("La fecha de término debe ser posterior a la de inicio."));
+        Mockito.verify(reservationLedgerExporter, Mockito.never()).write(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void getAllReservations_ShouldStreamPageOfWindow() throws Exception {
         ReservationEntity res1 = new ReservationEntity();
         res1.setId(1L);
         ReservationEntity res2 = new ReservationEntity();
         res2.setId(2L);
+        Map<String, Object> page = new HashMap<>();
+        page.put("reservations", List.of(res1, res2));
+        page.put("nextCursor", "2025-04-22T10:00_2");
 
-        given(reservationService.getAllReservations()).willReturn(List.of(res1, res2));
+        given(reservationService.getReservationsPage(LocalDate.of(2025, 4, 21), LocalDate.of(2025, 4, 27), null, 200))
+                .willReturn(page);
 
+        MvcResult result = mockMvc.perform(get("/reservation/all").param("start", "2025-04-21").param("end", "2025-04-27"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reservations", hasSize(2)))
+                .andExpect(jsonPath("$.nextCursor", is("2025-04-22T10:00_2")));
+    }
+
+    @Test
+    public void getAllReservations_ShouldRequireWindow() throws Exception {
         mockMvc.perform(get("/reservation/all"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getAllReservations_ShouldReturnBadRequest_WhenWindowTooLarge() throws Exception {
+        given(reservationService.getReservationsPage(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31), null, 200))
+                .willThrow(new IllegalArgumentException("El rango no puede superar los 62 días."));
+
+        mockMvc.perform(get("/reservation/all").param("start", "2025-01-01").param("end", "2025-12-31"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("El rango no puede superar los 62 días."));
+    }
+
+    @Test
+    public void getAllReservationsByDuration_ShouldStreamRackEvents() throws Exception {
+        ReservationEntity reservation = new ReservationEntity();
+        reservation.setId(1L);
+        Map<String, Object> page = new HashMap<>();
+        page.put("reservations", List.of(reservation));
+        page.put("nextCursor", null);
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("start", "2025-04-21T14:00");
+        event.put("end", "2025-04-21T14:35");
+        event.put("title", "Juan");
+
+        given(reservationService.getReservationsPage(LocalDate.of(2025, 4, 21), LocalDate.of(2025, 4, 27), null, 50))
+                .willReturn(page);
+        given(reservationService.resolveOwnerNames(List.of(reservation))).willReturn(Map.of("1", "Juan"));
+        given(reservationService.toRackEvent(reservation, Map.of("1", "Juan"))).willReturn(event);
+
+        MvcResult result = mockMvc.perform(get("/reservation/allByDuration")
+                        .param("start", "2025-04-21").param("end", "2025-04-27").param("size", "50"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reservations", hasSize(1)))
+                .andExpect(jsonPath("$.reservations[0].title", is("Juan")))
+                .andExpect(jsonPath("$.reservations[0].end", is("2025-04-21T14:35")))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+    }
+
+    @Test
+    public void getVoucherStatus_ShouldReturnOutboxEntry() throws Exception {
+        VoucherOutboxEntity entry = new VoucherOutboxEntity(1L, LocalDateTime.of(2025, 5, 1, 12, 0));
+
+        given(voucherDispatchService.getVoucherStatus(1L)).willReturn(entry);
+
+        mockMvc.perform(get("/reservation/1/voucher-status"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(2)));
+                .andExpect(jsonPath("$.status", is("PENDING")));
     }
 
     @Test
-    public void getAllReservationsByDuration_ShouldReturnList() throws Exception {
-        // Simula dos resultados del servicio
-        Map<String, Object> reservation1 = new HashMap<>();
-        reservation1.put("lapsOrTime", 10);
-        reservation1.put("total", 2);
+    public void getVoucherStatus_ShouldReturnNotFound_WhenNoEntry() throws Exception {
+        given(voucherDispatchService.getVoucherStatus(9L)).willReturn(null);
 
-        Map<String, Object> reservation2 = new HashMap<>();
-        reservation2.put("lapsOrTime", 15);
-        reservation2.put("total", 5);
+        mockMvc.perform(get("/reservation/9/voucher-status"))
+                .andExpect(status().isNotFound());
+    }
 
-        List<Map<String, Object>> mockList = List.of(reservation1, reservation2);
+    @Test
+    public void backfillReservationLines_ShouldReturnCreatedCount() throws Exception {
+        given(reservationLineService.backfillFromGroupDetail()).willReturn(12);
 
-        given(reservationService.getAllReservationsByDuration()).willReturn(mockList);
+        mockMvc.perform(post("/reservation/admin/lines/backfill"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("12"));
+    }
 
-        mockMvc.perform(get("/reservation/allByDuration")
-                        .contentType(MediaType.APPLICATION_JSON))
+    @Test
+    public void rebuildRevenueRollups_ShouldReturnRowCount() throws Exception {
+        given(revenueRollupService.rebuild()).willReturn(7);
+
+        mockMvc.perform(post("/reservation/admin/rollups/rebuild"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(2)))
-                .andExpect(jsonPath("$[0].lapsOrTime", is(10)))
-                .andExpect(jsonPath("$[0].total", is(2)))
-                .andExpect(jsonPath("$[1].lapsOrTime", is(15)))
-                .andExpect(jsonPath("$[1].total", is(5)));
+                .andExpect(content().string("7"));
     }
 
+    @Test
+    public void rebuildCustomerVisits_ShouldReturnRowCount() throws Exception {
+        given(customerVisitService.rebuild()).willReturn(40);
+
+        mockMvc.perform(post("/reservation/admin/visits/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("40"));
+    }
+
+    @Test
+    public void backfillReservationParticipants_ShouldReturnCreatedCount() throws Exception {
+        given(reservationParticipantService.backfillFromRutsUsers()).willReturn(30);
+
+        mockMvc.perform(post("/reservation/admin/participants/backfill"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("30"));
+    }
 }
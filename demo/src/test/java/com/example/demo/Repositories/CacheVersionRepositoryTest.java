@@ -0,0 +1,34 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.CacheVersionEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class CacheVersionRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CacheVersionRepository cacheVersionRepository;
+
+    @Test
+    void bumpVersion_incrementsOnlyExistingRow() {
+        assertThat(cacheVersionRepository.bumpVersion("customer")).isZero();
+        assertThat(cacheVersionRepository.findVersion("customer")).isNull();
+
+        entityManager.persistAndFlush(new CacheVersionEntity("customer", 0));
+        cacheVersionRepository.bumpVersion("customer");
+        cacheVersionRepository.bumpVersion("customer");
+        entityManager.clear();
+
+        assertThat(cacheVersionRepository.findVersion("customer")).isEqualTo(2L);
+    }
+}
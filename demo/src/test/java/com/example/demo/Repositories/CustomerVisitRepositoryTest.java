@@ -0,0 +1,63 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.CustomerVisitEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class CustomerVisitRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CustomerVisitRepository customerVisitRepository;
+
+    @Test
+    public void whenSumVisitsByRut_thenOnlyCountDaysInRange() {
+        // given
+        entityManager.persist(new CustomerVisitEntity("1", LocalDate.of(2025, 3, 31), 4));
+        entityManager.persist(new CustomerVisitEntity("1", LocalDate.of(2025, 4, 2), 1));
+        entityManager.persist(new CustomerVisitEntity("1", LocalDate.of(2025, 4, 10), 2));
+        entityManager.persist(new CustomerVisitEntity("1", LocalDate.of(2025, 4, 21), 5));
+        entityManager.persist(new CustomerVisitEntity("2", LocalDate.of(2025, 4, 5), 1));
+        entityManager.persist(new CustomerVisitEntity("3", LocalDate.of(2025, 4, 5), 1));
+        entityManager.flush();
+
+        // when
+        List<CustomerVisitRepository.RutVisits> found = customerVisitRepository.sumVisitsByRut(
+                List.of("1", "2"), LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 20));
+
+        // then
+        assertThat(found).extracting(CustomerVisitRepository.RutVisits::getRut, CustomerVisitRepository.RutVisits::getVisits)
+                .containsExactlyInAnyOrder(tuple("1", 3L), tuple("2", 1L));
+    }
+
+    @Test
+    public void whenAddVisits_thenOnlyExistingRowsOfThatDayChange() {
+        // given
+        LocalDate day = LocalDate.of(2025, 4, 20);
+        entityManager.persist(new CustomerVisitEntity("1", day, 1));
+        entityManager.persist(new CustomerVisitEntity("1", day.plusDays(1), 1));
+        entityManager.flush();
+
+        // when
+        int updated = customerVisitRepository.addVisits(List.of("1", "2"), day, 1);
+        entityManager.clear();
+
+        // then
+        assertThat(updated).isEqualTo(1);
+        assertThat(customerVisitRepository.findAll()).extracting(CustomerVisitEntity::getVisitDate, CustomerVisitEntity::getVisits)
+                .containsExactlyInAnyOrder(tuple(day, 2), tuple(day.plusDays(1), 1));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.KartEntity;
+import com.example.demo.Entities.KartMaintenanceEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class KartMaintenanceRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private KartMaintenanceRepository kartMaintenanceRepository;
+
+    @Test
+    void whenFindOverlappingForAvailableKarts_thenSkipKartsOutOfService() {
+        KartEntity available = entityManager.persist(new KartEntity("K001", true, "Sodikart"));
+        KartEntity outOfService = entityManager.persist(new KartEntity("K002", false, "Sodikart"));
+        LocalDateTime day = LocalDateTime.of(2025, 4, 26, 0, 0);
+        KartMaintenanceEntity inWindow = entityManager.persist(new KartMaintenanceEntity(available.getId(), day.withHour(15), day.withHour(17), "Frenos"));
+        entityManager.persist(new KartMaintenanceEntity(outOfService.getId(), day.withHour(15), day.withHour(17), "Motor"));
+        entityManager.persist(new KartMaintenanceEntity(available.getId(), day.plusDays(1).withHour(10), day.plusDays(1).withHour(12), "Neumáticos"));
+        entityManager.flush();
+
+        List<KartMaintenanceEntity> found = kartMaintenanceRepository.findOverlappingForAvailableKarts(day, day.plusDays(1));
+
+        assertThat(found).extracting(KartMaintenanceEntity::getId).containsExactly(inWindow.getId());
+        assertThat(kartMaintenanceRepository.findOverlapping(day, day.plusDays(1))).hasSize(2);
+    }
+}
@@ -48,4 +48,24 @@ public class KartRepositoryTest {
         assertThat(unavailableKarts).hasSize(1);
         assertThat(unavailableKarts.get(0).getCode()).isEqualTo("K004");
     }
+
+    @Test
+    public void whenCountByAvailable_thenCountWithoutLoadingKarts() {
+        entityManager.persist(new KartEntity("K005", true, "Modelo E"));
+        entityManager.persist(new KartEntity("K006", true, "Modelo F"));
+        entityManager.persist(new KartEntity("K007", false, "Modelo G"));
+        entityManager.flush();
+
+        assertThat(kartRepository.countByAvailable(true)).isEqualTo(2);
+    }
+
+    @Test
+    public void whenFindByIdForUpdate_thenReturnStoredKart() {
+        KartEntity kart = entityManager.persist(new KartEntity("K008", true, "Modelo H"));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(kartRepository.findByIdForUpdate(kart.getId())).get().extracting(KartEntity::isAvailable).isEqualTo(true);
+        assertThat(kartRepository.findByIdForUpdate(-1L)).isEmpty();
+    }
 }
@@ -0,0 +1,58 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.MonthlyRevenueRollupEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class MonthlyRevenueRollupRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private MonthlyRevenueRollupRepository rollupRepository;
+
+    @Test
+    public void whenAddToRollup_thenTotalsAreIncrementedInPlace() {
+        // given
+        entityManager.persist(new MonthlyRevenueRollupEntity("2025-04", 10, "1-2 personas", 1000, 1));
+        entityManager.flush();
+
+        // when
+        int updated = rollupRepository.addToRollup("2025-04", 10, "1-2 personas", 500, 1);
+        int missing = rollupRepository.addToRollup("2025-04", 15, "1-2 personas", 500, 1);
+        entityManager.clear();
+
+        // then
+        assertThat(updated).isEqualTo(1);
+        assertThat(missing).isEqualTo(0);
+        MonthlyRevenueRollupEntity found = rollupRepository.findByRevenueMonthBetween("2025-04", "2025-04").get(0);
+        assertThat(found.getTotal()).isEqualTo(1500.0);
+        assertThat(found.getReservations()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenFindByRevenueMonthBetween_thenReturnOnlyMonthsInRange() {
+        // given
+        entityManager.persist(new MonthlyRevenueRollupEntity("2025-03", 10, "1-2 personas", 100, 1));
+        entityManager.persist(new MonthlyRevenueRollupEntity("2025-04", 10, "1-2 personas", 200, 1));
+        entityManager.persist(new MonthlyRevenueRollupEntity("2025-12", 10, "1-2 personas", 300, 1));
+        entityManager.persist(new MonthlyRevenueRollupEntity("2026-01", 10, "1-2 personas", 400, 1));
+        entityManager.flush();
+
+        // when
+        List<MonthlyRevenueRollupEntity> found = rollupRepository.findByRevenueMonthBetween("2025-04", "2025-12");
+
+        // then
+        assertThat(found).extracting(MonthlyRevenueRollupEntity::getRevenueMonth).containsExactlyInAnyOrder("2025-04", "2025-12");
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.ReservationDayEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ReservationDayRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ReservationDayRepository reservationDayRepository;
+
+    @Test
+    public void whenIncrementVersion_thenFindVersionReturnsNewValue() {
+        // given
+        LocalDate day = LocalDate.of(2025, 4, 26);
+        entityManager.persistAndFlush(new ReservationDayEntity(day, 4L));
+
+        // when
+        int updated = reservationDayRepository.incrementVersion(day);
+
+        // then
+        assertThat(updated).isEqualTo(1);
+        assertThat(reservationDayRepository.findVersion(day)).isEqualTo(5L);
+    }
+
+    @Test
+    public void whenDayHasNoRow_thenNothingIsIncremented() {
+        LocalDate day = LocalDate.of(2025, 4, 27);
+
+        assertThat(reservationDayRepository.incrementVersion(day)).isZero();
+        assertThat(reservationDayRepository.findVersion(day)).isNull();
+    }
+
+    @Test
+    public void whenInsertFirstVersionTwice_thenSecondInsertFails() {
+        LocalDate day = LocalDate.of(2025, 4, 29);
+
+        assertThat(reservationDayRepository.insertFirstVersion(day)).isEqualTo(1);
+        assertThat(reservationDayRepository.findVersion(day)).isEqualTo(1L);
+        // Una segunda réplica que crea la misma fila choca con la clave primaria en vez de sobrescribirla
+        assertThrows(DataIntegrityViolationException.class, () -> reservationDayRepository.insertFirstVersion(day));
+    }
+
+    @Test
+    public void whenFindByReservationDayBetween_thenOnlyDaysInRangeAreReturned() {
+        entityManager.persist(new ReservationDayEntity(LocalDate.of(2025, 4, 25), 1L));
+        entityManager.persist(new ReservationDayEntity(LocalDate.of(2025, 4, 26), 2L));
+        entityManager.persist(new ReservationDayEntity(LocalDate.of(2025, 4, 28), 3L));
+        entityManager.flush();
+
+        assertThat(reservationDayRepository.findByReservationDayBetween(LocalDate.of(2025, 4, 26), LocalDate.of(2025, 4, 28)))
+                .extracting(ReservationDayEntity::getVersion)
+                .containsExactlyInAnyOrder(2L, 3L);
+    }
+}
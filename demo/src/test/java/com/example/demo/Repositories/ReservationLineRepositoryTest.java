@@ -0,0 +1,90 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.ReservationLineEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ReservationLineRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ReservationLineRepository reservationLineRepository;
+
+    private ReservationLineEntity line(Long reservationId, int position, double total) {
+        ReservationLineEntity line = new ReservationLineEntity();
+        line.setReservationId(reservationId);
+        line.setPosition(position);
+        line.setTotal(total);
+        return line;
+    }
+
+    @Test
+    public void whenFindByReservationId_thenReturnLinesInOrder() {
+        // given
+        entityManager.persist(line(1L, 1, 200));
+        entityManager.persist(line(1L, 0, 100));
+        entityManager.persist(line(2L, 0, 300));
+        entityManager.flush();
+
+        // when
+        List<ReservationLineEntity> found = reservationLineRepository.findByReservationIdOrderByPosition(1L);
+
+        // then
+        assertThat(found).extracting(ReservationLineEntity::getTotal).containsExactly(100.0, 200.0);
+    }
+
+    @Test
+    public void whenDeleteByReservationId_thenOnlyThatReservationLosesLines() {
+        // given
+        entityManager.persist(line(1L, 0, 100));
+        entityManager.persist(line(2L, 0, 300));
+        entityManager.flush();
+
+        // when
+        int deleted = reservationLineRepository.deleteByReservationId(1L);
+
+        // then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(reservationLineRepository.findAll()).extracting(ReservationLineEntity::getReservationId).containsExactly(2L);
+    }
+
+    @Test
+    public void whenSumTotalByReservationId_thenAddLineTotals() {
+        // given
+        entityManager.persist(line(1L, 0, 100));
+        entityManager.persist(line(1L, 1, 250));
+        entityManager.persist(line(2L, 0, 300));
+        entityManager.flush();
+
+        // when + then
+        assertThat(reservationLineRepository.sumTotalByReservationId(1L)).isEqualTo(350.0);
+        assertThat(reservationLineRepository.sumTotalByReservationId(9L)).isEqualTo(0.0);
+    }
+
+    @Test
+    public void whenSumTotalsByReservationIds_thenOneRowPerReservation() {
+        entityManager.persist(line(1L, 0, 100));
+        entityManager.persist(line(1L, 1, 200));
+        entityManager.persist(line(2L, 0, 300));
+        entityManager.persist(line(3L, 0, 400));
+        entityManager.flush();
+
+        List<ReservationLineRepository.ReservationTotal> totals = reservationLineRepository.sumTotalsByReservationIds(List.of(1L, 2L));
+
+        assertThat(totals).extracting(ReservationLineRepository.ReservationTotal::getReservationId,
+                        ReservationLineRepository.ReservationTotal::getTotal)
+                .containsExactlyInAnyOrder(tuple(1L, 300.0), tuple(2L, 300.0));
+    }
+}
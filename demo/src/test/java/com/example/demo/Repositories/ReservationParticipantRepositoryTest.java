@@ -0,0 +1,106 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Entities.ReservationParticipantEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ReservationParticipantRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ReservationParticipantRepository reservationParticipantRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Test
+    public void whenCountReservationsByRutInRange_thenGroupByRut() {
+        // given
+        LocalDateTime april = LocalDateTime.of(2025, 4, 10, 15, 0);
+        entityManager.persist(new ReservationParticipantEntity(1L, "1", april, true));
+        entityManager.persist(new ReservationParticipantEntity(1L, "2", april, false));
+        entityManager.persist(new ReservationParticipantEntity(2L, "1", april.plusDays(5), true));
+        entityManager.persist(new ReservationParticipantEntity(3L, "1", april.plusMonths(1), true));
+        entityManager.persist(new ReservationParticipantEntity(3L, "3", april.plusMonths(1), false));
+        entityManager.flush();
+
+        // when
+        List<ReservationParticipantRepository.RutCount> found = reservationParticipantRepository.countReservationsByRutInRange(
+                List.of("1", "2", "3"), LocalDateTime.of(2025, 4, 1, 0, 0), LocalDateTime.of(2025, 4, 30, 23, 59));
+
+        // then
+        assertThat(found).extracting(ReservationParticipantRepository.RutCount::getRut, ReservationParticipantRepository.RutCount::getReservations)
+                .containsExactlyInAnyOrder(tuple("1", 2L), tuple("2", 1L));
+    }
+
+    @Test
+    public void whenFindWithoutParticipantsAfter_thenSkipMigratedReservations() {
+        // given
+        ReservationEntity migrated = entityManager.persist(new ReservationEntity("1", "", LocalDateTime.of(2025, 4, 1, 15, 0), 10, 1, null));
+        ReservationEntity pending = entityManager.persist(new ReservationEntity("2", "3", LocalDateTime.of(2025, 4, 2, 15, 0), 10, 2, null));
+        entityManager.persist(new ReservationParticipantEntity(migrated.getId(), "1", migrated.getReservationDate(), true));
+        entityManager.flush();
+
+        // when
+        List<ReservationEntity> found = reservationRepository.findWithoutParticipantsAfter(0L, Limit.of(10));
+
+        // then
+        assertThat(found).extracting(ReservationEntity::getId).containsExactly(pending.getId());
+    }
+
+    @Test
+    public void whenDeleteByReservationId_thenOnlyThatReservationLosesParticipants() {
+        // given
+        LocalDateTime date = LocalDateTime.of(2025, 4, 10, 15, 0);
+        entityManager.persist(new ReservationParticipantEntity(1L, "1", date, true));
+        entityManager.persist(new ReservationParticipantEntity(2L, "1", date, true));
+        entityManager.flush();
+
+        // when
+        int deleted = reservationParticipantRepository.deleteByReservationId(1L);
+
+        // then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(reservationParticipantRepository.findByReservationId(2L)).hasSize(1);
+    }
+
+    @Test
+    public void whenPagingByParticipant_thenSeekPastCursorNewestFirst() {
+        // given
+        LocalDateTime date = LocalDateTime.of(2025, 4, 10, 15, 0);
+        ReservationEntity oldest = persistWithParticipant("1", date.minusDays(2));
+        ReservationEntity middle = persistWithParticipant("1", date);
+        ReservationEntity newest = persistWithParticipant("1", date.plusDays(3));
+        persistWithParticipant("2", date.plusDays(1));
+        entityManager.flush();
+
+        // when
+        List<ReservationEntity> firstPage = reservationRepository.findLatestByParticipant("1", Limit.of(2));
+        List<ReservationEntity> nextPage = reservationRepository.findByParticipantBefore("1", middle.getReservationDate(), middle.getId(), Limit.of(2));
+
+        // then
+        assertThat(firstPage).extracting(ReservationEntity::getId).containsExactly(newest.getId(), middle.getId());
+        assertThat(nextPage).extracting(ReservationEntity::getId).containsExactly(oldest.getId());
+    }
+
+    private ReservationEntity persistWithParticipant(String rut, LocalDateTime date) {
+        ReservationEntity reservation = entityManager.persist(new ReservationEntity(rut, "", date, 10, 1, null));
+        entityManager.persist(new ReservationParticipantEntity(reservation.getId(), rut, date, true));
+        return reservation;
+    }
+}
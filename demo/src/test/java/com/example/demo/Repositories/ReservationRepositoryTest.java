@@ -1,16 +1,20 @@
 package com.example.demo.Repositories;
 
 import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Entities.ReservationLineEntity;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @DataJpaTest
 @ActiveProfiles("test")
@@ -71,5 +75,120 @@ class ReservationRepositoryTest {
         assertThat(found).extracting(ReservationEntity::getReservationDate)
                 .containsExactlyInAnyOrder(date1, date2);
     }
-}
 
+    @Test
+    public void whenFindWithoutLinesAfter_thenSkipReservationsAlreadyMigrated() {
+        // given
+        ReservationEntity migrated = entityManager.persist(new ReservationEntity("1", "", LocalDateTime.of(2025, 4, 20, 10, 0), 10, 1, "[]"));
+        ReservationEntity pending = entityManager.persist(new ReservationEntity("2", "", LocalDateTime.of(2025, 4, 20, 11, 0), 10, 1, "[]"));
+        ReservationLineEntity line = new ReservationLineEntity();
+        line.setReservationId(migrated.getId());
+        entityManager.persist(line);
+        entityManager.flush();
+
+        // when
+        List<ReservationEntity> found = reservationRepository.findWithoutLinesAfter(0L, Limit.of(10));
+
+        // then
+        assertThat(found).extracting(ReservationEntity::getId).containsExactly(pending.getId());
+    }
+
+    @Test
+    public void whenSumIncomeByMonth_thenGroupLineTotalsInDatabase() {
+        // given
+        ReservationEntity march10 = entityManager.persist(new ReservationEntity("1", "", LocalDateTime.of(2025, 3, 10, 15, 0), 10, 2, null));
+        ReservationEntity march15 = entityManager.persist(new ReservationEntity("2", "", LocalDateTime.of(2025, 3, 20, 15, 0), 15, 6, null));
+        ReservationEntity april10 = entityManager.persist(new ReservationEntity("3", "", LocalDateTime.of(2025, 4, 2, 15, 0), 10, 2, null));
+        persistLine(march10.getId(), 1000);
+        persistLine(march10.getId(), 2000);
+        persistLine(march15.getId(), 5000);
+        persistLine(april10.getId(), 700);
+        entityManager.flush();
+
+        // when
+        List<ReservationRepository.MonthlyIncome> byLaps = reservationRepository.sumIncomeByMonthAndLapsOrTime(
+                LocalDateTime.of(2025, 3, 1, 0, 0), LocalDateTime.of(2025, 3, 31, 23, 59));
+        List<ReservationRepository.MonthlyIncome> byPeople = reservationRepository.sumIncomeByMonthAndNumberPeople(
+                LocalDateTime.of(2025, 3, 1, 0, 0), LocalDateTime.of(2025, 4, 30, 23, 59));
+
+        // then
+        assertThat(byLaps).extracting(ReservationRepository.MonthlyIncome::getCategory, ReservationRepository.MonthlyIncome::getTotal)
+                .containsExactlyInAnyOrder(tuple(10, 3000.0), tuple(15, 5000.0));
+        assertThat(byPeople).extracting(ReservationRepository.MonthlyIncome::getIncomeMonth, ReservationRepository.MonthlyIncome::getCategory,
+                        ReservationRepository.MonthlyIncome::getTotal)
+                .containsExactlyInAnyOrder(tuple(3, 2, 3000.0), tuple(3, 6, 5000.0),
+                        tuple(4, 2, 700.0));
+    }
+
+    @Test
+    public void whenSumRevenueByMonthLapsAndNumberPeople_thenCountReservationsOnce() {
+        // given
+        ReservationEntity first = entityManager.persist(new ReservationEntity("1", "", LocalDateTime.of(2025, 3, 10, 15, 0), 10, 2, null));
+        ReservationEntity second = entityManager.persist(new ReservationEntity("2", "", LocalDateTime.of(2025, 3, 12, 15, 0), 10, 2, null));
+        persistLine(first.getId(), 1000);
+        persistLine(first.getId(), 2000);
+        persistLine(second.getId(), 500);
+        // Reserva sin líneas: cuenta igual que en el acumulado incremental, con total 0
+        entityManager.persist(new ReservationEntity("3", "", LocalDateTime.of(2025, 3, 14, 15, 0), 10, 2, null));
+        entityManager.persist(new ReservationEntity("4", "", LocalDateTime.of(2025, 4, 14, 15, 0), 10, 2, null));
+        entityManager.flush();
+
+        // when
+        List<ReservationRepository.MonthlyRevenue> rows = reservationRepository.sumRevenueByMonthLapsAndNumberPeople();
+
+        // then
+        assertThat(rows).extracting(ReservationRepository.MonthlyRevenue::getIncomeMonth, ReservationRepository.MonthlyRevenue::getTotal,
+                        ReservationRepository.MonthlyRevenue::getReservations)
+                .containsExactlyInAnyOrder(tuple(3, 3500.0, 3L), tuple(4, 0.0, 1L));
+    }
+
+    @Test
+    public void whenFindInWindow_thenPageByDateAndId() {
+        // given
+        LocalDateTime monday = LocalDateTime.of(2025, 4, 21, 10, 0);
+        entityManager.persist(new ReservationEntity("0", "", monday.minusDays(1), 10, 1, null));
+        ReservationEntity first = entityManager.persist(new ReservationEntity("1", "", monday, 10, 1, null));
+        ReservationEntity second = entityManager.persist(new ReservationEntity("2", "", monday.plusDays(1), 10, 1, null));
+        ReservationEntity third = entityManager.persist(new ReservationEntity("3", "", monday.plusDays(6).withHour(21), 10, 1, null));
+        entityManager.persist(new ReservationEntity("4", "", monday.plusDays(7), 10, 1, null));
+        entityManager.flush();
+        LocalDateTime from = monday.toLocalDate().atStartOfDay();
+        LocalDateTime to = from.plusDays(7);
+
+        // when
+        List<ReservationEntity> firstPage = reservationRepository.findInWindow(from, to, Limit.of(2));
+        List<ReservationEntity> nextPage = reservationRepository.findInWindowAfter(from, to, second.getReservationDate(), second.getId(), Limit.of(2));
+
+        // then
+        assertThat(firstPage).extracting(ReservationEntity::getId).containsExactly(first.getId(), second.getId());
+        assertThat(nextPage).extracting(ReservationEntity::getId).containsExactly(third.getId());
+    }
+
+    @Test
+    public void whenStreamInWindow_thenReturnWindowInDateAndIdOrder() {
+        // given
+        LocalDateTime monday = LocalDateTime.of(2025, 4, 21, 10, 0);
+        entityManager.persist(new ReservationEntity("0", "", monday.minusDays(1), 10, 1, null));
+        ReservationEntity later = entityManager.persist(new ReservationEntity("2", "", monday.plusHours(3), 10, 1, null));
+        ReservationEntity first = entityManager.persist(new ReservationEntity("1", "", monday, 10, 1, null));
+        entityManager.persist(new ReservationEntity("3", "", monday.plusDays(1), 10, 1, null));
+        entityManager.flush();
+        LocalDateTime from = monday.toLocalDate().atStartOfDay();
+
+        // when
+        List<Long> ids;
+        try (Stream<ReservationEntity> stream = reservationRepository.streamInWindow(from, from.plusDays(1))) {
+            ids = stream.map(ReservationEntity::getId).toList();
+        }
+
+        // then
+        assertThat(ids).containsExactly(first.getId(), later.getId());
+    }
+
+    private void persistLine(Long reservationId, double total) {
+        ReservationLineEntity line = new ReservationLineEntity();
+        line.setReservationId(reservationId);
+        line.setTotal(total);
+        entityManager.persist(line);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.Repositories;
+
+import com.example.demo.Entities.VoucherOutboxEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class VoucherOutboxRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private VoucherOutboxRepository voucherOutboxRepository;
+
+    @Test
+    public void whenFindDue_thenReturnOnlyPendingEntriesReadyToSend() {
+        // given
+        LocalDateTime now = LocalDateTime.of(2025, 4, 20, 12, 0);
+        VoucherOutboxEntity due = new VoucherOutboxEntity(1L, now.minusMinutes(5));
+        VoucherOutboxEntity later = new VoucherOutboxEntity(2L, now.plusMinutes(5));
+        VoucherOutboxEntity sent = new VoucherOutboxEntity(3L, now.minusMinutes(5));
+        sent.setStatus(VoucherOutboxEntity.SENT);
+        entityManager.persist(due);
+        entityManager.persist(later);
+        entityManager.persist(sent);
+        entityManager.flush();
+
+        // when
+        List<VoucherOutboxEntity> found = voucherOutboxRepository.findDue(now, Limit.of(10));
+
+        // then
+        assertThat(found).extracting(VoucherOutboxEntity::getReservationId).containsExactly(1L);
+    }
+
+    @Test
+    public void whenClaimTwice_thenOnlyFirstClaimWins() {
+        // given
+        LocalDateTime now = LocalDateTime.of(2025, 4, 20, 12, 0);
+        VoucherOutboxEntity entry = entityManager.persistAndFlush(new VoucherOutboxEntity(1L, now));
+
+        // when
+        int first = voucherOutboxRepository.claim(entry.getId(), VoucherOutboxEntity.PENDING, now, now.plusMinutes(5));
+        int second = voucherOutboxRepository.claim(entry.getId(), VoucherOutboxEntity.PENDING, now, now.plusMinutes(5));
+        entityManager.clear();
+
+        // then
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isEqualTo(0);
+        VoucherOutboxEntity claimed = voucherOutboxRepository.findByReservationId(1L);
+        assertThat(claimed.getStatus()).isEqualTo(VoucherOutboxEntity.SENDING);
+        assertThat(claimed.getAttempts()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.Services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BusinessCalendarTest {
+
+    private final BusinessCalendar calendar = new BusinessCalendar();
+
+    @Test
+    void dayType_distinguishesWeekdaysWeekendsAndFixedHolidays() {
+        assertThat(calendar.dayType(LocalDate.of(2025, 4, 22))).isEqualTo(BusinessCalendar.DayType.WEEKDAY);
+        assertThat(calendar.dayType(LocalDate.of(2025, 4, 26))).isEqualTo(BusinessCalendar.DayType.WEEKEND);
+        assertThat(calendar.dayType(LocalDate.of(2025, 9, 18))).isEqualTo(BusinessCalendar.DayType.HOLIDAY);
+        assertThat(calendar.isWeekendOrHoliday(LocalDate.of(2025, 12, 25))).isTrue();
+        assertThat(calendar.isWeekendOrHoliday(LocalDate.of(2025, 12, 24))).isFalse();
+    }
+
+    @Test
+    void dayType_withoutEasterOffsets_keepsOnlyFixedHolidays() {
+        assertThat(calendar.dayType(LocalDate.of(2025, 4, 18))).isEqualTo(BusinessCalendar.DayType.WEEKDAY);
+        assertThat(calendar.dayType(LocalDate.of(2025, 4, 19))).isEqualTo(BusinessCalendar.DayType.WEEKEND);
+    }
+
+    @Test
+    void dayType_includesConfiguredEasterHolidays() {
+        calendar.easterOffsets = "-2,-1";
+        calendar.load();
+
+        // Pascua 2025: domingo 20 de abril
+        assertThat(BusinessCalendar.easterSunday(2025)).isEqualTo(LocalDate.of(2025, 4, 20));
+        assertThat(BusinessCalendar.easterSunday(2024)).isEqualTo(LocalDate.of(2024, 3, 31));
+        assertThat(calendar.dayType(LocalDate.of(2025, 4, 18))).isEqualTo(BusinessCalendar.DayType.HOLIDAY);
+        assertThat(calendar.dayType(LocalDate.of(2025, 4, 17))).isEqualTo(BusinessCalendar.DayType.WEEKDAY);
+    }
+
+    @Test
+    void load_readsConfiguredHolidays() {
+        calendar.fixedHolidays = "01-01";
+        calendar.extraHolidays = "2025-06-20, 2025-06-23";
+        calendar.easterOffsets = "";
+        calendar.load();
+
+        assertThat(calendar.dayType(LocalDate.of(2025, 6, 20))).isEqualTo(BusinessCalendar.DayType.HOLIDAY);
+        assertThat(calendar.dayType(LocalDate.of(2026, 6, 19))).isEqualTo(BusinessCalendar.DayType.WEEKDAY);
+        assertThat(calendar.dayType(LocalDate.of(2025, 9, 18))).isEqualTo(BusinessCalendar.DayType.WEEKDAY);
+        assertThat(calendar.dayType(LocalDate.of(2025, 4, 18))).isEqualTo(BusinessCalendar.DayType.WEEKDAY);
+    }
+
+    @Test
+    void openingHours_dependOnDayType() {
+        LocalDate tuesday = LocalDate.of(2025, 4, 22);
+        LocalDate holiday = LocalDate.of(2025, 5, 1);
+
+        assertThat(calendar.openingMinute(tuesday)).isEqualTo(14 * 60);
+        assertThat(calendar.openingMinute(holiday)).isEqualTo(10 * 60);
+        assertThat(calendar.closingMinute(tuesday)).isEqualTo(22 * 60);
+        assertThat(calendar.isOpen(tuesday, 13 * 60 + 55, 14 * 60 + 25)).isFalse();
+        assertThat(calendar.isOpen(holiday, 10 * 60, 10 * 60 + 30)).isTrue();
+        assertThat(calendar.isOpen(holiday, 21 * 60 + 35, 22 * 60 + 5)).isFalse();
+    }
+
+    @Test
+    void table_handlesLeapYearsAndYearsOutsideTheCachedRange() {
+        assertThat(calendar.dayType(LocalDate.of(2024, 12, 31))).isEqualTo(BusinessCalendar.DayType.WEEKDAY);
+        assertThat(calendar.dayType(LocalDate.of(1999, 12, 25))).isEqualTo(BusinessCalendar.DayType.HOLIDAY);
+        assertThat(calendar.table(2030)).isSameAs(calendar.table(2030));
+    }
+}
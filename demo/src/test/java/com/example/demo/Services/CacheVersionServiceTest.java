@@ -0,0 +1,59 @@
+package com.example.demo.Services;
+
+import com.example.demo.Repositories.CacheVersionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CacheVersionServiceTest {
+
+    @Mock
+    private CacheVersionRepository cacheVersionRepository;
+
+    @InjectMocks
+    private CacheVersionService cacheVersionService;
+
+    @Test
+    void bump_incrementsExistingRow() {
+        when(cacheVersionRepository.bumpVersion("customer")).thenReturn(1);
+
+        cacheVersionService.bump("customer");
+
+        verify(cacheVersionRepository, never()).insertVersion(any());
+    }
+
+    @Test
+    void bump_createsRowTheFirstTime() {
+        when(cacheVersionRepository.bumpVersion("customer")).thenReturn(0, 1);
+
+        cacheVersionService.bump("customer");
+
+        verify(cacheVersionRepository).insertVersion("customer");
+        verify(cacheVersionRepository, times(2)).bumpVersion("customer");
+    }
+
+    @Test
+    void bump_whenAnotherReplicaCreatedTheRow_stillIncrements() {
+        when(cacheVersionRepository.bumpVersion("customer")).thenReturn(0, 1);
+        when(cacheVersionRepository.insertVersion("customer")).thenThrow(new DataIntegrityViolationException("duplicada"));
+
+        cacheVersionService.bump("customer");
+
+        verify(cacheVersionRepository, times(2)).bumpVersion("customer");
+    }
+
+    @Test
+    void getVersion_returnsZeroWithoutRow() {
+        when(cacheVersionRepository.findVersion("kart")).thenReturn(null);
+
+        assertThat(cacheVersionService.getVersion("kart")).isZero();
+    }
+}
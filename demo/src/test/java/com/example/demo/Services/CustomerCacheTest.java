@@ -0,0 +1,114 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.CustomerEntity;
+import com.example.demo.Repositories.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CustomerCacheTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private CacheVersionService cacheVersionService;
+
+    @InjectMocks
+    private CustomerCache cache;
+
+    private CustomerEntity customer(Long id, String rut, String name) {
+        CustomerEntity c = new CustomerEntity();
+        c.setId(id);
+        c.setRut(rut);
+        c.setName(name);
+        return c;
+    }
+
+    @Test
+    void findByRut_loadsOnceAndAlsoCachesById() {
+        when(customerRepository.findByRut("1")).thenReturn(customer(7L, "1", "Ana"));
+
+        cache.findByRut("1");
+        CustomerEntity again = cache.findByRut("1");
+        Optional<CustomerEntity> byId = cache.findById(7L);
+
+        assertThat(again.getName()).isEqualTo("Ana");
+        assertThat(byId).contains(again);
+        verify(customerRepository, times(1)).findByRut("1");
+        verify(customerRepository, never()).findById(any());
+    }
+
+    @Test
+    void findByRut_doesNotCacheMissingCustomers() {
+        when(customerRepository.findByRut("9")).thenReturn(null, customer(9L, "9", "Nuevo"));
+
+        assertThat(cache.findByRut("9")).isNull();
+        // Registrado después de la primera consulta
+        assertThat(cache.findByRut("9").getName()).isEqualTo("Nuevo");
+    }
+
+    @Test
+    void getNames_onlyQueriesRutsNotYetCached() {
+        when(customerRepository.findAllByRutIn(List.of("1", "2", "3"))).thenReturn(List.of(customer(1L, "1", "Ana"), customer(2L, "2", "Luis")));
+        when(customerRepository.findAllByRutIn(List.of("3"))).thenReturn(List.of());
+
+        Map<String, String> first = cache.getNames(List.of("1", "2", "1", "3"));
+        Map<String, String> second = cache.getNames(List.of("2", "3", "1"));
+
+        assertThat(first).containsOnly(Map.entry("1", "Ana"), Map.entry("2", "Luis"));
+        assertThat(second).isEqualTo(first);
+        verify(customerRepository, times(2)).findAllByRutIn(anyList());
+    }
+
+    @Test
+    void invalidate_evictsOldRutAndBumpsVersion() {
+        when(customerRepository.findById(7L)).thenReturn(Optional.of(customer(7L, "1", "Ana")));
+        when(customerRepository.findByRut("1")).thenReturn(customer(7L, "1", "Ana María"));
+
+        cache.findById(7L);
+        // Se cambió el RUT del cliente 7
+        cache.invalidate(7L, "2");
+
+        assertThat(cache.findByRut("1").getName()).isEqualTo("Ana María");
+        verify(cacheVersionService).bump(CustomerCache.CACHE_NAME);
+    }
+
+    @Test
+    void pollChanges_clearsCacheWhenAnotherReplicaBumpsVersion() {
+        when(cacheVersionService.getVersion(CustomerCache.CACHE_NAME)).thenReturn(3L, 3L, 4L);
+        when(customerRepository.findByRut("1")).thenReturn(customer(1L, "1", "Ana"));
+
+        cache.pollChanges();
+        cache.findByRut("1");
+        cache.pollChanges();
+        cache.findByRut("1");
+        cache.pollChanges();
+        cache.findByRut("1");
+
+        verify(customerRepository, times(2)).findByRut("1");
+    }
+
+    @Test
+    void getStats_countsHitsAndMisses() {
+        when(customerRepository.findByRut("1")).thenReturn(customer(1L, "1", "Ana"));
+
+        cache.findByRut("1");
+        cache.findByRut("1");
+        cache.findByRut("1");
+
+        assertThat(cache.getStats().get("byRut")).containsEntry("hits", 2L).containsEntry("misses", 1L);
+    }
+}
@@ -24,6 +24,9 @@ public class CustomerServiceTest {
     @Mock
     private CustomerRepository customerRepository;
 
+    @Mock
+    private CustomerCache customerCache;
+
     @InjectMocks
     private CustomerService customerService;
 
@@ -32,7 +35,7 @@ public class CustomerServiceTest {
         CustomerEntity customer = new CustomerEntity("Test", "test@mail.com", "123", "pass", "12345678",
                 LocalDate.of(2000, 1, 1), false);
 
-        when(customerRepository.findByRut("123")).thenReturn(null);
+        when(customerCache.findByRut("123")).thenReturn(null);
         when(customerRepository.save(any(CustomerEntity.class))).thenReturn(customer);
 
         CustomerEntity saved = customerService.saveUser(customer);
@@ -42,7 +45,7 @@ public class CustomerServiceTest {
     @Test
     void saveUser_returnsNull_whenRutAlreadyExists() {
         CustomerEntity existing = new CustomerEntity();
-        when(customerRepository.findByRut("123")).thenReturn(existing);
+        when(customerCache.findByRut("123")).thenReturn(existing);
 
         CustomerEntity result = customerService.saveUser(new CustomerEntity("Test", "test@mail.com", "123", "pass", "12345678",
                 LocalDate.of(2000, 1, 1), false));
@@ -55,7 +58,7 @@ public class CustomerServiceTest {
         CustomerEntity user = new CustomerEntity();
         user.setId(1L);
 
-        when(customerRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(customerCache.findById(1L)).thenReturn(Optional.of(user));
 
         CustomerEntity result = customerService.getUserById(1L);
         assertThat(result.getId()).isEqualTo(1L);
@@ -65,17 +68,20 @@ public class CustomerServiceTest {
     void updateUser_returnsSavedUser() {
         CustomerEntity user = new CustomerEntity();
         user.setId(2L);
+        user.setRut("123");
 
         when(customerRepository.save(user)).thenReturn(user);
 
         CustomerEntity result = customerService.updateUser(user);
         assertThat(result).isEqualTo(user);
+        verify(customerCache).invalidate(2L, "123");
     }
 
     @Test
     void deleteUser_returnsTrueIfDeleted() throws Exception {
         doNothing().when(customerRepository).deleteById(1L);
         assertThat(customerService.deleteUser(1L)).isTrue();
+        verify(customerCache).invalidate(1L, null);
     }
 
     @Test
@@ -87,7 +93,7 @@ public class CustomerServiceTest {
     @Test
     void getUserByRut_returnsUser() {
         CustomerEntity user = new CustomerEntity();
-        when(customerRepository.findByRut("123")).thenReturn(user);
+        when(customerCache.findByRut("123")).thenReturn(user);
         assertThat(customerService.getUserByRut("123")).isEqualTo(user);
     }
 
@@ -0,0 +1,144 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.CustomerVisitEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.CustomerVisitRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CustomerVisitServiceTest {
+
+    @Mock
+    private CustomerVisitRepository customerVisitRepository;
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    @InjectMocks
+    private CustomerVisitService service;
+
+    private static final LocalDate DAY = LocalDate.of(2025, 4, 20);
+
+    private ReservationEntity reservation(Long id, String owner, String participants) {
+        ReservationEntity r = new ReservationEntity();
+        r.setId(id);
+        r.setRutUser(owner);
+        r.setRutsUsers(participants);
+        r.setReservationDate(DAY.atTime(10, 0));
+        return r;
+    }
+
+    private CustomerVisitRepository.RutVisits visits(String rut, long count) {
+        return new CustomerVisitRepository.RutVisits() {
+            public String getRut() { return rut; }
+            public Long getVisits() { return count; }
+        };
+    }
+
+    @Test
+    void countVisitsThisMonth_readsFromMonthStartToReservationDay() {
+        when(customerVisitRepository.sumVisitsByRut(List.of("1", "2"), LocalDate.of(2025, 4, 1), DAY))
+                .thenReturn(List.of(visits("1", 3)));
+
+        Map<String, Long> result = service.countVisitsThisMonth(List.of("1", "2"), DAY.atTime(10, 0));
+
+        assertThat(result).containsExactly(Map.entry("1", 3L));
+    }
+
+    @Test
+    void countVisitsThisMonthCached_readsEachRutOnceAndCachesZeroCounts() {
+        when(customerVisitRepository.sumVisitsByRut(List.of("1", "2"), LocalDate.of(2025, 4, 1), DAY))
+                .thenReturn(List.of(visits("1", 3)));
+
+        service.countVisitsThisMonthCached(List.of("1", "2"), DAY.atTime(10, 0));
+        Map<String, Long> again = service.countVisitsThisMonthCached(List.of("2", "1"), DAY.atTime(15, 0));
+
+        assertThat(again).containsOnly(Map.entry("1", 3L), Map.entry("2", 0L));
+        verify(customerVisitRepository, times(1)).sumVisitsByRut(anyCollection(), any(), any());
+    }
+
+    @Test
+    void recordVisits_evictsCachedCountsOfParticipants() {
+        when(customerVisitRepository.sumVisitsByRut(List.of("1"), LocalDate.of(2025, 4, 1), DAY))
+                .thenReturn(List.of(visits("1", 3)))
+                .thenReturn(List.of(visits("1", 4)));
+        when(customerVisitRepository.upsertVisits(new String[]{"1"}, DAY, 1)).thenReturn(1);
+
+        service.countVisitsThisMonthCached(List.of("1"), DAY.atTime(10, 0));
+        service.recordVisits(reservation(1L, "1", ""), 1);
+
+        assertThat(service.countVisitsThisMonthCached(List.of("1"), DAY.atTime(10, 0))).containsEntry("1", 4L);
+    }
+
+    @Test
+    void recordVisits_keepsCountsOfOtherCustomersAndEarlierDays() {
+        when(customerVisitRepository.sumVisitsByRut(List.of("2"), LocalDate.of(2025, 4, 1), DAY))
+                .thenReturn(List.of(visits("2", 1)));
+        when(customerVisitRepository.sumVisitsByRut(List.of("1"), LocalDate.of(2025, 4, 1), DAY.minusDays(1)))
+                .thenReturn(List.of(visits("1", 3)));
+        when(customerVisitRepository.upsertVisits(new String[]{"1"}, DAY, 1)).thenReturn(1);
+
+        service.countVisitsThisMonthCached(List.of("2"), DAY.atTime(10, 0));
+        service.countVisitsThisMonthCached(List.of("1"), DAY.minusDays(1).atTime(10, 0));
+        service.recordVisits(reservation(1L, "1", ""), 1);
+        service.countVisitsThisMonthCached(List.of("2"), DAY.atTime(10, 0));
+        service.countVisitsThisMonthCached(List.of("1"), DAY.minusDays(1).atTime(10, 0));
+
+        verify(customerVisitRepository, times(2)).sumVisitsByRut(anyCollection(), any(), any());
+    }
+
+    @Test
+    void recordVisits_countsOwnerAlsoListedAsParticipantOnce() {
+        service.recordVisits(reservation(1L, "1", "2, 1"), 1);
+
+        // Una sola sentencia para todos, en orden, que crea las filas que falten en la misma transacción
+        verify(customerVisitRepository).upsertVisits(new String[]{"1", "2"}, DAY, 1);
+        verify(customerVisitRepository, never()).addVisits(anyCollection(), any(), anyInt());
+        verify(customerVisitRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void recordVisits_whenRemoving_neverCreatesRows() {
+        when(customerVisitRepository.addVisits(Set.of("1"), DAY, -1)).thenReturn(0);
+
+        service.recordVisits(reservation(1L, "1", ""), -1);
+
+        verify(customerVisitRepository, never()).upsertVisits(any(), any(), anyInt());
+    }
+
+    @Test
+    void rebuild_countsEveryParticipantPerDay() {
+        when(reservationRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(reservation(1L, "1", "2"), reservation(2L, "1", "")));
+        List<CustomerVisitEntity> saved = new ArrayList<>();
+        when(customerVisitRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            invocation.<Iterable<CustomerVisitEntity>>getArgument(0).forEach(saved::add);
+            return saved;
+        });
+
+        int rows = service.rebuild();
+
+        assertThat(rows).isEqualTo(2);
+        verify(customerVisitRepository).deleteAllVisits();
+        assertThat(saved).extracting(CustomerVisitEntity::getRut, CustomerVisitEntity::getVisits)
+                .containsExactlyInAnyOrder(tuple("1", 2), tuple("2", 1));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.CustomerEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.ReservationDayRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DaySheetServiceTest {
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    @Mock
+    private ReservationDayRepository reservationDayRepository;
+
+    @Mock
+    private CustomerCache customerCache;
+
+    @InjectMocks
+    private DaySheetService daySheetService;
+
+    private static final LocalDate DAY = LocalDate.of(2025, 4, 21);
+
+    private ReservationEntity reservation(long id, int hour, int minute, String owner, String participants, int people) {
+        ReservationEntity r = new ReservationEntity(owner, participants, DAY.atTime(hour, minute), 10, people, null);
+        r.setId(id);
+        return r;
+    }
+
+    private CustomerEntity customer(String rut, String name) {
+        CustomerEntity c = new CustomerEntity();
+        c.setRut(rut);
+        c.setName(name);
+        return c;
+    }
+
+    private String text(byte[] pdf, int page) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        try {
+            return new PdfTextExtractor(reader).getTextFromPage(page);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private byte[] write() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        daySheetService.write(DAY, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void write_listsReservationsInOrderWithNamesFromOneLookup() throws Exception {
+        when(reservationRepository.findByReservationDateBetween(DAY.atStartOfDay(), DAY.atTime(23, 59, 59)))
+                .thenReturn(List.of(reservation(2, 17, 0, "2", "", 1), reservation(1, 15, 0, "1", "3,4", 3)));
+        when(customerCache.findAllByRut(anyCollection())).thenReturn(Map.of(
+                "1", customer("1", "Ana"), "2", customer("2", "Luis"), "3", customer("3", "Sofía")));
+
+        String text = text(write(), 1);
+
+        assertThat(text).contains("Hoja de pista - 21/04/2025", "2 reservas, 4 karts en total", "15:00 - 15:30", "RES-1",
+                "Ana", "Sofía", "Luis");
+        // Sin cliente registrado se muestra el RUT
+        assertThat(text).containsPattern("Sofía\\s+4");
+        assertThat(text.indexOf("RES-1")).isLessThan(text.indexOf("RES-2"));
+        verify(customerCache, times(1)).findAllByRut(anyCollection());
+    }
+
+    @Test
+    void write_longDayRunsOverSeveralPagesRepeatingHeader() throws Exception {
+        List<ReservationEntity> reservations = new ArrayList<>();
+        for (int i = 0; i < 3 * DaySheetService.FLUSH_ROWS; i++) {
+            reservations.add(reservation(i + 1, 10 + i / 12, (i % 12) * 5, "1", "2,3,4", 4));
+        }
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(reservations);
+        when(customerCache.findAllByRut(anyCollection())).thenAnswer(inv -> {
+            Collection<String> ruts = inv.getArgument(0);
+            assertThat(ruts).containsExactly("1", "2", "3", "4");
+            return Map.of("1", customer("1", "Ana"));
+        });
+
+        byte[] pdf = write();
+
+        PdfReader reader = new PdfReader(pdf);
+        int pages = reader.getNumberOfPages();
+        reader.close();
+        assertThat(pages).isGreaterThan(1);
+        assertThat(text(pdf, pages)).contains("Participantes", "RES-" + reservations.size());
+    }
+
+    @Test
+    void write_emptyDay_stillProducesSheet() throws Exception {
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of());
+
+        assertThat(text(write(), 1)).contains("Sin reservas para este día.");
+    }
+
+    @Test
+    void refresh_rendersAgainOnlyWhenDayVersionChanges() throws Exception {
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of());
+        when(reservationDayRepository.findVersion(DAY)).thenReturn(3L, 3L, 3L, 4L, 4L);
+
+        daySheetService.refresh(DAY);
+        byte[] cached = daySheetService.cached(DAY);
+        daySheetService.refresh(DAY);
+        assertThat(daySheetService.cached(DAY)).isNull();
+        daySheetService.refresh(DAY);
+
+        assertThat(cached).isNotNull();
+        assertThat(daySheetService.cached(DAY.plusDays(1))).isNull();
+        verify(reservationRepository, times(2)).findByReservationDateBetween(any(), any());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.ReservationLineRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IncomeReportExporterTest {
+
+    @Mock
+    private ReservationService reservationService;
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    @Mock
+    private ReservationLineRepository reservationLineRepository;
+
+    @InjectMocks
+    private IncomeReportExporter exporter;
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2025, 12, 31);
+
+    private ReservationEntity reservation(long id, LocalDateTime date) {
+        ReservationEntity r = new ReservationEntity("1", "", date, 15, 4, null);
+        r.setId(id);
+        return r;
+    }
+
+    private ReservationLineRepository.ReservationTotal total(long id, double amount) {
+        return new ReservationLineRepository.ReservationTotal() {
+            public Long getReservationId() { return id; }
+            public Double getTotal() { return amount; }
+        };
+    }
+
+    @Test
+    void write_streamsSummaryAndDetailAcrossPages() throws Exception {
+        Map<String, Double> row = new LinkedHashMap<>();
+        row.put("Enero", 1000.0);
+        row.put("Total", 1000.0);
+        when(reservationService.incomeFromLapsOrTime(START, END)).thenReturn(Map.of("15 vueltas o máx. 15 minutos", row));
+
+        List<ReservationEntity> firstPage = new ArrayList<>();
+        LocalDateTime date = LocalDateTime.of(2024, 1, 5, 15, 0);
+        for (int i = 0; i < IncomeReportExporter.PAGE_SIZE; i++) {
+            firstPage.add(reservation(i + 1, date.plusMinutes(i)));
+        }
+        ReservationEntity last = firstPage.get(firstPage.size() - 1);
+        when(reservationRepository.findInWindow(START.atStartOfDay(), END.plusDays(1).atStartOfDay(), Limit.of(IncomeReportExporter.PAGE_SIZE)))
+                .thenReturn(firstPage);
+        when(reservationRepository.findInWindowAfter(START.atStartOfDay(), END.plusDays(1).atStartOfDay(), last.getReservationDate(),
+                last.getId(), Limit.of(IncomeReportExporter.PAGE_SIZE)))
+                .thenReturn(List.of(reservation(9000, LocalDateTime.of(2025, 6, 1, 10, 0))));
+        when(reservationService.resolveOwnerNames(anyList())).thenReturn(Map.of("1", "Ana"));
+        when(reservationLineRepository.sumTotalsByReservationIds(anyList())).thenReturn(List.of(total(9000, 47600)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.write(exporter.lapsOrTimeReport(START, END), out);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet summary = workbook.getSheet("Resumen");
+            assertThat(summary.getRow(0).getCell(1).getStringCellValue()).isEqualTo("Enero");
+            assertThat(summary.getRow(1).getCell(0).getStringCellValue()).isEqualTo("15 vueltas o máx. 15 minutos");
+            assertThat(summary.getRow(1).getCell(2).getNumericCellValue()).isEqualTo(1000.0);
+
+            Sheet detail = workbook.getSheet("Detalle");
+            assertThat(detail.getLastRowNum()).isEqualTo(IncomeReportExporter.PAGE_SIZE + 1);
+            assertThat(detail.getRow(1).getCell(6).getStringCellValue()).isEqualTo("Ana");
+            assertThat(detail.getRow(IncomeReportExporter.PAGE_SIZE + 1).getCell(0).getNumericCellValue()).isEqualTo(9000);
+            assertThat(detail.getRow(IncomeReportExporter.PAGE_SIZE + 1).getCell(7).getNumericCellValue()).isEqualTo(47600);
+        }
+        verify(reservationLineRepository, times(2)).sumTotalsByReservationIds(anyList());
+    }
+
+    @Test
+    void personsReport_rejectsInvalidRanges() {
+        assertThrows(IllegalArgumentException.class, () -> exporter.personsReport(END, START));
+        assertThrows(IllegalArgumentException.class, () -> exporter.personsReport(START, START.plusYears(11)));
+        verifyNoInteractions(reservationService);
+    }
+}
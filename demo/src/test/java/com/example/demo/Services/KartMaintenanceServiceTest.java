@@ -0,0 +1,79 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.KartMaintenanceEntity;
+import com.example.demo.Repositories.KartMaintenanceRepository;
+import com.example.demo.Repositories.KartRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class KartMaintenanceServiceTest {
+
+    @Mock
+    private KartMaintenanceRepository kartMaintenanceRepository;
+
+    @Mock
+    private KartRepository kartRepository;
+
+    @Mock
+    private ReservationScheduleIndex reservationScheduleIndex;
+
+    @InjectMocks
+    private KartMaintenanceService kartMaintenanceService;
+
+    @Test
+    void scheduleMaintenance_invalidatesEveryDayItTouches() {
+        // Hasta medianoche: no toca el 28
+        KartMaintenanceEntity maintenance = new KartMaintenanceEntity(1L, LocalDateTime.of(2025, 4, 26, 20, 0),
+                LocalDateTime.of(2025, 4, 28, 0, 0), "Cambio de motor");
+        when(kartRepository.existsById(1L)).thenReturn(true);
+        when(kartMaintenanceRepository.save(maintenance)).thenReturn(maintenance);
+
+        kartMaintenanceService.scheduleMaintenance(maintenance);
+
+        verify(reservationScheduleIndex).recordChange(LocalDate.of(2025, 4, 26));
+        verify(reservationScheduleIndex).recordChange(LocalDate.of(2025, 4, 27));
+        verifyNoMoreInteractions(reservationScheduleIndex);
+    }
+
+    @Test
+    void scheduleMaintenance_rejectsEmptyWindow() {
+        KartMaintenanceEntity maintenance = new KartMaintenanceEntity(1L, LocalDateTime.of(2025, 4, 26, 20, 0),
+                LocalDateTime.of(2025, 4, 26, 20, 0), "Frenos");
+
+        assertThrows(IllegalArgumentException.class, () -> kartMaintenanceService.scheduleMaintenance(maintenance));
+        verify(kartMaintenanceRepository, never()).save(any());
+    }
+
+    @Test
+    void scheduleMaintenance_rejectsUnknownKart() {
+        KartMaintenanceEntity maintenance = new KartMaintenanceEntity(99L, LocalDateTime.of(2025, 4, 26, 14, 0),
+                LocalDateTime.of(2025, 4, 26, 16, 0), "Frenos");
+        when(kartRepository.existsById(99L)).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () -> kartMaintenanceService.scheduleMaintenance(maintenance));
+    }
+
+    @Test
+    void deleteMaintenance_invalidatesItsDay() {
+        KartMaintenanceEntity maintenance = new KartMaintenanceEntity(1L, LocalDateTime.of(2025, 4, 26, 14, 0),
+                LocalDateTime.of(2025, 4, 26, 16, 0), "Frenos");
+        when(kartMaintenanceRepository.findById(5L)).thenReturn(Optional.of(maintenance));
+
+        kartMaintenanceService.deleteMaintenance(5L);
+
+        verify(kartMaintenanceRepository).delete(maintenance);
+        verify(reservationScheduleIndex).recordChange(LocalDate.of(2025, 4, 26));
+    }
+}
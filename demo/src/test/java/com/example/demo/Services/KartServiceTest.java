@@ -8,6 +8,7 @@ import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -18,6 +19,9 @@ public class KartServiceTest {
     @Mock
     private KartRepository kartRepository;
 
+    @Mock
+    private CacheVersionService cacheVersionService;
+
     @InjectMocks
     private KartService kartService;
 
@@ -76,4 +80,88 @@ public class KartServiceTest {
         Exception ex = assertThrows(Exception.class, () -> kartService.deleteKart(99L));
         assertThat(ex.getMessage()).contains("Deletion failed");
     }
+
+    @Test
+    void countAvailableKarts_countsOnceThenUsesCounter() {
+        when(kartRepository.countByAvailable(true)).thenReturn(8L);
+
+        assertThat(kartService.countAvailableKarts()).isEqualTo(8);
+        assertThat(kartService.countAvailableKarts()).isEqualTo(8);
+        verify(kartRepository, times(1)).countByAvailable(true);
+    }
+
+    @Test
+    void updateKart_recountsWhenAvailabilityChanges() {
+        KartEntity stored = new KartEntity("K001", true, "Sodikart");
+        stored.setId(1L);
+        KartEntity changed = new KartEntity("K001", false, "Sodikart");
+        changed.setId(1L);
+        when(kartRepository.countByAvailable(true)).thenReturn(8L).thenReturn(7L);
+        when(kartRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(stored));
+        when(kartRepository.save(changed)).thenReturn(changed);
+
+        kartService.countAvailableKarts();
+        kartService.updateKart(changed);
+
+        assertThat(kartService.countAvailableKarts()).isEqualTo(7);
+        verify(cacheVersionService).bump("kart");
+    }
+
+    @Test
+    void updateKart_whenPollAlreadyCountedTheChange_doesNotApplyItTwice() {
+        KartEntity stored = new KartEntity("K001", true, "Sodikart");
+        stored.setId(1L);
+        KartEntity changed = new KartEntity("K001", false, "Sodikart");
+        changed.setId(1L);
+        when(kartRepository.countByAvailable(true)).thenReturn(8L).thenReturn(7L);
+        when(cacheVersionService.getVersion("kart")).thenReturn(5L);
+        when(kartRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(stored));
+        when(kartRepository.save(changed)).thenReturn(changed);
+
+        kartService.countAvailableKarts();
+        // La consulta periódica corre entre el commit y el ajuste local, y ya cuenta el kart fuera de servicio
+        kartService.pollChanges();
+        kartService.updateKart(changed);
+
+        assertThat(kartService.countAvailableKarts()).isEqualTo(7);
+    }
+
+    @Test
+    void saveKart_newAvailableKartRecountsCounter() {
+        KartEntity kart = new KartEntity("K011", true, "Sodikart");
+        when(kartRepository.countByAvailable(true)).thenReturn(8L).thenReturn(9L);
+        when(kartRepository.save(kart)).thenReturn(kart);
+
+        kartService.countAvailableKarts();
+        kartService.saveKart(kart);
+
+        assertThat(kartService.countAvailableKarts()).isEqualTo(9);
+        verify(kartRepository, times(2)).countByAvailable(true);
+    }
+
+    @Test
+    void deleteKart_unavailableKartKeepsCounter() throws Exception {
+        KartEntity stored = new KartEntity("K001", false, "Sodikart");
+        when(kartRepository.countByAvailable(true)).thenReturn(8L);
+        when(kartRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(stored));
+
+        kartService.countAvailableKarts();
+        kartService.deleteKart(1L);
+
+        assertThat(kartService.countAvailableKarts()).isEqualTo(8);
+        verify(cacheVersionService, never()).bump(any());
+    }
+
+    @Test
+    void pollChanges_resyncsWhenAnotherReplicaChangesKarts() {
+        when(cacheVersionService.getVersion("kart")).thenReturn(1L, 1L, 2L);
+        when(kartRepository.countByAvailable(true)).thenReturn(8L, 6L);
+
+        kartService.pollChanges();
+        kartService.pollChanges();
+        assertThat(kartService.countAvailableKarts()).isEqualTo(8);
+
+        kartService.pollChanges();
+        assertThat(kartService.countAvailableKarts()).isEqualTo(6);
+    }
 }
@@ -0,0 +1,84 @@
+package com.example.demo.Services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PricingEngineTest {
+
+    private final PricingEngine engine = new PricingEngine();
+
+    private PricingEngine.Participant participant(String rut, long visits, boolean birthday) {
+        return new PricingEngine.Participant(rut, "Cliente " + rut, visits, birthday);
+    }
+
+    @Test
+    void tables_matchTheDefaultRules() {
+        assertThat(engine.basePrice(10)).isEqualTo(15000);
+        assertThat(engine.basePrice(20)).isEqualTo(25000);
+        assertThat(engine.basePrice(12)).isZero();
+        assertThat(engine.groupDiscount(2)).isZero();
+        assertThat(engine.groupDiscount(6)).isEqualTo(20);
+        assertThat(engine.groupDiscount(16)).isEqualTo(-1);
+        assertThat(engine.visitDiscount(1)).isZero();
+        assertThat(engine.visitDiscount(5)).isEqualTo(20);
+        assertThat(engine.visitDiscount(40)).isEqualTo(30);
+        assertThat(engine.birthdayAllowance(4)).isEqualTo(1);
+    }
+
+    @Test
+    void visitDiscount_followsMonthlyVisitThresholds() {
+        // Sin visitas, 2, 5 y 7 visitas en el mes
+        assertThat(engine.visitDiscount(0)).isZero();
+        assertThat(engine.visitDiscount(2)).isEqualTo(10);
+        assertThat(engine.visitDiscount(4)).isEqualTo(10);
+        assertThat(engine.visitDiscount(5)).isEqualTo(20);
+        assertThat(engine.visitDiscount(7)).isEqualTo(30);
+    }
+
+    @Test
+    void price_appliesBestDiscountAndLimitsBirthdays() {
+        PricingEngine.PriceBreakdown breakdown = engine.price(10, 3, false, List.of(
+                participant("1", 0, true),
+                participant("2", 5, true),
+                participant("3", 0, false)), null, null);
+
+        // Grupo de 3: 10%; solo un cumpleañero con 50%; el segundo usa su descuento por visitas
+        assertThat(breakdown.participants()).extracting(PricingEngine.ParticipantPrice::discountApplied).containsExactly(50, 20, 10);
+        assertThat(breakdown.participants()).extracting(PricingEngine.ParticipantPrice::birthday).containsExactly(true, false, false);
+        assertThat(breakdown.participants().get(0).totalWithTax()).isEqualTo(7500 * 1.19);
+        assertThat(breakdown.totalWithTax()).isEqualTo((7500 + 12000 + 13500) * 1.19);
+    }
+
+    @Test
+    void price_addsWeekendSurchargeAndAdminOverrides() {
+        PricingEngine.PriceBreakdown breakdown = engine.price(10, 1, true, List.of(participant("1", 0, false)), 10000.0, 40.0);
+
+        PricingEngine.ParticipantPrice p = breakdown.participants().get(0);
+        assertThat(p.basePrice()).isEqualTo(10000 * 1.15);
+        assertThat(p.discountApplied()).isEqualTo(40);
+        assertThat(p.toDetailRow()).containsExactly("Cliente 1", 11500, 0, 0, "No", 40, 40, 6900, 1311, 8211);
+    }
+
+    @Test
+    void load_compilesConfiguredTables() {
+        engine.tariffs = "10:18000,30:40000";
+        engine.groupDiscounts = "1-4:0,5-20:15";
+        engine.taxRate = 0;
+        engine.load();
+
+        assertThat(engine.basePrice(30)).isEqualTo(40000);
+        assertThat(engine.groupDiscount(20)).isEqualTo(15);
+        assertThat(engine.price(30, 1, false, List.of(participant("1", 0, false)), null, null).totalWithTax()).isEqualTo(40000);
+    }
+
+    @Test
+    void load_rejectsInvalidRanges() {
+        engine.groupDiscounts = "5-3:10";
+
+        assertThrows(IllegalArgumentException.class, engine::load);
+    }
+}
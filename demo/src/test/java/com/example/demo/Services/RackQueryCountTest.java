@@ -0,0 +1,95 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.CustomerEntity;
+import com.example.demo.Entities.ReservationEntity;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Cuenta las sentencias SQL al armar el rack: deben ser las mismas con 50 o con 5000 reservas
+@DataJpaTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true", "customer.cache.poll-ms=3600000"})
+@ActiveProfiles("test")
+@Import({ReservationService.class, CustomerCache.class, CacheVersionService.class, BusinessCalendar.class, PricingEngine.class, VoucherRenderer.class})
+class RackQueryCountTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private CustomerCache customerCache;
+
+    @MockitoBean
+    private KartService kartService;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @MockitoBean
+    private ReservationScheduleIndex reservationScheduleIndex;
+
+    @MockitoBean
+    private ReservationLineService reservationLineService;
+
+    @MockitoBean
+    private RevenueRollupService revenueRollupService;
+
+    @MockitoBean
+    private CustomerVisitService customerVisitService;
+
+    @MockitoBean
+    private ReservationParticipantService reservationParticipantService;
+
+    private List<ReservationEntity> reservations(int count, int owners) {
+        List<ReservationEntity> reservations = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2025, 4, 21, 10, 0);
+        for (int i = 0; i < count; i++) {
+            reservations.add(new ReservationEntity("rut-" + (i % owners), "", start.plusMinutes(i), 10, 1, null));
+        }
+        return reservations;
+    }
+
+    private long statementsFor(List<ReservationEntity> reservations) {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Map<String, String> names = reservationService.resolveOwnerNames(reservations);
+        reservations.forEach(r -> reservationService.toRackEvent(r, names));
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void rackEvents_useConstantQueriesAsReservationsGrow() {
+        for (int i = 0; i < 200; i++) {
+            entityManager.persist(new CustomerEntity("Cliente " + i, i + "@mail.com", "rut-" + i, "x", "9", LocalDate.of(2000, 1, 1), false));
+        }
+        entityManager.flush();
+
+        long small = statementsFor(reservations(50, 50));
+        customerCache.invalidateAll();
+        long large = statementsFor(reservations(5000, 200));
+        long warm = statementsFor(reservations(5000, 200));
+
+        assertThat(small).isEqualTo(1);
+        assertThat(large).isEqualTo(1);
+        // Con la caché caliente no se consulta la base de datos
+        assertThat(warm).isZero();
+    }
+}
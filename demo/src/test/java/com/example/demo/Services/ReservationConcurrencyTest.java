@@ -0,0 +1,189 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.CustomerEntity;
+import com.example.demo.Entities.KartEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.CustomerRepository;
+import com.example.demo.Repositories.KartRepository;
+import com.example.demo.Repositories.ReservationDayRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import com.example.demo.Repositories.VoucherOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Muchas reservas simultáneas contra la base de datos real: ningún tramo puede quedar con más karts que la flota
+@DataJpaTest(properties = {"reservation.booking.max-attempts=50", "kart.counter.poll-ms=3600000", "customer.cache.poll-ms=3600000"})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReservationService.class, ReservationScheduleIndex.class, KartService.class, CacheVersionService.class, CustomerCache.class, BusinessCalendar.class, PricingEngine.class, VoucherRenderer.class})
+class ReservationConcurrencyTest {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private ReservationDayRepository reservationDayRepository;
+
+    @Autowired
+    private VoucherOutboxRepository voucherOutboxRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private KartRepository kartRepository;
+
+    @Autowired
+    private KartService kartService;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @MockitoBean
+    private ReservationLineService reservationLineService;
+
+    @MockitoBean
+    private RevenueRollupService revenueRollupService;
+
+    @MockitoBean
+    private CustomerVisitService customerVisitService;
+
+    @MockitoBean
+    private ReservationParticipantService reservationParticipantService;
+
+    private static final int FLEET = 10;
+    private static final int THREADS = 16;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < FLEET; i++) {
+            kartRepository.save(new KartEntity("K" + i, true, "Sodikart"));
+        }
+        customerRepository.save(new CustomerEntity("Ana", "ana@mail.com", "1", "x", "9", LocalDate.of(2000, 1, 1), false));
+        // Los karts se insertaron directo en la tabla
+        kartService.resyncAvailableKarts();
+    }
+
+    @AfterEach
+    void tearDown() {
+        voucherOutboxRepository.deleteAll();
+        reservationRepository.deleteAll();
+        reservationDayRepository.deleteAll();
+        customerRepository.deleteAll();
+        kartRepository.deleteAll();
+    }
+
+    private ReservationEntity booking(LocalDateTime start, int people) {
+        ReservationEntity r = new ReservationEntity();
+        r.setRutUser("1");
+        r.setRutsUsers("");
+        r.setReservationDate(start);
+        r.setLapsOrTime(10);
+        r.setNumberPeople(people);
+        return r;
+    }
+
+    // Corre todas las reservas a la vez y devuelve cuántas se confirmaron
+    private int bookConcurrently(List<ReservationEntity> bookings) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (ReservationEntity booking : bookings) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    reservationService.makeReservation(booking, false, null, null);
+                    booked.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    // Sin karts libres: rechazo esperado
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        return booked.get();
+    }
+
+    @Test
+    void sameSlot_neverSeatsMoreKartsThanTheFleet() throws Exception {
+        LocalDateTime slot = LocalDateTime.of(2025, 4, 22, 15, 0);
+        List<ReservationEntity> bookings = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            bookings.add(booking(slot, 3));
+        }
+
+        int booked = bookConcurrently(bookings);
+
+        List<ReservationEntity> stored = reservationRepository.findByReservationDateBetween(slot, slot);
+        int seated = stored.stream().mapToInt(ReservationEntity::getNumberPeople).sum();
+        // 3 grupos de 3 caben en 10 karts; un cuarto ya no
+        assertThat(booked).isEqualTo(3);
+        assertThat(stored).hasSize(3);
+        assertThat(seated).isLessThanOrEqualTo(FLEET);
+    }
+
+    @Test
+    void differentDays_allBookingsGoThrough() throws Exception {
+        List<ReservationEntity> bookings = new ArrayList<>();
+        LocalDate firstDay = LocalDate.of(2025, 5, 5);
+        for (int i = 0; i < 200; i++) {
+            // Reservas consecutivas caen en días distintos para que los hilos no compitan por el mismo día
+            LocalDate day = firstDay.plusDays(i % 20);
+            bookings.add(booking(day.atTime(15, 0).plusMinutes(30L * (i / 20)), 4));
+        }
+
+        int booked = bookConcurrently(bookings);
+
+        assertThat(booked).isEqualTo(200);
+        assertThat(reservationRepository.count()).isEqualTo(200);
+    }
+
+    @Test
+    void batch_rejectsEntriesThatNoLongerFitAndSavesTheRest() {
+        LocalDateTime slot = LocalDateTime.of(2025, 4, 23, 15, 0);
+        List<ReservationEntity> batch = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            batch.add(booking(slot, 3));
+        }
+        ReservationEntity unknown = booking(slot.plusHours(2), 1);
+        unknown.setRutUser("99");
+        batch.add(unknown);
+        batch.add(booking(slot.plusHours(2), 1));
+
+        List<Map<String, Object>> results = reservationService.makeReservations(batch, false, null, null);
+
+        assertThat(results).extracting(r -> r.get("status"))
+                .containsExactly("BOOKED", "BOOKED", "BOOKED", "REJECTED", "REJECTED", "BOOKED");
+        assertThat(results.get(4).get("message")).isEqualTo("Uno o más RUTs no están registrados");
+        assertThat(reservationRepository.count()).isEqualTo(4);
+        assertThat(voucherOutboxRepository.count()).isEqualTo(4);
+        assertThat(reservationDayRepository.findVersion(slot.toLocalDate())).isEqualTo(1L);
+    }
+}
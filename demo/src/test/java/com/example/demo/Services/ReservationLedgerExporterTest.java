@@ -0,0 +1,103 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.ReservationRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReservationLedgerExporterTest {
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private ReservationLineService reservationLineService = new ReservationLineService();
+
+    @InjectMocks
+    private ReservationLedgerExporter exporter;
+
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+    private static final LocalDate END = LocalDate.of(2025, 1, 31);
+
+    private ReservationEntity reservation(long id, String groupDetail) {
+        ReservationEntity r = new ReservationEntity("1", "2,3", LocalDateTime.of(2025, 1, 10, 15, 0), 10, 2, groupDetail);
+        r.setId(id);
+        return r;
+    }
+
+    private List<String> export(ReservationEntity... reservations) throws Exception {
+        when(reservationRepository.streamInWindow(START.atStartOfDay(), END.plusDays(1).atStartOfDay()))
+                .thenReturn(Stream.of(reservations));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.write(START, END, out);
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    @Test
+    void write_oneRowPerParticipant() throws Exception {
+        ReservationEntity group = reservation(7, "[[\"Ana, hija\",15000,0,10,\"Sí\",0,50,7500,1425,8925],"
+                + "[\"Luis\",15000,0,10,\"No\",0,10,13500,2565,16065]]");
+
+        List<String> lines = export(group);
+
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).startsWith("\uFEFFreserva,fecha,");
+        assertThat(lines.get(1)).isEqualTo("7,2025-01-10T15:00,1,\"2,3\",10,2,0,\"Ana, hija\",15000,0,10,si,0,50,7500,1425,8925");
+        assertThat(lines.get(2)).isEqualTo("7,2025-01-10T15:00,1,\"2,3\",10,2,1,Luis,15000,0,10,no,0,10,13500,2565,16065");
+        verify(entityManager).detach(group);
+    }
+
+    @Test
+    void write_reservationWithoutReadableDetail_keepsSingleRow() throws Exception {
+        List<String> lines = export(reservation(1, null), reservation(2, "no es json"));
+
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(1)).isEqualTo("1,2025-01-10T15:00,1,\"2,3\",10,2,,,,,,,,,,,");
+        assertThat(lines.get(2)).startsWith("2,");
+        assertThat(lines.get(2).split(",", -1)).hasSize(18);
+    }
+
+    @Test
+    void write_invalidRange_throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> exporter.write(END, START, new ByteArrayOutputStream()));
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void csv_quotesSeparatorsAndQuotes() {
+        assertThat(ReservationLedgerExporter.csv("Ana")).isEqualTo("Ana");
+        assertThat(ReservationLedgerExporter.csv("O\"Neil, Jr")).isEqualTo("\"O\"\"Neil, Jr\"");
+        assertThat(ReservationLedgerExporter.csv(null)).isEmpty();
+    }
+
+    @Test
+    void csv_neutralizesValuesThatExcelWouldRunAsFormulas() {
+        assertThat(ReservationLedgerExporter.csv("=1+2")).isEqualTo("'=1+2");
+        assertThat(ReservationLedgerExporter.csv("=SUM(A1,B1)")).isEqualTo("\"'=SUM(A1,B1)\"");
+        assertThat(ReservationLedgerExporter.csv("+56 9 1234")).isEqualTo("'+56 9 1234");
+        assertThat(ReservationLedgerExporter.csv("-1")).isEqualTo("'-1");
+        assertThat(ReservationLedgerExporter.csv("@SUM(A1)")).isEqualTo("'@SUM(A1)");
+        assertThat(ReservationLedgerExporter.csv("12.345.678-9")).isEqualTo("12.345.678-9");
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Entities.ReservationLineEntity;
+import com.example.demo.Repositories.ReservationLineRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReservationLineServiceTest {
+
+    @Mock
+    private ReservationLineRepository reservationLineRepository;
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    @InjectMocks
+    private ReservationLineService service;
+
+    @Test
+    void toLine_mapsEveryColumnOfTheDetailRow() {
+        List<Object> row = List.of("Ana", 17250, 10, 20, "Sí", 0, 50, 8625, 1638, 10263);
+
+        ReservationLineEntity line = service.toLine(5L, 2, row);
+
+        assertThat(line.getReservationId()).isEqualTo(5L);
+        assertThat(line.getPosition()).isEqualTo(2);
+        assertThat(line.getName()).isEqualTo("Ana");
+        assertThat(line.getBasePrice()).isEqualTo(17250.0);
+        assertThat(line.getGroupDiscount()).isEqualTo(10);
+        assertThat(line.getFrequentDiscount()).isEqualTo(20);
+        assertThat(line.isBirthday()).isTrue();
+        assertThat(line.getAppliedDiscount()).isEqualTo(50);
+        assertThat(line.getSubtotal()).isEqualTo(8625.0);
+        assertThat(line.getIva()).isEqualTo(1638.0);
+        assertThat(line.getTotal()).isEqualTo(10263.0);
+    }
+
+    @Test
+    void toLine_legacyRowKeepsNameAndTotal() {
+        ReservationLineEntity line = service.toLine(1L, 0, List.of("Carlos", 15000));
+
+        assertThat(line.getName()).isEqualTo("Carlos");
+        assertThat(line.getTotal()).isEqualTo(15000.0);
+        assertThat(line.getBasePrice()).isZero();
+    }
+
+    @Test
+    void backfillFromGroupDetail_createsLinesAndSkipsUnreadableDetail() {
+        ReservationEntity ok = new ReservationEntity("1", "", LocalDateTime.of(2025, 4, 20, 10, 0), 10, 2, "[[\"A\",100],[\"B\",200]]");
+        ok.setId(1L);
+        ReservationEntity broken = new ReservationEntity("2", "", LocalDateTime.of(2025, 4, 20, 11, 0), 10, 1, "no es json");
+        broken.setId(2L);
+
+        when(reservationRepository.findWithoutLinesAfter(eq(0L), any(Limit.class))).thenReturn(List.of(ok, broken));
+        when(reservationLineRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        int created = service.backfillFromGroupDetail();
+
+        assertThat(created).isEqualTo(2);
+        verify(reservationLineRepository, times(1)).saveAll(argThat((List<ReservationLineEntity> lines) ->
+                lines.size() == 2 && lines.get(1).getTotal() == 200.0 && lines.get(1).getPosition() == 1));
+    }
+
+    @Test
+    void replaceLines_deletesPreviousLinesFirst() {
+        when(reservationLineRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.replaceLines(3L, "[[\"A\",100]]");
+
+        var inOrder = inOrder(reservationLineRepository);
+        inOrder.verify(reservationLineRepository).deleteByReservationId(3L);
+        inOrder.verify(reservationLineRepository).saveAll(anyList());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Entities.ReservationParticipantEntity;
+import com.example.demo.Repositories.ReservationParticipantRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReservationParticipantServiceTest {
+
+    @Mock
+    private ReservationParticipantRepository reservationParticipantRepository;
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    @InjectMocks
+    private ReservationParticipantService service;
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2025, 4, 20, 10, 0);
+
+    private ReservationEntity reservation(Long id, String owner, String participants) {
+        ReservationEntity r = new ReservationEntity();
+        r.setId(id);
+        r.setRutUser(owner);
+        r.setRutsUsers(participants);
+        r.setReservationDate(DATE);
+        return r;
+    }
+
+    @Test
+    void toParticipants_marksOwnerAndSkipsDuplicates() {
+        List<ReservationParticipantEntity> participants = service.toParticipants(reservation(4L, "1", "2, 1 ,3,"));
+
+        assertThat(participants)
+                .extracting(ReservationParticipantEntity::getReservationId, ReservationParticipantEntity::getRut,
+                        ReservationParticipantEntity::isOwner, ReservationParticipantEntity::getReservationDate)
+                .containsExactly(tuple(4L, "1", true, DATE), tuple(4L, "2", false, DATE), tuple(4L, "3", false, DATE));
+    }
+
+    @Test
+    void replaceParticipants_deletesBeforeSaving() {
+        service.replaceParticipants(reservation(4L, "1", ""));
+
+        var order = inOrder(reservationParticipantRepository);
+        order.verify(reservationParticipantRepository).deleteByReservationId(4L);
+        order.verify(reservationParticipantRepository).saveAll(argThat(list -> list.iterator().hasNext()));
+    }
+
+    @Test
+    void countReservationsByRut_returnsCountsPerRut() {
+        ReservationParticipantRepository.RutCount row = new ReservationParticipantRepository.RutCount() {
+            public String getRut() { return "1"; }
+            public Long getReservations() { return 3L; }
+        };
+        when(reservationParticipantRepository.countReservationsByRutInRange(List.of("1", "2"), DATE.minusDays(5), DATE))
+                .thenReturn(List.of(row));
+
+        Map<String, Long> counts = service.countReservationsByRut(List.of("1", "2"), DATE.minusDays(5), DATE);
+
+        assertThat(counts).containsExactly(Map.entry("1", 3L));
+    }
+
+    @Test
+    void backfillFromRutsUsers_createsParticipantsForPendingReservations() {
+        when(reservationRepository.findWithoutParticipantsAfter(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(reservation(1L, "1", "2"), reservation(2L, "3", "")));
+        when(reservationParticipantRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        int created = service.backfillFromRutsUsers();
+
+        assertThat(created).isEqualTo(3);
+        verify(reservationRepository, times(1)).findWithoutParticipantsAfter(anyLong(), any(Limit.class));
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.KartMaintenanceEntity;
+import com.example.demo.Entities.ReservationDayEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.KartMaintenanceRepository;
+import com.example.demo.Repositories.ReservationDayRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReservationScheduleIndexTest {
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    @Mock
+    private ReservationDayRepository reservationDayRepository;
+
+    @Mock
+    private KartMaintenanceRepository kartMaintenanceRepository;
+
+    @Mock
+    private KartService kartService;
+
+    @InjectMocks
+    private ReservationScheduleIndex index;
+
+    private final LocalDate day = LocalDate.of(2025, 4, 26);
+
+    private ReservationEntity reservation(int hour, int minute, int lapsOrTime) {
+        return reservation(hour, minute, lapsOrTime, 1);
+    }
+
+    private ReservationEntity reservation(int hour, int minute, int lapsOrTime, int people) {
+        ReservationEntity r = new ReservationEntity();
+        r.setReservationDate(day.atTime(hour, minute));
+        r.setLapsOrTime(lapsOrTime);
+        r.setNumberPeople(people);
+        return r;
+    }
+
+    @Test
+    void overlaps_detectsIntersectingIntervalsOnly() {
+        when(reservationDayRepository.findVersion(day)).thenReturn(3L);
+        when(reservationRepository.findByReservationDateBetween(any(), any()))
+                .thenReturn(List.of(reservation(16, 0, 20), reservation(14, 0, 10)));
+
+        // 14:00-14:30 y 16:00-16:40 ocupados
+        assertThat(index.overlaps(day.atTime(14, 15), day.atTime(14, 45))).isTrue();
+        assertThat(index.overlaps(day.atTime(14, 30), day.atTime(15, 0))).isFalse();
+        assertThat(index.overlaps(day.atTime(15, 30), day.atTime(16, 0))).isFalse();
+        assertThat(index.overlaps(day.atTime(15, 50), day.atTime(16, 20))).isTrue();
+        assertThat(index.overlaps(day.atTime(16, 40), day.atTime(17, 10))).isFalse();
+    }
+
+    @Test
+    void overlaps_handlesNestedLegacyIntervals() {
+        when(reservationDayRepository.findVersion(day)).thenReturn(1L);
+        when(reservationRepository.findByReservationDateBetween(any(), any()))
+                .thenReturn(List.of(reservation(14, 0, 20), reservation(14, 5, 10)));
+
+        // El primer intervalo (14:00-14:40) contiene al segundo
+        assertThat(index.overlaps(day.atTime(14, 36), day.atTime(15, 0))).isTrue();
+    }
+
+    @Test
+    void overlaps_reusesCachedDayWhileVersionIsUnchanged() {
+        when(reservationDayRepository.findVersion(day)).thenReturn(2L);
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of(reservation(14, 0, 10)));
+
+        index.overlaps(day.atTime(15, 0), day.atTime(15, 30));
+        index.overlaps(day.atTime(16, 0), day.atTime(16, 30));
+
+        verify(reservationRepository, times(1)).findByReservationDateBetween(any(), any());
+    }
+
+    @Test
+    void overlaps_reloadsWhenAnotherReplicaChangedTheDay() {
+        when(reservationDayRepository.findVersion(day)).thenReturn(2L, 3L);
+        when(reservationRepository.findByReservationDateBetween(any(), any()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(reservation(15, 0, 10)));
+
+        assertThat(index.overlaps(day.atTime(15, 0), day.atTime(15, 30))).isFalse();
+        assertThat(index.overlaps(day.atTime(15, 0), day.atTime(15, 30))).isTrue();
+    }
+
+    @Test
+    void recordBooking_addsIntervalWithoutReloading() {
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationDayRepository.findVersion(day)).thenReturn(1L, 1L, 2L);
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of());
+        when(reservationDayRepository.advanceVersion(day, 1L)).thenReturn(1);
+
+        assertThat(index.overlaps(day.atTime(15, 0), day.atTime(15, 30))).isFalse();
+        index.recordBooking(day.atTime(15, 0), day.atTime(15, 30), 1);
+
+        assertThat(index.overlaps(day.atTime(15, 10), day.atTime(15, 40))).isTrue();
+        verify(reservationRepository, times(1)).findByReservationDateBetween(any(), any());
+    }
+
+    @Test
+    void recordChange_createsVersionRowForNewDay() {
+        when(reservationDayRepository.incrementVersion(day)).thenReturn(0);
+
+        index.recordChange(day);
+
+        verify(reservationDayRepository).insertFirstVersion(day);
+    }
+
+    @Test
+    void recordChange_whenTwoChangesCreateTheDayRow_throwsConflict() {
+        when(reservationDayRepository.incrementVersion(day)).thenReturn(0);
+        when(reservationDayRepository.insertFirstVersion(day)).thenThrow(new DataIntegrityViolationException("duplicada"));
+
+        assertThrows(OptimisticLockingFailureException.class, () -> index.recordChange(day));
+    }
+
+    @Test
+    void canSeat_allowsOverlappingGroupsWhileKartsRemain() {
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationDayRepository.findVersion(day)).thenReturn(1L);
+        when(reservationRepository.findByReservationDateBetween(any(), any()))
+                .thenReturn(List.of(reservation(14, 0, 10, 6), reservation(14, 30, 10, 3)));
+
+        // 14:15-14:45 pasa por 14:00-14:30 (6 karts) y 14:30-15:00 (3 karts)
+        assertThat(index.canSeat(day.atTime(14, 15), day.atTime(14, 45), 4)).isTrue();
+        assertThat(index.canSeat(day.atTime(14, 15), day.atTime(14, 45), 5)).isFalse();
+        assertThat(index.freeKarts(day.atTime(14, 30), day.atTime(15, 0))).isEqualTo(7);
+    }
+
+    @Test
+    void canSeat_withoutSharedTrackRejectsAnyOverlap() {
+        index.sharedTrack = false;
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationDayRepository.findVersion(day)).thenReturn(1L);
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of(reservation(14, 0, 10, 2)));
+
+        assertThat(index.canSeat(day.atTime(14, 15), day.atTime(14, 45), 1)).isFalse();
+        assertThat(index.canSeat(day.atTime(14, 30), day.atTime(15, 0), 8)).isTrue();
+    }
+
+    @Test
+    void freeKarts_subtractsMaintenanceOncePerKart() {
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationDayRepository.findVersion(day)).thenReturn(1L);
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of());
+        when(kartMaintenanceRepository.findOverlappingForAvailableKarts(day.atStartOfDay(), day.plusDays(1).atStartOfDay()))
+                .thenReturn(List.of(
+                        new KartMaintenanceEntity(1L, day.atTime(15, 0), day.atTime(16, 0), "Frenos"),
+                        new KartMaintenanceEntity(2L, day.minusDays(1).atTime(20, 0), day.atTime(15, 30), "Motor"),
+                        new KartMaintenanceEntity(2L, day.atTime(15, 0), day.atTime(17, 0), "Motor")));
+
+        assertThat(index.freeKarts(day.atTime(14, 0), day.atTime(14, 30))).isEqualTo(9);
+        assertThat(index.freeKarts(day.atTime(15, 10), day.atTime(15, 40))).isEqualTo(8);
+        assertThat(index.freeKarts(day.atTime(16, 0), day.atTime(16, 30))).isEqualTo(9);
+        assertThat(index.freeKarts(day.atTime(17, 0), day.atTime(17, 30))).isEqualTo(10);
+    }
+
+    @Test
+    void schedule_reloadsWhenKartAvailabilityChanges() {
+        when(reservationDayRepository.findVersion(day)).thenReturn(1L);
+        when(kartService.getAvailabilityVersion()).thenReturn(4L, 4L, 5L);
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of());
+
+        index.overlaps(day.atTime(15, 0), day.atTime(15, 30));
+        index.overlaps(day.atTime(15, 0), day.atTime(15, 30));
+        index.overlaps(day.atTime(15, 0), day.atTime(15, 30));
+
+        verify(reservationRepository, times(2)).findByReservationDateBetween(any(), any());
+    }
+
+    @Test
+    void recordBooking_whenAnotherBookingAdvancedTheDay_throwsConflict() {
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationDayRepository.findVersion(day)).thenReturn(4L);
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of());
+        when(reservationDayRepository.advanceVersion(day, 4L)).thenReturn(0);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> index.recordBooking(day.atTime(15, 0), day.atTime(15, 30), 2));
+    }
+
+    @Test
+    void recordBooking_whenTwoReplicasCreateTheDayRow_throwsConflict() {
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of());
+        when(reservationDayRepository.insertFirstVersion(day)).thenThrow(new DataIntegrityViolationException("duplicada"));
+
+        assertThrows(OptimisticLockingFailureException.class, () -> index.recordBooking(day.atTime(15, 0), day.atTime(15, 30), 2));
+    }
+
+    @Test
+    void recordBooking_revalidatesCapacity() {
+        when(kartService.countAvailableKarts()).thenReturn(4);
+        when(reservationDayRepository.findVersion(day)).thenReturn(2L);
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of(reservation(15, 0, 10, 3)));
+
+        assertThrows(IllegalArgumentException.class, () -> index.recordBooking(day.atTime(15, 0), day.atTime(15, 30), 2));
+        verify(reservationDayRepository, never()).advanceVersion(any(), anyLong());
+    }
+
+    @Test
+    void seatable_loadsStaleDaysWithOneRangeQuery() {
+        LocalDate next = day.plusDays(1);
+        when(kartService.countAvailableKarts()).thenReturn(4);
+        when(reservationDayRepository.findByReservationDayBetween(day, next)).thenReturn(List.of(new ReservationDayEntity(day, 3L)));
+        when(reservationRepository.findByReservationDateBetween(day.atStartOfDay(), next.atTime(23, 59, 59)))
+                .thenReturn(List.of(reservation(15, 0, 10, 3)));
+
+        List<LocalDateTime> free = index.seatable(
+                List.of(day.atTime(14, 30), day.atTime(14, 35), day.atTime(15, 30), next.atTime(15, 0)), 30, 2);
+
+        // 14:35-15:05 toca la reserva de 3 personas a las 15:00; el día siguiente está vacío
+        assertThat(free).containsExactly(day.atTime(14, 30), day.atTime(15, 30), next.atTime(15, 0));
+        verify(reservationRepository, times(1)).findByReservationDateBetween(any(), any());
+        verify(kartMaintenanceRepository, times(1)).findOverlappingForAvailableKarts(any(), any());
+    }
+
+    @Test
+    void seatable_reusesCachedDaysUntilTheirVersionChanges() {
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationDayRepository.findByReservationDayBetween(day, day))
+                .thenReturn(List.of(new ReservationDayEntity(day, 1L)), List.of(new ReservationDayEntity(day, 1L)),
+                        List.of(new ReservationDayEntity(day, 2L)));
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of());
+
+        index.seatable(List.of(day.atTime(15, 0)), 30, 1);
+        index.seatable(List.of(day.atTime(15, 0)), 30, 1);
+        index.seatable(List.of(day.atTime(15, 0)), 30, 1);
+
+        verify(reservationRepository, times(2)).findByReservationDateBetween(any(), any());
+    }
+
+    @Test
+    void recordBookings_seatsBatchAgainstStoredDayAndEarlierEntries() {
+        when(kartService.countAvailableKarts()).thenReturn(8);
+        when(reservationDayRepository.findVersion(day)).thenReturn(2L);
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of(reservation(15, 0, 10, 2)));
+        when(reservationDayRepository.advanceVersion(day, 2L)).thenReturn(1);
+
+        boolean[] accepted = index.recordBookings(List.of(
+                new ReservationScheduleIndex.Booking(day.atTime(15, 0), day.atTime(15, 30), 4),
+                new ReservationScheduleIndex.Booking(day.atTime(15, 10), day.atTime(15, 40), 3),
+                new ReservationScheduleIndex.Booking(day.atTime(15, 0), day.atTime(15, 30), 2)));
+
+        // 2 guardados + 4 del lote dejan 2 karts: la segunda entrada (3) no cabe, la tercera (2) sí
+        assertThat(accepted).containsExactly(true, false, true);
+        verify(reservationDayRepository, times(1)).advanceVersion(day, 2L);
+    }
+
+    @Test
+    void recordBookings_withoutAcceptedEntries_leavesVersionAlone() {
+        when(kartService.countAvailableKarts()).thenReturn(2);
+        when(reservationDayRepository.findVersion(day)).thenReturn(2L);
+        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of());
+
+        boolean[] accepted = index.recordBookings(List.of(new ReservationScheduleIndex.Booking(day.atTime(15, 0), day.atTime(15, 30), 3)));
+
+        assertThat(accepted).containsExactly(false);
+        verify(reservationDayRepository, never()).advanceVersion(any(), anyLong());
+    }
+}
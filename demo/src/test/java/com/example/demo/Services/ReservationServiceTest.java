@@ -2,9 +2,12 @@ package com.example.demo.Services;
 
 import com.example.demo.Entities.CustomerEntity;
 import com.example.demo.Entities.KartEntity;
+import com.example.demo.Entities.MonthlyRevenueRollupEntity;
 import com.example.demo.Entities.ReservationEntity;
 import com.example.demo.Repositories.CustomerRepository;
+import com.example.demo.Entities.VoucherOutboxEntity;
 import com.example.demo.Repositories.ReservationRepository;
+import com.example.demo.Repositories.VoucherOutboxRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -12,9 +15,15 @@ import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 
 import java.time.LocalDate;
@@ -23,6 +32,10 @@ import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -41,6 +54,39 @@ public class ReservationServiceTest {
     @Mock
     private KartService kartService;
 
+    @Mock
+    private VoucherOutboxRepository voucherOutboxRepository;
+
+    @Mock
+    private ReservationScheduleIndex reservationScheduleIndex;
+
+    @Mock
+    private ReservationLineService reservationLineService;
+
+    @Mock
+    private RevenueRollupService revenueRollupService;
+
+    @Mock
+    private CustomerVisitService customerVisitService;
+
+    @Mock
+    private ReservationParticipantService reservationParticipantService;
+
+    @Mock
+    private CustomerCache customerCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private BusinessCalendar businessCalendar = new BusinessCalendar();
+
+    @Spy
+    private PricingEngine pricingEngine = new PricingEngine();
+
+    @Spy
+    private VoucherRenderer voucherRenderer = new VoucherRenderer();
+
     @Mock(lenient = true)
     private ObjectMapper mapper;
 
@@ -94,6 +140,59 @@ public class ReservationServiceTest {
         assertThat(service.updateReservation(entity)).isEqualTo(entity);
     }
 
+    @Test
+    void updateReservation_withUnknownId_countsTheSavedReservation() {
+        ReservationEntity entity = new ReservationEntity();
+        entity.setId(9L);
+        entity.setReservationDate(LocalDateTime.of(2025, 6, 1, 10, 0));
+        when(reservationRepository.findById(9L)).thenReturn(Optional.empty());
+        when(reservationRepository.save(entity)).thenReturn(entity);
+
+        service.updateReservation(entity);
+
+        verify(revenueRollupService, never()).remove(any());
+        verify(revenueRollupService).add(entity);
+        verify(customerVisitService).recordVisits(entity, 1);
+    }
+
+    @Test
+    void updateReservation_invalidatesPreviousAndNewDay() {
+        ReservationEntity previous = new ReservationEntity();
+        previous.setId(1L);
+        previous.setReservationDate(LocalDateTime.of(2025, 6, 1, 10, 0));
+        ReservationEntity moved = new ReservationEntity();
+        moved.setId(1L);
+        moved.setReservationDate(LocalDateTime.of(2025, 6, 2, 10, 0));
+
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(previous));
+        when(reservationRepository.save(moved)).thenReturn(moved);
+
+        service.updateReservation(moved);
+
+        verify(reservationScheduleIndex).recordChange(LocalDate.of(2025, 6, 1));
+        verify(reservationScheduleIndex).recordChange(LocalDate.of(2025, 6, 2));
+        verify(revenueRollupService).remove(previous);
+        verify(revenueRollupService).add(moved);
+        verify(customerVisitService).recordVisits(previous, -1);
+        verify(customerVisitService).recordVisits(moved, 1);
+        verify(reservationParticipantService).replaceParticipants(moved);
+    }
+
+    @Test
+    void updateReservation_whenDayChangedConcurrently_retriesInNewTransaction() {
+        ReservationEntity entity = new ReservationEntity();
+        entity.setReservationDate(LocalDateTime.of(2025, 6, 1, 10, 0));
+        when(reservationRepository.save(entity)).thenReturn(entity);
+        doThrow(new OptimisticLockingFailureException("Otra transacción modificó el día"))
+                .doNothing()
+                .when(reservationScheduleIndex).recordChange(LocalDate.of(2025, 6, 1));
+
+        assertThat(service.updateReservation(entity)).isEqualTo(entity);
+
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
     @Test
     void deleteReservation_existingReservation_deletesSuccessfully() throws Exception {
         // given
@@ -110,6 +209,11 @@ public class ReservationServiceTest {
         // then
         assertThat(result).isTrue();
         verify(reservationRepository).deleteById(1L); // verifica que se haya llamado a deleteById
+        verify(reservationScheduleIndex).recordChange(date.toLocalDate());
+        verify(reservationLineService).deleteLines(1L);
+        verify(revenueRollupService).remove(reservation);
+        verify(customerVisitService).recordVisits(reservation, -1);
+        verify(reservationParticipantService).deleteParticipants(1L);
     }
 
     @Test
@@ -131,8 +235,9 @@ public class ReservationServiceTest {
     void testSendVoucherByEmail() throws MessagingException {
         MimeMessage mimeMessage = mock(MimeMessage.class);
         when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
-        service.sendVoucherByEmail(List.of("test@mail.com"), new byte[]{1, 2, 3});
-        verify(mailSender, times(1)).send(any(MimeMessage.class));
+        Map<String, Boolean> result = service.sendVoucherByEmail(List.of("test@mail.com"), new byte[]{1, 2, 3});
+        verify(mailSender, times(1)).send(any(MimeMessage[].class));
+        assertThat(result).containsEntry("test@mail.com", true);
     }
 
     @Test
@@ -147,7 +252,7 @@ public class ReservationServiceTest {
         nueva.setRutUser("1");
         nueva.setRutsUsers("");
 
-        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of(existing));
+        when(reservationScheduleIndex.canSeat(nueva.getReservationDate(), nueva.getReservationDate().plusMinutes(30), 0)).thenReturn(false);
 
         assertThrows(IllegalArgumentException.class, () ->
                 service.makeReservation(nueva, false, null, null)
@@ -165,7 +270,7 @@ public class ReservationServiceTest {
 
         CustomerEntity c = new CustomerEntity();
         c.setName("Test");
-        when(customerRepository.findByRut("123")).thenReturn(c);
+        when(customerCache.findByRut("123")).thenReturn(c);
 
         byte[] pdf = service.generatePDF(r, new ArrayList<>());
         assertThat(pdf).isNotNull();
@@ -175,19 +280,8 @@ public class ReservationServiceTest {
 
     @Test
     void incomeFromLapsOrTime_handlesMultipleLapsVariants() throws Exception {
-        ReservationEntity r1 = new ReservationEntity();
-        r1.setReservationDate(LocalDateTime.of(2025, 3, 10, 10, 0));
-        r1.setLapsOrTime(10);
-        r1.setGroupDetail("[[\\\"Carlos\\\",15000]]".replace("\\\"", "\""));
-
-        ReservationEntity r2 = new ReservationEntity();
-        r2.setReservationDate(LocalDateTime.of(2025, 3, 15, 15, 0));
-        r2.setLapsOrTime(15);
-        r2.setGroupDetail("[[\\\"Luisa\\\",20000]]".replace("\\\"", "\""));
-
-        when(reservationRepository.findByReservationDateBetween(
-                LocalDate.of(2025, 3, 1).atStartOfDay(), LocalDate.of(2025, 3, 31).atTime(23, 59)
-        )).thenReturn(List.of(r1, r2));
+        when(revenueRollupService.getRollups("2025-03", "2025-03"))
+                .thenReturn(List.of(rollup("2025-03", 10, "1-2 personas", 15000), rollup("2025-03", 15, "3-5 personas", 20000)));
 
         Map<String, Map<String, Double>> result = service.incomeFromLapsOrTime(
                 LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31)
@@ -197,6 +291,41 @@ public class ReservationServiceTest {
         assertThat(result.get("10 vueltas o máx. 10 minutos").get("marzo")).isEqualTo(15000.0);
         assertThat(result.get("15 vueltas o máx. 15 minutos").get("marzo")).isEqualTo(20000.0);
         assertThat(result.get("TOTAL").get("marzo")).isEqualTo(35000.0);
+        verify(reservationRepository, never()).sumIncomeByMonthAndLapsOrTime(any(), any());
+    }
+
+    @Test
+    void incomeFromLapsOrTime_sumsPartialMonthsInDatabase() {
+        // 15 de marzo al 31 de mayo: abril y mayo completos, marzo solo en parte
+        when(revenueRollupService.getRollups("2025-04", "2025-05"))
+                .thenReturn(List.of(rollup("2025-04", 10, "1-2 personas", 30000), rollup("2025-05", 10, "3-5 personas", 10000)));
+        when(reservationRepository.sumIncomeByMonthAndLapsOrTime(
+                LocalDate.of(2025, 3, 15).atStartOfDay(), LocalDate.of(2025, 3, 31).atTime(23, 59)
+        )).thenReturn(List.of(income(2025, 3, 10, 5000)));
+
+        Map<String, Map<String, Double>> result = service.incomeFromLapsOrTime(
+                LocalDate.of(2025, 3, 15), LocalDate.of(2025, 5, 31)
+        );
+
+        Map<String, Double> laps10 = result.get("10 vueltas o máx. 10 minutos");
+        assertThat(laps10.get("marzo")).isEqualTo(5000.0);
+        assertThat(laps10.get("abril")).isEqualTo(30000.0);
+        assertThat(laps10.get("mayo")).isEqualTo(10000.0);
+        assertThat(laps10.get("Total")).isEqualTo(45000.0);
+    }
+
+    private MonthlyRevenueRollupEntity rollup(String month, int lapsOrTime, String peopleRange, double total) {
+        return new MonthlyRevenueRollupEntity(month, lapsOrTime, peopleRange, total, 1);
+    }
+
+    // Fila agregada tal como la devuelve la consulta del repositorio
+    private ReservationRepository.MonthlyIncome income(int year, int month, int category, double total) {
+        return new ReservationRepository.MonthlyIncome() {
+            public Integer getIncomeYear() { return year; }
+            public Integer getIncomeMonth() { return month; }
+            public Integer getCategory() { return category; }
+            public Double getTotal() { return total; }
+        };
     }
 
 
@@ -216,16 +345,40 @@ public class ReservationServiceTest {
 
 
     @Test
-    void getAllReservations_returnsAll() {
-        ReservationEntity r1 = new ReservationEntity();
-        ReservationEntity r2 = new ReservationEntity();
+    void getReservationsPage_readsOnlyTheRequestedWindow() {
+        ReservationEntity r1 = historyReservation(1L, LocalDateTime.of(2025, 4, 21, 10, 0));
+        ReservationEntity r2 = historyReservation(2L, LocalDateTime.of(2025, 4, 22, 10, 0));
 
-        when(reservationRepository.findAll()).thenReturn(List.of(r1, r2));
+        when(reservationRepository.findInWindow(LocalDateTime.of(2025, 4, 21, 0, 0), LocalDateTime.of(2025, 4, 28, 0, 0), Limit.of(201)))
+                .thenReturn(List.of(r1, r2));
 
-        List<ReservationEntity> result = service.getAllReservations();
+        Map<String, Object> page = service.getReservationsPage(LocalDate.of(2025, 4, 21), LocalDate.of(2025, 4, 27), null, 200);
 
-        assertThat(result).hasSize(2);
-        assertThat(result).containsExactly(r1, r2);
+        assertThat(page.get("reservations")).isEqualTo(List.of(r1, r2));
+        assertThat(page.get("nextCursor")).isNull();
+        verify(reservationRepository, never()).findAll();
+    }
+
+    @Test
+    void getReservationsPage_continuesAfterCursor() {
+        LocalDateTime from = LocalDateTime.of(2025, 4, 21, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 4, 28, 0, 0);
+        when(reservationRepository.findInWindowAfter(from, to, LocalDateTime.of(2025, 4, 22, 10, 0), 2L, Limit.of(2)))
+                .thenReturn(List.of(historyReservation(3L, LocalDateTime.of(2025, 4, 23, 10, 0)),
+                        historyReservation(4L, LocalDateTime.of(2025, 4, 24, 10, 0))));
+
+        Map<String, Object> page = service.getReservationsPage(LocalDate.of(2025, 4, 21), LocalDate.of(2025, 4, 27), "2025-04-22T10:00_2", 1);
+
+        assertThat((List<?>) page.get("reservations")).hasSize(1);
+        assertThat(page.get("nextCursor")).isEqualTo("2025-04-23T10:00_3");
+    }
+
+    @Test
+    void getReservationsPage_rejectsInvalidWindows() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getReservationsPage(LocalDate.of(2025, 4, 27), LocalDate.of(2025, 4, 21), null, 200));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getReservationsPage(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31), null, 200));
     }
 
     @Test
@@ -236,11 +389,34 @@ public class ReservationServiceTest {
 
     @Test
     void testSendVoucherToMultipleEmails() throws MessagingException {
-        MimeMessage mimeMessage = mock(MimeMessage.class);
-        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> mock(MimeMessage.class));
 
         service.sendVoucherByEmail(List.of("a@a.com", "b@b.com"), new byte[]{1});
-        verify(mailSender, times(2)).send(any(MimeMessage.class));
+
+        // Un solo envío con los dos mensajes: una sola sesión SMTP
+        ArgumentCaptor<MimeMessage[]> captor = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender, times(1)).send(captor.capture());
+        assertThat(captor.getValue()).hasSize(2);
+        verify(mailSender, never()).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void sendVoucherByEmail_reportsFailedRecipientsWithoutFailingTheRest() {
+        MimeMessage ok = mock(MimeMessage.class);
+        MimeMessage bad = mock(MimeMessage.class);
+        when(mailSender.createMimeMessage()).thenReturn(ok, bad);
+        doThrow(new MailSendException(Map.of(bad, new MessagingException("Dirección inválida"))))
+                .when(mailSender).send(any(MimeMessage[].class));
+
+        Map<String, Boolean> result = service.sendVoucherByEmail(List.of("a@a.com", "malo@"), new byte[]{1});
+
+        assertThat(result).containsEntry("a@a.com", true).containsEntry("malo@", false);
+    }
+
+    @Test
+    void sendVoucherByEmail_withoutRecipients_doesNotOpenSession() {
+        assertThat(service.sendVoucherByEmail(List.of(), new byte[]{1})).isEmpty();
+        verifyNoInteractions(mailSender);
     }
 
     @Test
@@ -272,37 +448,48 @@ public class ReservationServiceTest {
 
         lenient().when(reservationRepository.findAll()).thenReturn(List.of());
         lenient().when(customerRepository.findAllByRutIn(any())).thenReturn(List.of(c1, c2, c3));
-        lenient().when(kartService.getKartsByAvailability(true)).thenReturn(Collections.nCopies(2, new KartEntity()));
+        lenient().when(kartService.countAvailableKarts()).thenReturn(2);
 
         assertThrows(IllegalArgumentException.class, () -> service.makeReservation(r, false, null, null));
     }
 
     @Test
-    void getAllReservationsByDuration_shouldReturnMappedList() {
+    void toRackEvent_shouldMapDurationAndOwnerName() {
         // Simula una reserva
         ReservationEntity r = new ReservationEntity();
+        r.setId(8L);
         r.setRutUser("1");
         r.setReservationDate(LocalDateTime.of(2025, 4, 21, 14, 0));
         r.setLapsOrTime(15); // espera duración 35 min
 
-        CustomerEntity c = new CustomerEntity();
-        c.setRut("1");
-        c.setName("Juan");
-
-        when(reservationRepository.findAll()).thenReturn(List.of(r));
-        when(customerRepository.findByRut("1")).thenReturn(c);
-
-        List<Map<String, Object>> result = service.getAllReservationsByDuration();
-
-        assertThat(result).hasSize(1);
-        Map<String, Object> map = result.get(0);
+        Map<String, Object> map = service.toRackEvent(r, Map.of("1", "Juan"));
 
         assertThat(map.get("start")).isEqualTo("2025-04-21T14:00");
         assertThat(map.get("end")).isEqualTo("2025-04-21T14:35");
         assertThat(map.get("title")).isEqualTo("Juan");
+        assertThat(map.get("id")).isEqualTo(8L);
+        verifyNoInteractions(customerRepository);
+    }
 
-        verify(reservationRepository, times(1)).findAll();
-        verify(customerRepository, times(1)).findByRut("1");
+    @Test
+    void toRackEvent_usesRutWhenOwnerIsNotACustomer() {
+        ReservationEntity r = new ReservationEntity();
+        r.setRutUser("9");
+        r.setReservationDate(LocalDateTime.of(2025, 4, 21, 14, 0));
+        r.setLapsOrTime(10);
+
+        assertThat(service.toRackEvent(r, Map.of()).get("title")).isEqualTo("9");
+    }
+
+    @Test
+    void resolveOwnerNames_looksUpAllOwnersAtOnce() {
+        ReservationEntity r1 = new ReservationEntity(); r1.setRutUser("1");
+        ReservationEntity r2 = new ReservationEntity(); r2.setRutUser("2");
+        ReservationEntity r3 = new ReservationEntity(); r3.setRutUser("1");
+        when(customerCache.getNames(List.of("1", "2", "1"))).thenReturn(Map.of("1", "Ana", "2", "Luis"));
+
+        assertThat(service.resolveOwnerNames(List.of(r1, r2, r3))).containsEntry("2", "Luis");
+        verify(customerCache, times(1)).getNames(anyCollection());
     }
 
     @Test
@@ -311,42 +498,13 @@ public class ReservationServiceTest {
         LocalDate startDate = LocalDate.of(2025, 1, 1);
         LocalDate endDate = LocalDate.of(2025, 12, 31);
 
-        ReservationEntity reservation1 = new ReservationEntity();
-        reservation1.setReservationDate(LocalDateTime.of(2025, 4, 15, 10, 0)); // Abril
-        reservation1.setNumberPeople(2); // 1-2 personas
-        reservation1.setGroupDetail("[[\"Grupo A\", 156246]]");
-
-        ReservationEntity reservation2 = new ReservationEntity();
-        reservation2.setReservationDate(LocalDateTime.of(2025, 5, 20, 10, 0)); // Mayo
-        reservation2.setNumberPeople(4); // 3-5 personas
-        reservation2.setGroupDetail("[[\"Grupo B\", 57834]]");
-
-        ReservationEntity reservation3 = new ReservationEntity();
-        reservation3.setReservationDate(LocalDateTime.of(2025, 9, 10, 10, 0)); // Septiembre
-        reservation3.setNumberPeople(2); // 1-2 personas
-        reservation3.setGroupDetail("[[\"Grupo C\", 59500]]");
-
-        ReservationEntity reservation4 = new ReservationEntity();
-        reservation4.setReservationDate(LocalDateTime.of(2025, 4, 10, 10, 0)); // Abril
-        reservation4.setNumberPeople(3); // 3-5 personas
-        reservation4.setGroupDetail("[[\"Grupo D\", 9729]]");
-
-        when(reservationRepository.findByReservationDateBetween(
-                any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(List.of(reservation1, reservation2, reservation3, reservation4));
-
-        when(mapper.readValue(anyString(), any(TypeReference.class)))
-                .thenReturn(List.of(List.of("Grupo", 0))); // No importa el valor exacto aquí porque se sobrescribe abajo.
-
-        // Override para cada reserva su valor correcto
-        when(mapper.readValue(eq(reservation1.getGroupDetail()), any(TypeReference.class)))
-                .thenReturn(List.of(List.of("Grupo A", 156246)));
-        when(mapper.readValue(eq(reservation2.getGroupDetail()), any(TypeReference.class)))
-                .thenReturn(List.of(List.of("Grupo B", 57834)));
-        when(mapper.readValue(eq(reservation3.getGroupDetail()), any(TypeReference.class)))
-                .thenReturn(List.of(List.of("Grupo C", 59500)));
-        when(mapper.readValue(eq(reservation4.getGroupDetail()), any(TypeReference.class)))
-                .thenReturn(List.of(List.of("Grupo D", 9729)));
+        when(revenueRollupService.getRollups("2025-01", "2025-12"))
+                .thenReturn(List.of(
+                        rollup("2025-04", 10, "1-2 personas", 156246),
+                        rollup("2025-05", 15, "3-5 personas", 57834),
+                        rollup("2025-09", 10, "1-2 personas", 59500),
+                        rollup("2025-04", 20, "3-5 personas", 9729)
+                ));
 
         // when
         Map<String, Map<String, Double>> result = service.incomePerPerson(startDate, endDate);
@@ -392,8 +550,7 @@ public class ReservationServiceTest {
         LocalDate startDate = LocalDate.of(2025, 6, 1);
         LocalDate endDate = LocalDate.of(2025, 6, 30);
 
-        when(reservationRepository.findByReservationDateBetween(
-                startDate.atStartOfDay(), endDate.atTime(23, 59)))
+        when(revenueRollupService.getRollups("2025-06", "2025-06"))
                 .thenReturn(Collections.emptyList());
 
         // when
@@ -434,57 +591,6 @@ public class ReservationServiceTest {
     }
 
 
-    @Test
-    void calculateDiscountFrequentCustomers_shouldReturnCorrectDiscounts() {
-        LocalDateTime reservationDate = LocalDateTime.of(2025, 4, 25, 10, 0);
-        LocalDateTime startOfMonth = reservationDate.withDayOfMonth(1).toLocalDate().atStartOfDay();
-
-        CustomerEntity c1 = new CustomerEntity(); c1.setRut("1");
-        CustomerEntity c2 = new CustomerEntity(); c2.setRut("2");
-        CustomerEntity c3 = new CustomerEntity(); c3.setRut("3");
-        CustomerEntity c4 = new CustomerEntity(); c4.setRut("4");
-
-        List<ReservationEntity> reservas = new ArrayList<>();
-        // c2: 2 participaciones
-        reservas.add(createSimpleReservation("x", "2", reservationDate));
-        reservas.add(createSimpleReservation("y", "2", reservationDate));
-        // c3: 3 dueño + 2 participante
-        reservas.add(createSimpleReservation("3", "", reservationDate));
-        reservas.add(createSimpleReservation("3", "", reservationDate));
-        reservas.add(createSimpleReservation("3", "", reservationDate));
-        reservas.add(createSimpleReservation("z", "3", reservationDate));
-        reservas.add(createSimpleReservation("w", "3", reservationDate));
-        // c4: 4 dueño + 3 participante
-        reservas.add(createSimpleReservation("4", "", reservationDate));
-        reservas.add(createSimpleReservation("4", "", reservationDate));
-        reservas.add(createSimpleReservation("4", "", reservationDate));
-        reservas.add(createSimpleReservation("4", "", reservationDate));
-        reservas.add(createSimpleReservation("a", "4", reservationDate));
-        reservas.add(createSimpleReservation("b", "4", reservationDate));
-        reservas.add(createSimpleReservation("c", "4", reservationDate));
-
-        when(reservationRepository.findByReservationDateBetween(startOfMonth, reservationDate))
-                .thenReturn(reservas);
-
-        Map<CustomerEntity, Integer> result = service.calculateDiscountFrequentCustomers(
-                List.of(c1, c2, c3, c4), reservationDate
-        );
-
-        assertThat(result.get(c1)).isEqualTo(0);
-        assertThat(result.get(c2)).isEqualTo(10);
-        assertThat(result.get(c3)).isEqualTo(20);
-        assertThat(result.get(c4)).isEqualTo(30);
-    }
-
-    // Inline reservas sin función auxiliar
-    private ReservationEntity createSimpleReservation(String owner, String participants, LocalDateTime date) {
-        ReservationEntity r = new ReservationEntity();
-        r.setRutUser(owner);
-        r.setRutsUsers(participants);
-        r.setReservationDate(date.minusDays(1));
-        return r;
-    }
-
     @Test
     void makeReservation_shouldThrowIfOutsideWorkingHours() {
         ReservationEntity r = new ReservationEntity();
@@ -506,7 +612,7 @@ public class ReservationServiceTest {
         r.setLapsOrTime(10);
         r.setNumberPeople(5); // 5 personas
 
-        when(kartService.getKartsByAvailability(true)).thenReturn(Collections.nCopies(3, new KartEntity())); // Solo 3 karts
+        when(kartService.countAvailableKarts()).thenReturn(3); // Solo 3 karts
 
         assertThrows(IllegalArgumentException.class, () -> service.makeReservation(r, false, null, null));
     }
@@ -524,8 +630,8 @@ public class ReservationServiceTest {
         r.setLapsOrTime(10);
         r.setNumberPeople(1);
 
-        when(kartService.getKartsByAvailability(true)).thenReturn(Collections.nCopies(10, new KartEntity()));
-        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(List.of(existing));
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationScheduleIndex.canSeat(r.getReservationDate(), r.getReservationDate().plusMinutes(30), 1)).thenReturn(false);
 
         assertThrows(IllegalArgumentException.class, () -> service.makeReservation(r, false, null, null));
     }
@@ -539,8 +645,8 @@ public class ReservationServiceTest {
         r.setLapsOrTime(10);
         r.setNumberPeople(2);
 
-        when(kartService.getKartsByAvailability(true)).thenReturn(Collections.nCopies(10, new KartEntity()));
-        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(Collections.emptyList());
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationScheduleIndex.canSeat(any(), any(), anyInt())).thenReturn(true);
         when(customerRepository.findAllByRutIn(List.of("1", "2"))).thenReturn(List.of()); // Nadie encontrado
 
         assertThrows(IllegalArgumentException.class, () -> service.makeReservation(r, false, null, null));
@@ -561,11 +667,9 @@ public class ReservationServiceTest {
         c.setEmail("ana@test.com");
         c.setBirthDate(LocalDate.of(2000, 1, 1));
 
-        when(kartService.getKartsByAvailability(true)).thenReturn(Collections.nCopies(10, new KartEntity()));
-        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(Collections.emptyList());
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationScheduleIndex.canSeat(any(), any(), anyInt())).thenReturn(true);
         when(customerRepository.findAllByRutIn(List.of("1"))).thenReturn(List.of(c));
-        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(Collections.emptyList());
-        when(customerRepository.findByRut("1")).thenReturn(c);
 
         when(reservationRepository.save(any())).thenAnswer(invocation -> {
             ReservationEntity saved = invocation.getArgument(0);
@@ -573,13 +677,63 @@ public class ReservationServiceTest {
             return saved;
         });
 
-        MimeMessage mimeMessage = mock(MimeMessage.class);
-        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
-
         ReservationEntity result = service.makeReservation(r, false, null, null);
 
         assertThat(result).isNotNull();
         assertThat(result.getId()).isEqualTo(1L);
+        verify(reservationScheduleIndex).recordBooking(r.getReservationDate(), r.getReservationDate().plusMinutes(30), 1);
+        verify(reservationLineService).saveLines(eq(1L), argThat(detail -> detail.size() == 1 && detail.get(0).get(0).equals("Ana")));
+        verify(revenueRollupService).add(result);
+        verify(customerVisitService).recordVisits(result, 1);
+        verify(reservationParticipantService).saveParticipants(result);
+        verify(voucherOutboxRepository).save(argThat(v -> v.getReservationId() == 1L && VoucherOutboxEntity.PENDING.equals(v.getStatus())));
+        verify(mailSender, never()).send(any(MimeMessage.class));
+    }
+
+    private ReservationEntity bookableReservation() {
+        ReservationEntity r = new ReservationEntity();
+        r.setRutUser("1");
+        r.setRutsUsers("");
+        r.setReservationDate(LocalDateTime.of(2025, 4, 22, 14, 0));
+        r.setLapsOrTime(10);
+        r.setNumberPeople(1);
+
+        CustomerEntity c = new CustomerEntity();
+        c.setRut("1");
+        c.setName("Ana");
+        c.setBirthDate(LocalDate.of(2000, 1, 1));
+
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationScheduleIndex.canSeat(any(), any(), anyInt())).thenReturn(true);
+        when(customerRepository.findAllByRutIn(List.of("1"))).thenReturn(List.of(c));
+        return r;
+    }
+
+    @Test
+    void makeReservation_whenDayChangedConcurrently_retriesInNewTransaction() {
+        ReservationEntity r = bookableReservation();
+        doThrow(new OptimisticLockingFailureException("Otra reserva modificó el día"))
+                .doNothing()
+                .when(reservationScheduleIndex).recordBooking(any(), any(), anyInt());
+        when(reservationRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThat(service.makeReservation(r, false, null, null)).isNotNull();
+
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+        verify(reservationRepository, times(1)).save(any());
+    }
+
+    @Test
+    void makeReservation_whenConflictsPersist_givesUpAfterMaxAttempts() {
+        ReservationEntity r = bookableReservation();
+        doThrow(new OptimisticLockingFailureException("Otra reserva modificó el día"))
+                .when(reservationScheduleIndex).recordBooking(any(), any(), anyInt());
+
+        assertThrows(ReservationBusyException.class, () -> service.makeReservation(r, false, null, null));
+
+        verify(reservationScheduleIndex, times(5)).recordBooking(any(), any(), anyInt());
+        verify(reservationRepository, never()).save(any());
     }
 
 
@@ -607,11 +761,9 @@ public class ReservationServiceTest {
         c2.setBirthDate(LocalDate.of(1999, 5, 1));
 
         // Mock dependencias necesarias
-        when(kartService.getKartsByAvailability(true)).thenReturn(Collections.nCopies(10, new KartEntity()));
-        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(Collections.emptyList());
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationScheduleIndex.canSeat(any(), any(), anyInt())).thenReturn(true);
         when(customerRepository.findAllByRutIn(List.of("1", "2"))).thenReturn(List.of(c1, c2));
-        when(reservationRepository.findByReservationDateBetween(any(), any())).thenReturn(Collections.emptyList());
-        when(customerRepository.findByRut("1")).thenReturn(c1);
 
         // Mock para asignar ID a la reserva
         when(reservationRepository.save(any())).thenAnswer(invocation -> {
@@ -620,9 +772,6 @@ public class ReservationServiceTest {
             return saved;
         });
 
-        MimeMessage mimeMessage = mock(MimeMessage.class);
-        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
-
         // Ejecutar
         ReservationEntity result = service.makeReservation(r, true, 18000.0, 30.0);
 
@@ -631,4 +780,203 @@ public class ReservationServiceTest {
         assertThat(result.getId()).isEqualTo(2L);
     }
 
-}
\ No newline at end of file
+    private ReservationEntity historyReservation(Long id, LocalDateTime date) {
+        ReservationEntity r = new ReservationEntity();
+        r.setId(id);
+        r.setReservationDate(date);
+        return r;
+    }
+
+    @Test
+    void getReservationsByCustomer_returnsCursorWhenMorePagesExist() {
+        LocalDateTime date = LocalDateTime.of(2025, 4, 20, 10, 0);
+        when(reservationRepository.findLatestByParticipant("1", Limit.of(3))).thenReturn(List.of(
+                historyReservation(9L, date), historyReservation(7L, date.minusDays(1)), historyReservation(5L, date.minusDays(2))));
+
+        Map<String, Object> page = service.getReservationsByCustomer("1", null, 2);
+
+        assertThat((List<?>) page.get("reservations")).hasSize(2);
+        assertThat(page.get("nextCursor")).isEqualTo("2025-04-19T10:00_7");
+    }
+
+    @Test
+    void getReservationsByCustomer_seeksFromCursor() {
+        when(reservationRepository.findByParticipantBefore("1", LocalDateTime.of(2025, 4, 19, 10, 0), 7L, Limit.of(3)))
+                .thenReturn(List.of(historyReservation(5L, LocalDateTime.of(2025, 4, 18, 10, 0))));
+
+        Map<String, Object> page = service.getReservationsByCustomer("1", "2025-04-19T10:00_7", 2);
+
+        assertThat((List<?>) page.get("reservations")).hasSize(1);
+        assertThat(page.get("nextCursor")).isNull();
+    }
+
+    @Test
+    void getReservationsByCustomer_rejectsMalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> service.getReservationsByCustomer("1", "ayer", 20));
+    }
+
+    @Test
+    void getParticipantRuts_includesOwnerAndTrimmedParticipants() {
+        ReservationEntity r = new ReservationEntity();
+        r.setRutUser("1");
+        r.setRutsUsers(" 2, ,3 ");
+
+        assertThat(service.getParticipantRuts(r)).containsExactly("1", "2", "3");
+    }
+
+    @Test
+    void parseGroupDetail_returnsEmptyListForBlankDetail() {
+        assertThat(service.parseGroupDetail(null)).isEmpty();
+        assertThat(service.parseGroupDetail(" ")).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getAvailability_offersSlotsWithinWorkingHoursThatStillSeatTheGroup() {
+        LocalDate friday = LocalDate.of(2030, 4, 26);
+        LocalDate saturday = friday.plusDays(1);
+        ArgumentCaptor<List<LocalDateTime>> candidates = ArgumentCaptor.forClass(List.class);
+        when(reservationScheduleIndex.seatable(candidates.capture(), eq(30), eq(4)))
+                .thenReturn(List.of(friday.atTime(14, 0), saturday.atTime(10, 5)));
+
+        Map<String, List<String>> availability = service.getAvailability(friday, saturday, 10, 4);
+
+        assertThat(availability).containsExactly(
+                Map.entry("2030-04-26", List.of("14:00")),
+                Map.entry("2030-04-27", List.of("10:05")));
+        // Viernes de 14:00 a 21:30 y sábado de 10:00 a 21:30, cada 5 minutos
+        assertThat(candidates.getValue()).hasSize(91 + 139)
+                .contains(friday.atTime(21, 30), saturday.atTime(10, 0))
+                .doesNotContain(friday.atTime(13, 55), friday.atTime(21, 35));
+    }
+
+    @Test
+    void getAvailability_rejectsInvalidRequests() {
+        LocalDate day = LocalDate.of(2030, 4, 26);
+
+        assertThrows(IllegalArgumentException.class, () -> service.getAvailability(day, day.minusDays(1), 10, 1));
+        assertThrows(IllegalArgumentException.class, () -> service.getAvailability(day, day.plusDays(40), 10, 1));
+        assertThrows(IllegalArgumentException.class, () -> service.getAvailability(day, day, 12, 1));
+        assertThrows(IllegalArgumentException.class, () -> service.getAvailability(day, day, 10, 16));
+        verifyNoInteractions(reservationScheduleIndex);
+    }
+
+    @Test
+    void quoteReservation_pricesWithoutSavingAnything() {
+        ReservationEntity r = new ReservationEntity();
+        r.setRutUser("1");
+        r.setRutsUsers("2");
+        r.setReservationDate(LocalDateTime.of(2025, 4, 26, 14, 0)); // Sábado
+        r.setLapsOrTime(10);
+        r.setNumberPeople(2);
+        CustomerEntity ana = new CustomerEntity();
+        ana.setRut("1");
+        ana.setName("Ana");
+        ana.setBirthDate(LocalDate.of(2000, 1, 1));
+        CustomerEntity luis = new CustomerEntity();
+        luis.setRut("2");
+        luis.setName("Luis");
+        luis.setBirthDate(LocalDate.of(2000, 4, 26));
+
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationScheduleIndex.canSeat(any(), any(), anyInt())).thenReturn(true);
+        when(customerCache.findAllByRut(List.of("1", "2"))).thenReturn(Map.of("1", ana, "2", luis));
+        when(customerVisitService.countVisitsThisMonthCached(List.of("1", "2"), r.getReservationDate())).thenReturn(Map.of("1", 5L));
+
+        PricingEngine.PriceBreakdown quote = service.quoteReservation(r, false, null, null);
+
+        // Grupo de 2 sin cupo de cumpleaños; Ana tiene 20% por visitas
+        assertThat(quote.participants()).extracting(PricingEngine.ParticipantPrice::name).containsExactly("Ana", "Luis");
+        assertThat(quote.participants()).extracting(PricingEngine.ParticipantPrice::discountApplied).containsExactly(20, 0);
+        assertThat(quote.basePrice()).isEqualTo(15000 * 1.15);
+        verifyNoInteractions(reservationRepository, voucherOutboxRepository, mailSender, customerRepository);
+        verify(reservationScheduleIndex, never()).recordBooking(any(), any(), anyInt());
+    }
+
+    @Test
+    void quoteReservation_rejectsUnknownRuts() {
+        ReservationEntity r = new ReservationEntity();
+        r.setRutUser("1");
+        r.setRutsUsers("9");
+        r.setReservationDate(LocalDateTime.of(2025, 4, 22, 15, 0));
+        r.setLapsOrTime(10);
+        r.setNumberPeople(2);
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationScheduleIndex.canSeat(any(), any(), anyInt())).thenReturn(true);
+        when(customerCache.findAllByRut(List.of("1", "9"))).thenReturn(Map.of("1", new CustomerEntity()));
+
+        assertThrows(IllegalArgumentException.class, () -> service.quoteReservation(r, false, null, null));
+    }
+
+    @Test
+    void quoteReservation_rejectsDuplicateRutsLikeBooking() {
+        ReservationEntity r = new ReservationEntity();
+        r.setRutUser("1");
+        r.setRutsUsers("1");
+        r.setReservationDate(LocalDateTime.of(2025, 4, 22, 15, 0));
+        r.setLapsOrTime(10);
+        r.setNumberPeople(2);
+        CustomerEntity ana = new CustomerEntity();
+        ana.setRut("1");
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(reservationScheduleIndex.canSeat(any(), any(), anyInt())).thenReturn(true);
+        when(customerCache.findAllByRut(List.of("1", "1"))).thenReturn(Map.of("1", ana));
+        when(customerRepository.findAllByRutIn(List.of("1", "1"))).thenReturn(List.of(ana));
+
+        // La cotización no puede mostrar precio para un grupo que la reserva va a rechazar
+        assertThrows(IllegalArgumentException.class, () -> service.quoteReservation(r, false, null, null));
+        assertThrows(IllegalArgumentException.class, () -> service.makeReservation(r, false, null, null));
+        verify(reservationRepository, never()).save(any());
+    }
+
+    @Test
+    void quoteReservation_rejectsOutsideWorkingHours() {
+        ReservationEntity r = new ReservationEntity();
+        r.setRutUser("1");
+        r.setReservationDate(LocalDateTime.of(2025, 4, 22, 11, 0)); // Martes antes de abrir
+        r.setLapsOrTime(10);
+        r.setNumberPeople(1);
+
+        assertThrows(IllegalArgumentException.class, () -> service.quoteReservation(r, false, null, null));
+        verifyNoInteractions(customerCache);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void makeReservations_resolvesAllRutsOnceAndSavesTogether() {
+        CustomerEntity ana = new CustomerEntity();
+        ana.setRut("1");
+        ana.setName("Ana");
+        ana.setBirthDate(LocalDate.of(2000, 1, 1));
+        when(kartService.countAvailableKarts()).thenReturn(10);
+        when(customerRepository.findAllByRutIn(List.of("1"))).thenReturn(List.of(ana));
+        ReservationEntity first = new ReservationEntity("1", "", LocalDateTime.of(2025, 4, 22, 14, 0), 10, 1, null);
+        ReservationEntity second = new ReservationEntity("1", "", LocalDateTime.of(2025, 4, 22, 16, 0), 10, 1, null);
+        ReservationEntity closed = new ReservationEntity("1", "", LocalDateTime.of(2025, 4, 22, 23, 0), 10, 1, null);
+        when(reservationScheduleIndex.recordBookings(anyList())).thenReturn(new boolean[]{true, true});
+        when(customerVisitService.countVisitsThisMonth(anyCollection(), any())).thenReturn(Map.of());
+        when(reservationRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<ReservationEntity> toSave = invocation.getArgument(0);
+            for (int i = 0; i < toSave.size(); i++) {
+                toSave.get(i).setId(10L + i);
+            }
+            return toSave;
+        });
+
+        List<Map<String, Object>> results = service.makeReservations(List.of(first, closed, second), false, null, null);
+
+        assertThat(results).extracting(r -> r.get("status")).containsExactly("BOOKED", "REJECTED", "BOOKED");
+        assertThat(results.get(2).get("id")).isEqualTo(11L);
+        assertThat(results.get(1).get("message")).isEqualTo("La reserva está fuera del horario de atención.");
+        verify(customerRepository, times(1)).findAllByRutIn(anyList());
+        verify(voucherOutboxRepository, times(1)).saveAll(anyList());
+        verify(mailSender, never()).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    void makeReservations_rejectsEmptyOrOversizedBatches() {
+        assertThrows(IllegalArgumentException.class, () -> service.makeReservations(List.of(), false, null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.makeReservations(Collections.nCopies(101, new ReservationEntity()), false, null, null));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.MonthlyRevenueRollupEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.MonthlyRevenueRollupRepository;
+import com.example.demo.Repositories.ReservationLineRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RevenueRollupServiceTest {
+
+    @Mock
+    private MonthlyRevenueRollupRepository rollupRepository;
+
+    @Mock
+    private ReservationLineRepository reservationLineRepository;
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    @InjectMocks
+    private RevenueRollupService service;
+
+    private ReservationEntity reservation(int lapsOrTime, int numberPeople) {
+        ReservationEntity r = new ReservationEntity();
+        r.setId(3L);
+        r.setReservationDate(LocalDateTime.of(2025, 4, 20, 10, 0));
+        r.setLapsOrTime(lapsOrTime);
+        r.setNumberPeople(numberPeople);
+        return r;
+    }
+
+    @Test
+    void add_incrementsExistingRollup() {
+        when(reservationLineRepository.sumTotalByReservationId(3L)).thenReturn(20000.0);
+        when(rollupRepository.addToRollup("2025-04", 10, "3-5 personas", 20000.0, 1)).thenReturn(1);
+
+        service.add(reservation(10, 4));
+
+        verify(rollupRepository, never()).insertRollupIfMissing(any(), anyInt(), any());
+    }
+
+    @Test
+    void remove_subtractsTotalAndCount() {
+        when(reservationLineRepository.sumTotalByReservationId(3L)).thenReturn(20000.0);
+        when(rollupRepository.addToRollup("2025-04", 15, "11-15 personas", -20000.0, -1)).thenReturn(1);
+
+        service.remove(reservation(15, 12));
+
+        verify(rollupRepository).addToRollup("2025-04", 15, "11-15 personas", -20000.0, -1);
+    }
+
+    @Test
+    void add_createsRowWhenMonthHasNoRollupYet() {
+        when(reservationLineRepository.sumTotalByReservationId(3L)).thenReturn(15000.0);
+        when(rollupRepository.addToRollup("2025-04", 10, "1-2 personas", 15000.0, 1)).thenReturn(0).thenReturn(1);
+
+        service.add(reservation(10, 2));
+
+        InOrder order = inOrder(rollupRepository);
+        order.verify(rollupRepository).addToRollup("2025-04", 10, "1-2 personas", 15000.0, 1);
+        order.verify(rollupRepository).insertRollupIfMissing("2025-04", 10, "1-2 personas");
+        order.verify(rollupRepository).addToRollup("2025-04", 10, "1-2 personas", 15000.0, 1);
+    }
+
+    @Test
+    void rebuild_groupsPeopleIntoRanges() {
+        when(reservationRepository.sumRevenueByMonthLapsAndNumberPeople()).thenReturn(List.of(
+                revenue(2025, 4, 10, 1, 10000, 2),
+                revenue(2025, 4, 10, 2, 5000, 1),
+                revenue(2025, 4, 10, 4, 8000, 1)
+        ));
+        List<MonthlyRevenueRollupEntity> saved = new ArrayList<>();
+        when(rollupRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            invocation.<Iterable<MonthlyRevenueRollupEntity>>getArgument(0).forEach(saved::add);
+            return saved;
+        });
+
+        int rows = service.rebuild();
+
+        assertThat(rows).isEqualTo(2);
+        InOrder order = inOrder(rollupRepository);
+        order.verify(rollupRepository).lockForRebuild();
+        order.verify(rollupRepository).deleteAllRollups();
+        assertThat(saved).anySatisfy(row -> {
+            assertThat(row.getPeopleRange()).isEqualTo("1-2 personas");
+            assertThat(row.getTotal()).isEqualTo(15000.0);
+            assertThat(row.getReservations()).isEqualTo(3);
+        });
+    }
+
+    @Test
+    void peopleRange_matchesReportBuckets() {
+        assertThat(RevenueRollupService.peopleRange(2)).isEqualTo("1-2 personas");
+        assertThat(RevenueRollupService.peopleRange(5)).isEqualTo("3-5 personas");
+        assertThat(RevenueRollupService.peopleRange(10)).isEqualTo("6-10 personas");
+        assertThat(RevenueRollupService.peopleRange(15)).isEqualTo("11-15 personas");
+    }
+
+    private ReservationRepository.MonthlyRevenue revenue(int year, int month, int lapsOrTime, int numberPeople, double total, long reservations) {
+        return new ReservationRepository.MonthlyRevenue() {
+            public Integer getIncomeYear() { return year; }
+            public Integer getIncomeMonth() { return month; }
+            public Integer getLapsOrTime() { return lapsOrTime; }
+            public Integer getNumberPeople() { return numberPeople; }
+            public Double getTotal() { return total; }
+            public Long getReservations() { return reservations; }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.CustomerEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Repositories.ReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class VoucherCacheTest {
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    @Mock
+    private ReservationService reservationService;
+
+    @Mock
+    private CustomerCache customerCache;
+
+    @InjectMocks
+    private VoucherCache voucherCache;
+
+    private ReservationEntity reservation(String groupDetail) {
+        ReservationEntity r = new ReservationEntity("1", "", LocalDateTime.of(2025, 4, 20, 15, 0), 10, 1, groupDetail);
+        r.setId(5L);
+        return r;
+    }
+
+    private CustomerEntity customer(String name) {
+        CustomerEntity c = new CustomerEntity();
+        c.setName(name);
+        return c;
+    }
+
+    @Test
+    void voucher_sameContent_rendersOnce() {
+        ReservationEntity r = reservation("[]");
+        when(reservationRepository.findById(5L)).thenReturn(Optional.of(r));
+        when(customerCache.findByRut("1")).thenReturn(customer("Ana"));
+        when(reservationService.parseGroupDetail("[]")).thenReturn(List.of());
+        when(reservationService.generatePDF(r, List.of())).thenReturn(new byte[]{1, 2});
+
+        VoucherCache.Voucher first = voucherCache.voucher(5L);
+        VoucherCache.Voucher second = voucherCache.voucher(5L);
+
+        assertThat(second.etag()).isEqualTo(first.etag()).startsWith("\"").endsWith("\"");
+        assertThat(second.pdf()).isEqualTo(new byte[]{1, 2});
+        verify(reservationService, times(1)).generatePDF(any(), any());
+    }
+
+    @Test
+    void pdf_changedReservationOrOwnerName_rendersAgainWithNewETag() {
+        when(customerCache.findByRut("1")).thenReturn(customer("Ana"), customer("Ana"), customer("Ana María"));
+        when(reservationService.parseGroupDetail(any())).thenReturn(List.of());
+        when(reservationService.generatePDF(any(), any())).thenReturn(new byte[]{1}, new byte[]{2}, new byte[]{3});
+
+        String original = voucherCache.pdf(reservation("[]")).etag();
+        String edited = voucherCache.pdf(reservation("[[\"Ana\",1]]")).etag();
+        String renamed = voucherCache.pdf(reservation("[]")).etag();
+
+        assertThat(edited).isNotEqualTo(original);
+        assertThat(renamed).isNotEqualTo(original).isNotEqualTo(edited);
+        verify(reservationService, times(3)).generatePDF(any(), any());
+    }
+
+    @Test
+    void voucher_missingReservation_returnsNull() {
+        when(reservationRepository.findById(9L)).thenReturn(Optional.empty());
+
+        assertThat(voucherCache.voucher(9L)).isNull();
+        verifyNoInteractions(reservationService);
+    }
+}
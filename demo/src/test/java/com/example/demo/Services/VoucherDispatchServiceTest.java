@@ -0,0 +1,185 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.CustomerEntity;
+import com.example.demo.Entities.ReservationEntity;
+import com.example.demo.Entities.VoucherOutboxEntity;
+import com.example.demo.Repositories.CustomerRepository;
+import com.example.demo.Repositories.ReservationRepository;
+import com.example.demo.Repositories.VoucherOutboxRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class VoucherDispatchServiceTest {
+
+    @Mock
+    private VoucherOutboxRepository voucherOutboxRepository;
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private ReservationService reservationService;
+
+    @Mock
+    private VoucherCache voucherCache;
+
+    @InjectMocks
+    private VoucherDispatchService dispatchService;
+
+    private VoucherOutboxEntity claimedEntry(int attempts) {
+        VoucherOutboxEntity entry = new VoucherOutboxEntity(10L, LocalDateTime.of(2025, 4, 20, 10, 0));
+        entry.setId(1L);
+        entry.setStatus(VoucherOutboxEntity.SENDING);
+        entry.setAttempts(attempts);
+        return entry;
+    }
+
+    private ReservationEntity reservation() {
+        ReservationEntity r = new ReservationEntity();
+        r.setId(10L);
+        r.setRutUser("1");
+        r.setRutsUsers("2");
+        r.setGroupDetail("[]");
+        return r;
+    }
+
+    @Test
+    void deliver_sendsVoucherAndMarksSent() throws Exception {
+        VoucherOutboxEntity entry = claimedEntry(1);
+        ReservationEntity r = reservation();
+        CustomerEntity c1 = new CustomerEntity(); c1.setEmail("a@a.com");
+        CustomerEntity c2 = new CustomerEntity(); c2.setEmail("");
+
+        when(voucherOutboxRepository.findById(1L)).thenReturn(Optional.of(entry));
+        when(reservationRepository.findById(10L)).thenReturn(Optional.of(r));
+        when(voucherCache.pdf(r)).thenReturn(new VoucherCache.Voucher("\"a1\"", new byte[]{1}));
+        when(reservationService.getParticipantRuts(r)).thenReturn(List.of("1", "2"));
+        when(customerRepository.findAllByRutIn(List.of("1", "2"))).thenReturn(List.of(c1, c2));
+        when(reservationService.sendVoucherByEmail(List.of("a@a.com"), new byte[]{1})).thenReturn(Map.of("a@a.com", true));
+
+        dispatchService.deliver(1L);
+
+        verify(reservationService).sendVoucherByEmail(List.of("a@a.com"), new byte[]{1});
+        assertThat(entry.getStatus()).isEqualTo(VoucherOutboxEntity.SENT);
+        assertThat(entry.getSentAt()).isNotNull();
+        verify(voucherOutboxRepository).save(entry);
+    }
+
+    @Test
+    void deliver_whenMailFails_schedulesRetryWithBackoff() throws Exception {
+        VoucherOutboxEntity entry = claimedEntry(2);
+        ReservationEntity r = reservation();
+
+        when(voucherOutboxRepository.findById(1L)).thenReturn(Optional.of(entry));
+        when(reservationRepository.findById(10L)).thenReturn(Optional.of(r));
+        when(voucherCache.pdf(any())).thenReturn(new VoucherCache.Voucher("\"a1\"", new byte[]{1}));
+        when(customerRepository.findAllByRutIn(anyList())).thenReturn(List.of());
+        when(reservationService.sendVoucherByEmail(anyList(), any())).thenThrow(new RuntimeException("SMTP caído"));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatchService.deliver(1L);
+
+        assertThat(entry.getStatus()).isEqualTo(VoucherOutboxEntity.PENDING);
+        assertThat(entry.getLastError()).isEqualTo("SMTP caído");
+        // Segundo intento fallido: espera 30s * 2
+        assertThat(entry.getNextAttemptAt()).isAfterOrEqualTo(before.plusSeconds(60));
+    }
+
+    @Test
+    void deliver_whenSomeRecipientsFail_retriesOnlyThoseRecipients() {
+        VoucherOutboxEntity entry = claimedEntry(1);
+        ReservationEntity r = reservation();
+        CustomerEntity c1 = new CustomerEntity(); c1.setEmail("a@a.com");
+        CustomerEntity c2 = new CustomerEntity(); c2.setEmail("b@b.com");
+
+        when(voucherOutboxRepository.findById(1L)).thenReturn(Optional.of(entry));
+        when(reservationRepository.findById(10L)).thenReturn(Optional.of(r));
+        when(voucherCache.pdf(any())).thenReturn(new VoucherCache.Voucher("\"a1\"", new byte[]{1}));
+        when(reservationService.getParticipantRuts(r)).thenReturn(List.of("1", "2"));
+        when(customerRepository.findAllByRutIn(List.of("1", "2"))).thenReturn(List.of(c1, c2));
+        when(reservationService.sendVoucherByEmail(List.of("a@a.com", "b@b.com"), new byte[]{1}))
+                .thenReturn(Map.of("a@a.com", true, "b@b.com", false));
+
+        dispatchService.deliver(1L);
+
+        assertThat(entry.getStatus()).isEqualTo(VoucherOutboxEntity.PENDING);
+        assertThat(entry.getFailedRecipients()).isEqualTo("b@b.com");
+
+        // Segundo intento: solo el destinatario que falló
+        entry.setAttempts(2);
+        when(reservationService.sendVoucherByEmail(List.of("b@b.com"), new byte[]{1})).thenReturn(Map.of("b@b.com", true));
+
+        dispatchService.deliver(1L);
+
+        assertThat(entry.getStatus()).isEqualTo(VoucherOutboxEntity.SENT);
+        assertThat(entry.getFailedRecipients()).isNull();
+        verify(customerRepository, times(1)).findAllByRutIn(anyList());
+    }
+
+    @Test
+    void deliver_whenAttemptsExhausted_marksFailed() throws Exception {
+        VoucherOutboxEntity entry = claimedEntry(5);
+
+        when(voucherOutboxRepository.findById(1L)).thenReturn(Optional.of(entry));
+        when(reservationRepository.findById(10L)).thenReturn(Optional.of(reservation()));
+        when(voucherCache.pdf(any())).thenThrow(new RuntimeException("PDF inválido"));
+
+        dispatchService.deliver(1L);
+
+        assertThat(entry.getStatus()).isEqualTo(VoucherOutboxEntity.FAILED);
+        verify(reservationService, never()).sendVoucherByEmail(anyList(), any());
+    }
+
+    @Test
+    void deliver_whenReservationDeleted_marksFailed() {
+        VoucherOutboxEntity entry = claimedEntry(1);
+
+        when(voucherOutboxRepository.findById(1L)).thenReturn(Optional.of(entry));
+        when(reservationRepository.findById(10L)).thenReturn(Optional.empty());
+
+        dispatchService.deliver(1L);
+
+        assertThat(entry.getStatus()).isEqualTo(VoucherOutboxEntity.FAILED);
+        verify(voucherOutboxRepository).save(entry);
+    }
+
+    @Test
+    void dispatchPending_skipsEntriesClaimedByAnotherReplica() {
+        VoucherOutboxEntity entry = new VoucherOutboxEntity(10L, LocalDateTime.of(2025, 4, 20, 10, 0));
+        entry.setId(1L);
+
+        when(voucherOutboxRepository.findDue(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(entry));
+        when(voucherOutboxRepository.claim(eq(1L), eq(VoucherOutboxEntity.PENDING), eq(entry.getNextAttemptAt()), any()))
+                .thenReturn(0);
+
+        dispatchService.dispatchPending();
+
+        verify(voucherOutboxRepository, never()).findById(any());
+    }
+
+    @Test
+    void getVoucherStatus_returnsEntryForReservation() {
+        VoucherOutboxEntity entry = claimedEntry(1);
+        when(voucherOutboxRepository.findByReservationId(10L)).thenReturn(entry);
+
+        assertThat(dispatchService.getVoucherStatus(10L)).isEqualTo(entry);
+    }
+}
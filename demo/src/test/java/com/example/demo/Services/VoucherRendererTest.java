@@ -0,0 +1,103 @@
+package com.example.demo.Services;
+
+import com.example.demo.Entities.ReservationEntity;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VoucherRendererTest {
+
+    private final VoucherRenderer renderer = new VoucherRenderer();
+
+    private ReservationEntity reservation(long id) {
+        ReservationEntity r = new ReservationEntity("1", "", LocalDateTime.of(2025, 4, 20, 15, 30), 15, 2, null);
+        r.setId(id);
+        return r;
+    }
+
+    private String text(byte[] pdf) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        try {
+            return new PdfTextExtractor(reader).getTextFromPage(1);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    void render_fillsReservationDataAndDetail() throws Exception {
+        List<List<Object>> detail = List.of(
+                List.of("Ana", 20000, 10, 0, "No", 0, 10, 18000, 3420, 21420),
+                List.of("Luis", 20000, 10, 20, "No", 0, 20, 16000, 3040, 19040));
+
+        String text = text(renderer.render(reservation(42), "Ana Pérez", detail));
+
+        assertThat(text).contains(VoucherRenderer.TITLE, "RES-42", "20/04/2025 15:30", "Ana Pérez", "Nombre", "Subtotal",
+                "Luis", "19040");
+    }
+
+    @Test
+    void render_consecutiveVouchersDoNotShareContent() throws Exception {
+        byte[] first = renderer.render(reservation(1), "Ana", List.of(List.of("Ana", 1, 2, 3, "No", 0, 3, 4, 5, 6)));
+        byte[] second = renderer.render(reservation(2), "Luis", List.of());
+
+        assertThat(text(first)).contains("RES-1", "Ana");
+        assertThat(text(second)).contains("RES-2", "Luis").doesNotContain("RES-1");
+        assertThat(first).isNotSameAs(second);
+    }
+
+    @Test
+    void bufferSize_followsLastVoucherWithinBounds() {
+        assertThat(renderer.bufferSize()).isEqualTo(VoucherRenderer.INITIAL_BUFFER + VoucherRenderer.INITIAL_BUFFER / 8);
+
+        byte[] pdf = renderer.render(reservation(1), "Ana", List.of(List.of("Ana", 1, 2, 3, "No", 0, 3, 4, 5, 6)));
+
+        assertThat(renderer.bufferSize()).isGreaterThanOrEqualTo(pdf.length).isLessThanOrEqualTo(VoucherRenderer.MAX_INITIAL_BUFFER);
+    }
+
+    @Test
+    void render_skeletonIsNotModified() throws Exception {
+        renderer.render(reservation(1), "Ana", List.of(List.of("Ana", 1, 2, 3, "No", 0, 3, 4, 5, 6)));
+        String text = text(renderer.render(reservation(2), "Luis", List.of()));
+
+        // La fila de la reserva anterior no quedó en la tabla base
+        assertThat(text).contains("Nombre").doesNotContain("Ana");
+    }
+
+    @Test
+    void render_longDetailContinuesOnNextPagesWithHeader() throws Exception {
+        List<List<Object>> detail = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            detail.add(List.of("Ana " + i, 20000, 10, 0, "No", 0, 10, 18000, 3420, 21420));
+        }
+
+        PdfReader reader = new PdfReader(renderer.render(reservation(3), "Ana", detail));
+        try {
+            int pages = reader.getNumberOfPages();
+            assertThat(pages).isGreaterThan(1);
+            PdfTextExtractor extractor = new PdfTextExtractor(reader);
+            for (int page = 2; page <= pages; page++) {
+                assertThat(extractor.getTextFromPage(page)).contains("Nombre");
+            }
+            assertThat(extractor.getTextFromPage(pages)).contains("Ana 59");
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    void wrap_splitsByWordsAndLongWords() {
+        assertThat(VoucherRenderer.wrap("Total", 100)).containsExactly("Total");
+        assertThat(VoucherRenderer.wrap("Desc. Especial", 50)).containsExactly("Desc.", "Especial");
+        assertThat(VoucherRenderer.wrap("Maximiliano", 30)).hasSizeGreaterThan(1)
+                .allSatisfy(line -> assertThat(line).isNotEmpty());
+        assertThat(String.join("", VoucherRenderer.wrap("Maximiliano", 30))).isEqualTo("Maximiliano");
+        assertThat(VoucherRenderer.wrap("", 30)).containsExactly("");
+    }
+}
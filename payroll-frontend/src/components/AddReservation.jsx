@@ -1,4 +1,4 @@
-import { useState } from "react";
+import { useEffect, useState } from "react";
 import { useNavigate } from "react-router-dom";
 import reservationService from "../services/reservation.service";
 import {
@@ -6,7 +6,8 @@ import {
   TextField,
   Button,
   Typography,
-  MenuItem
+  MenuItem,
+  Chip
 } from "@mui/material";
 import SaveIcon from "@mui/icons-material/Save";
 
@@ -23,6 +24,13 @@ const AddReservation = () => {
   });
   
 
+  const [day, setDay] = useState("");
+  const [slots, setSlots] = useState([]);
+  const [loadingSlots, setLoadingSlots] = useState(false);
+  const [slotsError, setSlotsError] = useState(null);
+
+  const [quote, setQuote] = useState(null);
+
   const [customPrice, setCustomPrice] = useState(null);
   const [specialDiscount, setSpecialDiscount] = useState(null);
 
@@ -36,8 +44,65 @@ const AddReservation = () => {
     }));
   };
 
+  // Horarios libres del día para la duración y cantidad de personas elegidas
+  useEffect(() => {
+    if (!day || !form.numberPeople) {
+      setSlots([]);
+      return;
+    }
+    setLoadingSlots(true);
+    setSlotsError(null);
+    reservationService
+      .getAvailability(day, day, form.lapsOrTime, form.numberPeople)
+      .then((response) => {
+        const times = response.data[day] || [];
+        setSlots(times);
+        setForm((prev) =>
+          times.some((time) => prev.reservationDate === `${day}T${time}`)
+            ? prev
+            : { ...prev, reservationDate: "" }
+        );
+      })
+      .catch((err) => {
+        console.error("Error al obtener la disponibilidad:", err);
+        setSlots([]);
+        // Un 400 trae el motivo en el cuerpo
+        setSlotsError(err.response && typeof err.response.data === "string" ? err.response.data : null);
+      })
+      .finally(() => setLoadingSlots(false));
+  }, [day, form.lapsOrTime, form.numberPeople]);
+
+  const handleSelectSlot = (time) => {
+    setForm((prev) => ({ ...prev, reservationDate: `${day}T${time}` }));
+  };
+
+  const handleQuote = async () => {
+    if (!form.reservationDate) {
+      alert("Selecciona un horario disponible.");
+      return;
+    }
+    try {
+      const response = await reservationService.quote(
+        form,
+        isAdmin,
+        isAdmin ? customPrice : null,
+        isAdmin ? specialDiscount : null
+      );
+      setQuote(response.data);
+    } catch (err) {
+      console.error("Error al cotizar la reserva:", err);
+      setQuote(null);
+      const reason = err.response && typeof err.response.data === "string" ? err.response.data : null;
+      alert(reason || "No se pudo cotizar la reserva. Verifica los datos ingresados.");
+    }
+  };
+
   const handleSubmit = async (e) => {
     e.preventDefault();
+    if (!form.reservationDate) {
+      alert("Selecciona un horario disponible.");
+      return;
+    }
     try {
       await reservationService.create(
         form,
@@ -81,19 +146,6 @@ const AddReservation = () => {
           onChange={handleChange}
           helperText="Los RUTs ingresados deben corresponder a usuarios registrados en el sistema."
         />
-        <TextField
-          fullWidth
-          margin="normal"
-          type="datetime-local"
-          name="reservationDate"
-          label="Fecha y Hora"
-          InputLabelProps={{ shrink: true }}
-          value={form.reservationDate}
-          onChange={handleChange}
-          required
-          helperText="Las reservas deben realizarse dentro del horario de atención: lunes a viernes de 14:00 a 22:00 h, fines de semana y feriados de 10:00 a 22:00 h."
-
-        />
         <TextField
           fullWidth
           select
@@ -119,6 +171,44 @@ const AddReservation = () => {
           required
         />
 
+        <TextField
+          fullWidth
+          margin="normal"
+          type="date"
+          label="Fecha"
+          InputLabelProps={{ shrink: true }}
+          value={day}
+          onChange={(e) => setDay(e.target.value)}
+          required
+          helperText="Horario de atención: lunes a viernes de 14:00 a 22:00 h, fines de semana y feriados de 10:00 a 22:00 h."
+        />
+        {day && (
+          <Box sx={{ mt: 1, mb: 2 }}>
+            <Typography variant="subtitle2" gutterBottom>
+              Horarios disponibles
+            </Typography>
+            {loadingSlots ? (
+              <Typography variant="body2">Cargando horarios...</Typography>
+            ) : slots.length === 0 ? (
+              <Typography variant="body2">
+                {slotsError || "No quedan horarios disponibles para este día."}
+              </Typography>
+            ) : (
+              <Box sx={{ display: "flex", flexWrap: "wrap", gap: 1 }}>
+                {slots.map((time) => (
+                  <Chip
+                    key={time}
+                    label={time}
+                    clickable
+                    color={form.reservationDate === `${day}T${time}` ? "primary" : "default"}
+                    onClick={() => handleSelectSlot(time)}
+                  />
+                ))}
+              </Box>
+            )}
+          </Box>
+        )}
+
         {isAdmin && (
           <>
             <TextField
@@ -141,6 +231,30 @@ const AddReservation = () => {
           </>
         )}
 
+        {quote && (
+          <Box sx={{ mt: 2 }}>
+            <Typography variant="subtitle2" gutterBottom>
+              Cotización
+            </Typography>
+            {quote.participants.map((p) => (
+              <Typography key={p.rut} variant="body2">
+                {p.name}: descuento {p.discountApplied}% — ${Math.round(p.totalWithTax).toLocaleString("es-CL")}
+              </Typography>
+            ))}
+            <Typography variant="body1" sx={{ mt: 1 }}>
+              Total con IVA: ${Math.round(quote.totalWithTax).toLocaleString("es-CL")}
+            </Typography>
+          </Box>
+        )}
+
+        <Button
+          variant="outlined"
+          color="primary"
+          onClick={handleQuote}
+          sx={{ mt: 2, mr: 2 }}
+        >
+          Cotizar
+        </Button>
         <Button
           type="submit"
           variant="contained"
@@ -1,10 +1,13 @@
 import { useEffect, useState } from "react";
 import { useNavigate } from "react-router-dom";
-import {Box, Typography, Paper, Divider, Button} from "@mui/material";
+import {Box, Typography, Paper, Divider, Button, Table, TableBody, TableCell, TableHead, TableRow} from "@mui/material";
 import customerService from "../services/customer.service";
 
 const ProfileCustomer = () => {
   const [user, setUser] = useState(null);
+  const [reservations, setReservations] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingHistory, setLoadingHistory] = useState(false);
   const navigate = useNavigate();
 
   useEffect(() => {
@@ -17,6 +20,26 @@ const ProfileCustomer = () => {
     }
   }, [navigate]);
 
+  // Historial por páginas: cada página pide solo las reservas anteriores a la última recibida
+  const loadReservations = async (rut, cursor) => {
+    setLoadingHistory(true);
+    try {
+      const response = await customerService.getReservations(rut, cursor);
+      setReservations((prev) => (cursor ? [...prev, ...response.data.reservations] : response.data.reservations));
+      setNextCursor(response.data.nextCursor);
+    } catch (error) {
+      console.error(error);
+    } finally {
+      setLoadingHistory(false);
+    }
+  };
+
+  useEffect(() => {
+    if (user) {
+      loadReservations(user.rut, null);
+    }
+  }, [user]);
+
   const handleDeleteAccount = async () => {
     if (!user) return;
     const confirmDelete = window.confirm("¿Estás seguro de que quieres eliminar tu cuenta? Esta acción no se puede deshacer.");
@@ -49,6 +72,45 @@ const ProfileCustomer = () => {
         <Typography><strong>Teléfono:</strong> {user.phone}</Typography>
         <Typography><strong>Fecha de nacimiento:</strong> {user.birthDate}</Typography>
 
+        <Divider sx={{ my: 2 }} />
+
+        <Typography variant="h6" gutterBottom>
+          Mis reservas
+        </Typography>
+        {reservations.length === 0 && !loadingHistory ? (
+          <Typography>No tienes reservas registradas.</Typography>
+        ) : (
+          <Table size="small">
+            <TableHead>
+              <TableRow>
+                <TableCell>Fecha</TableCell>
+                <TableCell>Vueltas o tiempo</TableCell>
+                <TableCell>Personas</TableCell>
+              </TableRow>
+            </TableHead>
+            <TableBody>
+              {reservations.map((reservation) => (
+                <TableRow key={reservation.id}>
+                  <TableCell>{reservation.reservationDate?.replace("T", " ").substring(0, 16)}</TableCell>
+                  <TableCell>{reservation.lapsOrTime}</TableCell>
+                  <TableCell>{reservation.numberPeople}</TableCell>
+                </TableRow>
+              ))}
+            </TableBody>
+          </Table>
+        )}
+        {nextCursor && (
+          <Button
+            variant="outlined"
+            onClick={() => loadReservations(user.rut, nextCursor)}
+            disabled={loadingHistory}
+            fullWidth
+            sx={{ mt: 1 }}
+          >
+            Cargar más
+          </Button>
+        )}
+
         <Divider sx={{ my: 2 }} />
         
         <Button variant="contained" color="error" onClick={handleDeleteAccount} fullWidth>
@@ -1,6 +1,6 @@
 import { useEffect, useState } from "react";
 import { Calendar, dateFnsLocalizer } from "react-big-calendar";
-import { format, parse, startOfWeek, getDay } from "date-fns";
+import { format, parse, startOfWeek, endOfWeek, getDay } from "date-fns";
 import es from "date-fns/locale/es";
 import "react-big-calendar/lib/css/react-big-calendar.css";
 
@@ -11,6 +11,7 @@ import {
   CardContent,
   Divider,
   Button,
+  TextField,
 } from "@mui/material";
 
 import reservationService from "../services/reservation.service";
@@ -36,28 +37,56 @@ const generateColorFromName = (name) => {
   return `hsl(${hue}, 70%, 60%)`;
 };
 
+// Semana visible del calendario, en el formato de fecha que espera el backend
+const weekRange = (date) => ({
+  start: format(startOfWeek(date), "yyyy-MM-dd"),
+  end: format(endOfWeek(date), "yyyy-MM-dd"),
+});
+
+// Trae solo las reservas de la semana visible, página por página
+const fetchWeekEvents = async ({ start, end }) => {
+  const events = [];
+  let cursor = null;
+  do {
+    const res = await reservationService.getAllReservationsByDuration(start, end, cursor);
+    res.data.reservations.forEach((r) =>
+      events.push({
+        id: r.id,
+        title: r.title,
+        start: new Date(r.start),
+        end: new Date(r.end),
+      })
+    );
+    cursor = res.data.nextCursor;
+  } while (cursor);
+  return events;
+};
+
 const Rack = () => {
   const [events, setEvents] = useState([]);
   const [eventoSeleccionado, setEventoSeleccionado] = useState(null);
+  const [range, setRange] = useState(weekRange(new Date()));
+  const [sheetDay, setSheetDay] = useState(format(new Date(), "yyyy-MM-dd"));
 
   useEffect(() => {
     const fetchData = async () => {
       try {
-        const res = await reservationService.getAllReservationsByDuration();
-        const mapped = res.data.map((r) => ({
-          title: r.title,
-          start: new Date(r.start),
-          end: new Date(r.end),
-        }));
-        setEvents(mapped);
+        setEvents(await fetchWeekEvents(range));
       } catch (err) {
         console.error(err);
-        alert("Error al cargar el rack semanal");
+        // Un 400 trae el motivo (p. ej. rango o cursor inválido) en el cuerpo
+        const reason = err.response && typeof err.response.data === "string" ? err.response.data : null;
+        alert(reason || "Error al cargar el rack semanal");
       }
     };
 
     fetchData();
-  }, []);
+  }, [range]);
+
+  const onRangeChange = (dates) => {
+    const first = Array.isArray(dates) ? dates[0] : dates.start;
+    setRange(weekRange(first));
+  };
 
   const eventStyleGetter = (event) => {
     const cliente = event.title;
@@ -98,13 +127,7 @@ const Rack = () => {
   
       alert("Reserva cancelada exitosamente");
   
-      const res = await reservationService.getAllReservationsByDuration();
-      const mapped = res.data.map((r) => ({
-        title: r.title,
-        start: new Date(r.start),
-        end: new Date(r.end),
-      }));
-      setEvents(mapped);
+      setEvents(await fetchWeekEvents(range));
       setEventoSeleccionado(null);
     } catch (error) {
       console.error(error);
@@ -112,11 +135,42 @@ const Rack = () => {
     }
   };
   
+  const descargarHojaPista = async () => {
+    try {
+      await reservationService.downloadDaySheet(sheetDay);
+    } catch (error) {
+      console.error(error);
+      alert("Error al descargar la hoja de pista");
+    }
+  };
+
+  const descargarComprobante = async () => {
+    try {
+      await reservationService.downloadVoucher(eventoSeleccionado.id);
+    } catch (error) {
+      console.error(error);
+      alert("Error al descargar el comprobante");
+    }
+  };
+
   return (
     <Box sx={{ mt: 4, maxWidth: 1100, mx: "auto" }}>
       <Typography variant="h5" fontWeight="bold" gutterBottom>
         Rack Semanal de Ocupación
       </Typography>
+      <Box sx={{ display: "flex", gap: 2, mb: 2 }}>
+        <TextField
+          label="Día"
+          type="date"
+          size="small"
+          InputLabelProps={{ shrink: true }}
+          value={sheetDay}
+          onChange={(e) => setSheetDay(e.target.value)}
+        />
+        <Button variant="outlined" onClick={descargarHojaPista}>
+          Hoja de pista
+        </Button>
+      </Box>
       <div style={{ height: "75vh" }}>
         <Calendar
           localizer={localizer}
@@ -132,6 +186,7 @@ const Rack = () => {
           max={new Date(new Date().setHours(22, 0, 0))}
           eventPropGetter={eventStyleGetter}
           onSelectEvent={onSelectEvent}
+          onRangeChange={onRangeChange}
           culture="es"
           messages={{
             week: "Semana",
@@ -171,6 +226,13 @@ const Rack = () => {
             >
               Cancelar Reserva
             </Button>
+            <Button
+              variant="outlined"
+              sx={{ mt: 2, ml: 2 }}
+              onClick={descargarComprobante}
+            >
+              Descargar Comprobante
+            </Button>
           </CardContent>
         </Card>
       )}
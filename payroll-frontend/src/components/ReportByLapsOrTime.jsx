@@ -7,6 +7,19 @@ const ReportByLapsOrTime = () => {
   const [endDate, setEndDate] = useState("");
   const [data, setData] = useState(null);
 
+  const handleDownload = async () => {
+    if (!startDate || !endDate) {
+      alert("Selecciona el rango de fechas.");
+      return;
+    }
+    try {
+      await reservationService.downloadIncomeReport("income-lapsOrTime", startDate, endDate);
+    } catch (error) {
+      console.error(error);
+      alert("Error al descargar el reporte");
+    }
+  };
+
   const handleSubmit = async (e) => {
     e.preventDefault();
     try {
@@ -43,6 +56,7 @@ const ReportByLapsOrTime = () => {
           required
         />
         <Button type="submit" variant="contained" color="primary">Consultar</Button>
+        <Button variant="outlined" color="primary" onClick={handleDownload}>Descargar Excel</Button>
       </form>
 
       {data && (
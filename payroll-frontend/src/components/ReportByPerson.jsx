@@ -7,6 +7,32 @@ const ReportByPerson = () => {
   const [endDate, setEndDate] = useState("");
   const [data, setData] = useState(null);
 
+  const handleDownload = async () => {
+    if (!startDate || !endDate) {
+      alert("Selecciona el rango de fechas.");
+      return;
+    }
+    try {
+      await reservationService.downloadIncomeReport("income-persons", startDate, endDate);
+    } catch (error) {
+      console.error(error);
+      alert("Error al descargar el reporte");
+    }
+  };
+
+  const handleLedger = async () => {
+    if (!startDate || !endDate) {
+      alert("Selecciona el rango de fechas.");
+      return;
+    }
+    try {
+      await reservationService.downloadLedger(startDate, endDate);
+    } catch (error) {
+      console.error(error);
+      alert("Error al descargar el detalle de reservas");
+    }
+  };
+
   const handleSubmit = async (e) => {
     e.preventDefault();
     try {
@@ -43,6 +69,8 @@ const ReportByPerson = () => {
           required
         />
         <Button type="submit" variant="contained" color="primary">Generar reporte</Button>
+        <Button variant="outlined" color="primary" onClick={handleDownload}>Descargar Excel</Button>
+        <Button variant="outlined" color="primary" onClick={handleLedger}>Detalle CSV</Button>
       </form>
 
       {data && (
@@ -20,6 +20,15 @@ const getByRut = (rut) => {
     return httpClient.get(`/user/rut/${rut}`);
 };
 
+const getReservations = (rut, cursor, size = 20) => {
+    return httpClient.get(`/user/${rut}/reservations`, {
+        params: {
+            cursor,
+            size
+        }
+    });
+};
+
 const login = (data) => {
     return httpClient.post("/user/login", data);
 };
@@ -30,5 +39,6 @@ export default {
     update,
     remove,
     getByRut,
+    getReservations,
     login
 };
@@ -1,7 +1,14 @@
 import httpClient from "../http-common";
 
-const getAll = () => {
-    return httpClient.get("/reservation/all");
+const getAll = (start, end, cursor, size) => {
+    return httpClient.get("/reservation/all", {
+        params: {
+            start,
+            end,
+            cursor,
+            size
+        }
+    });
 };
 
 const getById = (id) => {
@@ -17,6 +24,24 @@ const create = (data, isAdmin, customPrice, specialDiscount ) => {
     return httpClient.post(`/reservation/?${params.toString()}`, data);
 };
 
+const createBatch = (reservations, isAdmin, customPrice, specialDiscount) => {
+    const params = new URLSearchParams();
+    if (isAdmin !== null) params.append("isAdmin", isAdmin);
+    if (customPrice !== null) params.append("customPrice", customPrice);
+    if (specialDiscount !== null) params.append("specialDiscount", specialDiscount);
+
+    return httpClient.post(`/reservation/batch?${params.toString()}`, reservations);
+};
+
+const quote = (data, isAdmin, customPrice, specialDiscount) => {
+    const params = new URLSearchParams();
+    if (isAdmin !== null) params.append("isAdmin", isAdmin);
+    if (customPrice !== null) params.append("customPrice", customPrice);
+    if (specialDiscount !== null) params.append("specialDiscount", specialDiscount);
+
+    return httpClient.post(`/reservation/quote?${params.toString()}`, data);
+};
+
 const update = (data) => {
     return httpClient.put("/reservation/", data);
 };
@@ -47,19 +72,77 @@ const getIncomePerPerson = (startDate, endDate) => {
     });
 };
 
-const getAllReservationsByDuration = () => {
-    return httpClient.get("/reservation/allByDuration");
+// Descarga un archivo generado por el backend con el nombre que indica Content-Disposition
+const downloadFile = (path, params, fallbackName) => {
+    return httpClient.get(path, {
+        params,
+        responseType: "blob"
+    }).then((response) => {
+        const disposition = response.headers["content-disposition"] || "";
+        const match = disposition.match(/filename="([^"]+)"/);
+        const url = window.URL.createObjectURL(response.data);
+        const link = document.createElement("a");
+        link.href = url;
+        link.download = match ? match[1] : fallbackName;
+        link.click();
+        window.URL.revokeObjectURL(url);
+    });
+};
+
+const downloadIncomeReport = (report, startDate, endDate) => {
+    return downloadFile(`/reservation/${report}.xlsx`, { startDate, endDate }, `${report}.xlsx`);
+};
+
+const downloadLedger = (startDate, endDate) => {
+    return downloadFile("/reservation/ledger.csv", { startDate, endDate }, "reservas.csv");
+};
+
+const downloadVoucher = (id) => {
+    return downloadFile(`/reservation/${id}/voucher.pdf`, {}, `comprobante-RES-${id}.pdf`);
+};
+
+const downloadDaySheet = (date) => {
+    return downloadFile(`/reservation/day-sheet/${date}.pdf`, {}, `hoja-pista-${date}.pdf`);
+};
+
+const getAllReservationsByDuration = (start, end, cursor, size) => {
+    return httpClient.get("/reservation/allByDuration", {
+        params: {
+            start,
+            end,
+            cursor,
+            size
+        }
+    });
   };
+
+const getAvailability = (from, to, lapsOrTime, people) => {
+    return httpClient.get("/reservation/availability", {
+        params: {
+            from,
+            to,
+            lapsOrTime,
+            people
+        }
+    });
+};
   
 
 export default {
     getAll,
     getById,
     create,
+    createBatch,
+    quote,
     update,
     remove,
     getByDate,
     getIncomeFromLapsOrTime,
     getIncomePerPerson,
-    getAllReservationsByDuration
+    downloadIncomeReport,
+    downloadLedger,
+    downloadVoucher,
+    downloadDaySheet,
+    getAllReservationsByDuration,
+    getAvailability
 };